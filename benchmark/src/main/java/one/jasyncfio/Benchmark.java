@@ -40,9 +40,8 @@ public class Benchmark implements Callable<Integer> {
     @CommandLine.Option(names = {"-B", "--fixed-buffers"}, description = "Fixed buffers, default true", paramLabel = "<boolean>")
     private boolean fixedBuffers = true;
 
-    // todo not supported
-//    @CommandLine.Option(names = {"-F", "--register-files"}, description = "Register files, default true", paramLabel = "<boolean>")
-//    private boolean registerFiles = true;
+    @CommandLine.Option(names = {"-F", "--register-files"}, description = "Register files, default true", paramLabel = "<boolean>")
+    private boolean registerFiles = true;
 
 
     @CommandLine.Option(
@@ -70,9 +69,8 @@ public class Benchmark implements Callable<Integer> {
     @CommandLine.Option(names = {"-S", "--sync-io"}, description = "Use sync I/O (FileChannel), default false", paramLabel = "<boolean>")
     private boolean syncIo = false;
 
-    // todo not supported
-//    @CommandLine.Option(names = {"-X", "--register-ring"}, description = "Use registered ring, default true", paramLabel = "<boolean>")
-//    private boolean registeredRing = true;
+    @CommandLine.Option(names = {"-X", "--register-ring"}, description = "Use registered ring, default true", paramLabel = "<boolean>")
+    private boolean registeredRing = true;
 
 
     private final List<BenchmarkWorker> workers = new ArrayList<>();
@@ -90,6 +88,8 @@ public class Benchmark implements Callable<Integer> {
                     blockSize,
                     polledIo,
                     fixedBuffers,
+                    registerFiles,
+                    registeredRing,
                     oDirect,
                     noOp,
                     trackLatencies,
@@ -156,6 +156,8 @@ public class Benchmark implements Callable<Integer> {
                                      int blockSize,
                                      boolean polledIo,
                                      boolean fixedBuffers,
+                                     boolean registerFiles,
+                                     boolean registeredRing,
                                      boolean oDirect,
                                      boolean noOp,
                                      boolean trackLatencies,
@@ -181,6 +183,8 @@ public class Benchmark implements Callable<Integer> {
                     batchComplete,
                     polledIo,
                     fixedBuffers,
+                    registerFiles,
+                    registeredRing,
                     oDirect,
                     noOp,
                     trackLatencies,
@@ -2,11 +2,14 @@ package one.jasyncfio;
 
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class BenchmarkIoUringWorker extends BenchmarkWorker {
 
     final EventExecutor executor;
     final ByteBuffer[] buffers;
+    final FixedBuffer[] registeredBuffers;
     final Path path;
     final AsyncFile file;
     final int batchSubmit;
@@ -27,6 +30,8 @@ public abstract class BenchmarkIoUringWorker extends BenchmarkWorker {
             int batchComplete,
             boolean pooledIo,
             boolean fixedBuffers,
+            boolean registerFiles,
+            boolean registeredRing,
             boolean directIo,
             boolean noOp,
             boolean trackLatencies,
@@ -41,13 +46,14 @@ public abstract class BenchmarkIoUringWorker extends BenchmarkWorker {
         this.bufMask = depth - 1;
         this.fixedBuffers = fixedBuffers;
         EventExecutor.Builder ioUringBuilder = EventExecutor.builder()
-                .entries(depth);
+                .entries(depth)
+                .registeredRing(registeredRing);
 
         if (pooledIo) {
             ioUringBuilder.ioRingSetupIoPoll();
         }
         if (fixedBuffers) {
-            ioUringBuilder.addBufRing(depth, blockSize, (short) 0);
+            ioUringBuilder.registeredBuffers(depth, blockSize);
             buffers = null;
         } else {
             buffers = new ByteBuffer[depth];
@@ -58,14 +64,30 @@ public abstract class BenchmarkIoUringWorker extends BenchmarkWorker {
         if (trackLatencies) {
             ioUringBuilder.monitoring();
         }
+        if (registerFiles) {
+            ioUringBuilder.registeredFiles(1);
+        }
         this.executor = ioUringBuilder.build();
+        if (fixedBuffers) {
+            registeredBuffers = new FixedBuffer[depth];
+            for (int i = 0; i < registeredBuffers.length; i++) {
+                registeredBuffers[i] = executor.leaseBuffer();
+            }
+        } else {
+            registeredBuffers = null;
+        }
 
+        List<OpenOption> openOptions = new ArrayList<>();
+        openOptions.add(OpenOption.READ_ONLY);
+        openOptions.add(OpenOption.NOATIME);
         if (directIo) {
-            this.file = AsyncFile.open(path, executor, OpenOption.READ_ONLY, OpenOption.NOATIME, OpenOption.DIRECT).join();
-        } else {
-            this.file = AsyncFile.open(path, executor, OpenOption.READ_ONLY, OpenOption.NOATIME).join();
+            openOptions.add(OpenOption.DIRECT);
+        }
+        if (registerFiles) {
+            openOptions.add(OpenOption.REGISTERED);
         }
-        maxBlocks = Native.getFileSize(file.getRawFd()) / blockSize;
+        this.file = AsyncFile.open(path, executor, openOptions.toArray(new OpenOption[0])).join();
+        maxBlocks = file.size().join() / blockSize;
 
     }
 
@@ -208,8 +208,6 @@ nexusPublishing {
 
 dependencies {
     implementation("org.jctools:jctools-core:${deps.jctools}")
-    implementation("cn.danielw:fast-object-pool:${deps.object_pool}")
-    implementation("com.conversantmedia:disruptor:${deps.object_pool_disruptor}")
     implementation("com.tdunning:t-digest:${deps.t_digest}")
 }
 
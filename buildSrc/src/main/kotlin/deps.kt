@@ -5,8 +5,6 @@ object deps {
     const val nexus_publish = "1.3.0"
 
     const val jctools = "4.0.1"
-    const val object_pool = "2.2.1"
-    const val object_pool_disruptor = "1.2.15"
     const val junit_jupiter = "5.9.0"
     const val jmh_core = "1.35"
     const val picocli = "4.7.0"
@@ -0,0 +1,83 @@
+package one.jasyncfio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup path of the {@link BlockCache}, every block of the file is cached, so each iteration is a hit
+ * that pins and unpins a block. Run with {@code ./gradlew jmh} and compare one thread with many, the block table
+ * is striped so the cost should barely grow with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockCacheBenchmark {
+    private static final int BLOCK = 4096;
+
+    @Param({"1024"})
+    public int blocks;
+
+    private EventExecutor executor;
+    private AsyncFile file;
+    private BlockCache cache;
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        path = Files.createTempFile("jasyncfio-", "-bench");
+        Files.write(path, new byte[blocks * BLOCK]);
+        executor = EventExecutor.builder()
+                .idleStrategy(IdleStrategy::busySpin)
+                .build();
+        file = AsyncFile.open(path, executor, OpenOption.READ_ONLY).get();
+        cache = new BlockCache(blocks, BLOCK);
+        for (int i = 0; i < blocks; i++) {
+            cache.read(file, (long) i * BLOCK).get().close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        file.close().get();
+        executor.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public byte hit() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte hit_4threads() {
+        return lookup();
+    }
+
+    private byte lookup() {
+        long position = (long) ThreadLocalRandom.current().nextInt(blocks) * BLOCK;
+        try (CachedBlock block = cache.tryRead(file, position)) {
+            return block.getBuffer().get(0);
+        }
+    }
+}
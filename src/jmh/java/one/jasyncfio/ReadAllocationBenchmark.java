@@ -0,0 +1,60 @@
+package one.jasyncfio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation per read, run with {@code ./gradlew jmh -Pjmh.profilers=gc} and look at gc.alloc.rate.norm.
+ * The file is small and stays in the page cache, so the numbers are dominated by the library overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadAllocationBenchmark {
+    private EventExecutor executor;
+    private AsyncFile file;
+    private ByteBuffer buffer;
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        path = Files.createTempFile("jasyncfio-", "-bench");
+        Files.write(path, new byte[4096]);
+        executor = EventExecutor.builder()
+                .idleStrategy(IdleStrategy::busySpin)
+                .build();
+        file = AsyncFile.open(path, executor, OpenOption.READ_ONLY).get();
+        buffer = ByteBuffer.allocateDirect(4096);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        file.close().get();
+        executor.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public int read() throws Exception {
+        buffer.clear();
+        return file.read(buffer, 0L).get();
+    }
+}
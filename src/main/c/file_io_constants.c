@@ -58,6 +58,9 @@ static jint get_splice_f_nonblock(JNIEnv* env, jclass clazz) {
 static jint get_splice_f_more(JNIEnv* env, jclass clazz) {
     return SPLICE_F_MORE;
 }
+static jint get_posix_fadv_willneed(JNIEnv* env, jclass clazz) {
+    return POSIX_FADV_WILLNEED;
+}
 
 static JNINativeMethod method_table[] = {
     {"oRdOnly",            "()I", (void *) get_o_rdonly},
@@ -77,6 +80,7 @@ static JNINativeMethod method_table[] = {
     {"spliceFMove",        "()I", (void *) get_splice_f_move},
     {"spliceFNonblock",    "()I", (void *) get_splice_f_nonblock},
     {"spliceFMore",        "()I", (void *) get_splice_f_more},
+    {"posixFadvWillneed",  "()I", (void *) get_posix_fadv_willneed},
 };
 
 jint jni_file_io_constants_on_load(JNIEnv *env) {
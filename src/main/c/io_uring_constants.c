@@ -1,3 +1,4 @@
+#include <errno.h>
 #include "io_uring.h"
 #include "io_uring_constants.h"
 
@@ -63,6 +64,18 @@ static jbyte get_ioring_op_timeout(JNIEnv* env, jclass clazz) {
 static jbyte get_ioring_op_timeout_remove(JNIEnv* env, jclass clazz) {
     return IORING_OP_TIMEOUT_REMOVE;
 }
+static jbyte get_ioring_op_async_cancel(JNIEnv* env, jclass clazz) {
+    return IORING_OP_ASYNC_CANCEL;
+}
+static jbyte get_ioring_op_msg_ring(JNIEnv* env, jclass clazz) {
+    return IORING_OP_MSG_RING;
+}
+static jint get_ioring_msg_data(JNIEnv* env, jclass clazz) {
+    return IORING_MSG_DATA;
+}
+static jbyte get_ioring_op_link_timeout(JNIEnv* env, jclass clazz) {
+    return IORING_OP_LINK_TIMEOUT;
+}
 static jbyte get_ioring_op_sendmsg(JNIEnv* env, jclass clazz) {
     return IORING_OP_SENDMSG;
 }
@@ -81,6 +94,9 @@ static jbyte get_ioring_op_shutdown(JNIEnv* env, jclass clazz) {
 static jbyte get_ioring_op_splice(JNIEnv* env, jclass clazz) {
     return IORING_OP_SPLICE;
 }
+static jbyte get_ioring_op_fadvise(JNIEnv* env, jclass clazz) {
+    return IORING_OP_FADVISE;
+}
 static jbyte get_ioring_op_send_zc(JNIEnv* env, jclass clazz) {
     return IORING_OP_SEND_ZC;
 }
@@ -118,6 +134,45 @@ static jint get_ioring_setup_clamp(JNIEnv* env, jclass clazz) {
 static jint get_ioring_setup_attach_wq(JNIEnv* env, jclass clazz) {
     return IORING_SETUP_ATTACH_WQ;
 }
+static jint get_ioring_setup_r_disabled(JNIEnv* env, jclass clazz) {
+    return IORING_SETUP_R_DISABLED;
+}
+static jint get_ioring_setup_submit_all(JNIEnv* env, jclass clazz) {
+    return IORING_SETUP_SUBMIT_ALL;
+}
+static jint get_ioring_setup_coop_taskrun(JNIEnv* env, jclass clazz) {
+    return IORING_SETUP_COOP_TASKRUN;
+}
+static jint get_ioring_setup_taskrun_flag(JNIEnv* env, jclass clazz) {
+    return IORING_SETUP_TASKRUN_FLAG;
+}
+static jint get_ioring_setup_single_issuer(JNIEnv* env, jclass clazz) {
+    return IORING_SETUP_SINGLE_ISSUER;
+}
+static jint get_ioring_setup_defer_taskrun(JNIEnv* env, jclass clazz) {
+    return IORING_SETUP_DEFER_TASKRUN;
+}
+static jint get_ioring_sq_taskrun(JNIEnv* env, jclass clazz) {
+    return IORING_SQ_TASKRUN;
+}
+static jint get_ioring_register_enable_rings(JNIEnv* env, jclass clazz) {
+    return IORING_REGISTER_ENABLE_RINGS;
+}
+static jint get_ioring_register_ring_fds(JNIEnv* env, jclass clazz) {
+    return IORING_REGISTER_RING_FDS;
+}
+static jint get_ioring_unregister_ring_fds(JNIEnv* env, jclass clazz) {
+    return IORING_UNREGISTER_RING_FDS;
+}
+static jint get_ioring_enter_registered_ring(JNIEnv* env, jclass clazz) {
+    return IORING_ENTER_REGISTERED_RING;
+}
+static jint get_ioring_feat_min_timeout(JNIEnv* env, jclass clazz) {
+    return IORING_FEAT_MIN_TIMEOUT;
+}
+static jint get_etime(JNIEnv* env, jclass clazz) {
+    return ETIME;
+}
 static jint get_ioring_register_buffers(JNIEnv* env, jclass clazz) {
     return IORING_REGISTER_BUFFERS;
 }
@@ -130,6 +185,9 @@ static jint get_ioring_register_files(JNIEnv* env, jclass clazz) {
 static jint get_ioring_unregister_files(JNIEnv* env, jclass clazz) {
     return IORING_UNREGISTER_FILES;
 }
+static jint get_ioring_register_files_update(JNIEnv* env, jclass clazz) {
+    return IORING_REGISTER_FILES_UPDATE;
+}
 static jint get_ioring_register_probe(JNIEnv* env, jclass clazz) {
     return IORING_REGISTER_PROBE;
 }
@@ -142,9 +200,30 @@ static jint get_ioring_unregister_pbuf_ring(JNIEnv* env, jclass clazz) {
 static jint get_iosqe_buffer_select(JNIEnv* env, jclass clazz) {
     return IOSQE_BUFFER_SELECT;
 }
+static jint get_iosqe_fixed_file(JNIEnv* env, jclass clazz) {
+    return IOSQE_FIXED_FILE;
+}
 static jint get_ioring_cqe_f_buffer(JNIEnv* env, jclass clazz) {
     return IORING_CQE_F_BUFFER;
 }
+static jint get_iosqe_io_link(JNIEnv* env, jclass clazz) {
+    return IOSQE_IO_LINK;
+}
+static jint get_iosqe_io_hardlink(JNIEnv* env, jclass clazz) {
+    return IOSQE_IO_HARDLINK;
+}
+static jint get_ioring_async_cancel_all(JNIEnv* env, jclass clazz) {
+    return IORING_ASYNC_CANCEL_ALL;
+}
+static jint get_ioring_async_cancel_fd(JNIEnv* env, jclass clazz) {
+    return IORING_ASYNC_CANCEL_FD;
+}
+static jint get_ioring_async_cancel_fd_fixed(JNIEnv* env, jclass clazz) {
+    return IORING_ASYNC_CANCEL_FD_FIXED;
+}
+static jint get_ecanceled(JNIEnv* env, jclass clazz) {
+    return ECANCELED;
+}
 
 
 static JNINativeMethod method_table[] = {
@@ -159,6 +238,19 @@ static JNINativeMethod method_table[] = {
     {"ioRingFsyncDatasync", "()I", (void *) get_ioring_fsync_datasync},
     {"ioRingSetupClamp", "()I", (void *) get_ioring_setup_clamp},
     {"ioRingSetupAttachWq", "()I", (void *) get_ioring_setup_attach_wq},
+    {"ioRingSetupRDisabled", "()I", (void *) get_ioring_setup_r_disabled},
+    {"ioRingSetupSubmitAll", "()I", (void *) get_ioring_setup_submit_all},
+    {"ioRingSetupCoopTaskrun", "()I", (void *) get_ioring_setup_coop_taskrun},
+    {"ioRingSetupTaskrunFlag", "()I", (void *) get_ioring_setup_taskrun_flag},
+    {"ioRingSetupSingleIssuer", "()I", (void *) get_ioring_setup_single_issuer},
+    {"ioRingSetupDeferTaskrun", "()I", (void *) get_ioring_setup_defer_taskrun},
+    {"ioRingSqTaskrun", "()I", (void *) get_ioring_sq_taskrun},
+    {"ioRingRegisterEnableRings", "()I", (void *) get_ioring_register_enable_rings},
+    {"ioRingRegisterRingFds", "()I", (void *) get_ioring_register_ring_fds},
+    {"ioRingUnregisterRingFds", "()I", (void *) get_ioring_unregister_ring_fds},
+    {"ioRingEnterRegisteredRing", "()I", (void *) get_ioring_enter_registered_ring},
+    {"ioRingFeatMinTimeout", "()I", (void *) get_ioring_feat_min_timeout},
+    {"eTime", "()I", (void *) get_etime},
     {"ioRingOpRead", "()B", (void *) get_ioring_op_read},
     {"ioRingOpWrite", "()B", (void *) get_ioring_op_write},
     {"ioRingOpenAt", "()B", (void *) get_ioring_op_openat},
@@ -179,6 +271,10 @@ static JNINativeMethod method_table[] = {
     {"ioRingOpAccept", "()B", (void *) get_ioring_op_accept},
     {"ioRingOpTimeout", "()B", (void *) get_ioring_op_timeout},
     {"ioRingOpTimeoutRemove", "()B", (void *) get_ioring_op_timeout_remove},
+    {"ioRingOpAsyncCancel", "()B", (void *) get_ioring_op_async_cancel},
+    {"ioRingOpLinkTimeout", "()B", (void *) get_ioring_op_link_timeout},
+    {"ioRingOpMsgRing", "()B", (void *) get_ioring_op_msg_ring},
+    {"ioRingMsgData", "()I", (void *) get_ioring_msg_data},
     {"ioRingOpSendMsg", "()B", (void *) get_ioring_op_sendmsg},
     {"ioRingOpRecvMsg", "()B", (void *) get_ioring_op_recvmsg},
     {"ioRingOpSend", "()B", (void *) get_ioring_op_send},
@@ -186,15 +282,24 @@ static JNINativeMethod method_table[] = {
     {"ioRingOpSplice", "()B", (void *) get_ioring_op_splice},
     {"ioRingOpShutdown", "()B", (void *) get_ioring_op_shutdown},
     {"ioRingOpSendZc", "()B", (void *) get_ioring_op_send_zc},
+    {"ioRingOpFadvise", "()B", (void *) get_ioring_op_fadvise},
     {"ioRingRegisterBuffers", "()I", (void *) get_ioring_register_buffers},
     {"ioRingUnregisterBuffers", "()I", (void *) get_ioring_unregister_buffers},
     {"ioRingRegisterFiles", "()I", (void *) get_ioring_register_files},
     {"ioRingUnregisterFiles", "()I", (void *) get_ioring_unregister_files},
+    {"ioRingRegisterFilesUpdate", "()I", (void *) get_ioring_register_files_update},
     {"ioRingRegisterProbe", "()I", (void *) get_ioring_register_probe},
     {"ioRingRegisterPbufRing", "()I", (void *) get_ioring_register_pbuf_ring},
     {"ioRingUnregisterPbufRing", "()I", (void *) get_ioring_unregister_pbuf_ring},
     {"iosqeBufferSelect", "()I", (void *) get_iosqe_buffer_select},
+    {"iosqeFixedFile", "()I", (void *) get_iosqe_fixed_file},
     {"ioRingCqeFBuffer", "()I", (void *) get_ioring_cqe_f_buffer},
+    {"iosqeIoLink", "()I", (void *) get_iosqe_io_link},
+    {"iosqeIoHardlink", "()I", (void *) get_iosqe_io_hardlink},
+    {"ioRingAsyncCancelAll", "()I", (void *) get_ioring_async_cancel_all},
+    {"ioRingAsyncCancelFd", "()I", (void *) get_ioring_async_cancel_fd},
+    {"ioRingAsyncCancelFdFixed", "()I", (void *) get_ioring_async_cancel_fd_fixed},
+    {"eCanceled", "()I", (void *) get_ecanceled},
 };
 
 jint jni_io_uring_constants_on_load(JNIEnv *env) {
@@ -8,6 +8,7 @@
 #include <sys/stat.h>
 #include <sys/ioctl.h>
 #include <unistd.h>
+#include <sched.h>
 
 #include "syscall.h"
 #include "java_io_uring_natives.h"
@@ -215,6 +216,7 @@ void setup_iouring(JNIEnv *env, struct io_uring *ring, int entries, int flags, i
 
     if (!ret) {
         ring->flags = p.flags;
+        ring->features = p.features;
         ring->ring_fd = ring_fd;
     } else {
         close(ring_fd);
@@ -239,7 +241,7 @@ static jobjectArray java_io_uring_setup_iouring(JNIEnv *env, jclass clazz, jint
         return NULL;
     }
 
-    jlongArray submissionArray = (*env)->NewLongArray(env, 12);
+    jlongArray submissionArray = (*env)->NewLongArray(env, 13);
     if (submissionArray == NULL) {
         return NULL;
     }
@@ -265,9 +267,10 @@ static jobjectArray java_io_uring_setup_iouring(JNIEnv *env, jclass clazz, jint
         (jlong) ring.sq.ring_sz,
         (jlong) ring.sq.ring_ptr,
         (jlong) ring.ring_fd,
-        (jlong) ring.flags
+        (jlong) ring.flags,
+        (jlong) ring.features
     };
-    (*env)->SetLongArrayRegion(env, submissionArray, 0, 12, submissionArrayElements);
+    (*env)->SetLongArrayRegion(env, submissionArray, 0, 13, submissionArrayElements);
 
     jlong completionArrayElements[] = {
         (jlong) ring.cq.khead,
@@ -299,6 +302,19 @@ static jint asyncfio_io_uring_enter(JNIEnv *env, jclass clazz, jint ring_fd, jin
     return -err;
 }
 
+static jint asyncfio_io_uring_enter_ext_arg(JNIEnv *env, jclass clazz, jint ring_fd, jint to_submit, jint min_complete, jint flags, jlong arg) {
+    jint result;
+    jint err;
+    do {
+        result = sys_io_uring_enter2(ring_fd, to_submit, min_complete, flags | IORING_ENTER_EXT_ARG,
+                                     (void *) arg, sizeof(struct io_uring_getevents_arg));
+        if (result >= 0) {
+            return result;
+        }
+    } while ((err = errno) == EINTR);
+    return -err;
+}
+
 static jint jasyncfio_get_event_fd(JNIEnv *env, jclass clazz) {
     jint eventFd = eventfd(0, EFD_CLOEXEC);
     if (eventFd < 0) {
@@ -415,6 +431,41 @@ static jlong get_timer(JNIEnv* env, jclass clazz) {
     return (jlong) get_cpu_clock();
 }
 
+static jint set_thread_affinity(JNIEnv* env, jclass clazz, jint cpu) {
+    cpu_set_t set;
+
+    CPU_ZERO(&set);
+    CPU_SET(cpu, &set);
+    if (sched_setaffinity(0, sizeof(set), &set) < 0) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jintArray get_thread_affinity(JNIEnv* env, jclass clazz) {
+    cpu_set_t set;
+    jint cpus[CPU_SETSIZE];
+    jint count = 0;
+    int i;
+
+    CPU_ZERO(&set);
+    if (sched_getaffinity(0, sizeof(set), &set) < 0) {
+        throwRuntimeExceptionErrorNo(env, "Failed to call sched_getaffinity; ", errno);
+        return NULL;
+    }
+    for (i = 0; i < CPU_SETSIZE; i++) {
+        if (CPU_ISSET(i, &set)) {
+            cpus[count++] = i;
+        }
+    }
+    jintArray result = (*env)->NewIntArray(env, count);
+    if (result == NULL) {
+        return NULL;
+    }
+    (*env)->SetIntArrayRegion(env, result, 0, count, cpus);
+    return result;
+}
+
 static JNINativeMethod method_table[] = {
     {"getStringPointer", "(Ljava/lang/String;)J", (void *) get_string_ptr},
     {"releaseString", "(Ljava/lang/String;J)V", (void *) release_string},
@@ -424,6 +475,7 @@ static JNINativeMethod method_table[] = {
     {"eventFdWrite", "(IJ)I", (void *) jasyncfio_event_fd_write},
     {"setupIoUring0", "(IIIIII)[[J", (void *) java_io_uring_setup_iouring},
     {"ioUringEnter0", "(IIII)I", (void *) asyncfio_io_uring_enter},
+    {"ioUringEnterExtArg0", "(IIIIJ)I", (void *) asyncfio_io_uring_enter_ext_arg},
     {"kernelVersion", "()Ljava/lang/String;", (void *) get_kernel_version},
     {"decodeErrno", "(I)Ljava/lang/String;", (void *) decode_errno},
     {"getFileSize", "(I)J", (void *) get_file_size},
@@ -434,6 +486,8 @@ static JNINativeMethod method_table[] = {
     {"ioUringBufSize", "()J", (void *) io_uring_buf_size},
     {"ioUringBufRegSize", "()J", (void *) io_uring_buf_reg_size},
     {"getCpuTimer", "()J", (void *) get_timer},
+    {"setThreadAffinity0", "(I)I", (void *) set_thread_affinity},
+    {"getThreadAffinity", "()[I", (void *) get_thread_affinity},
 };
 
 jint jni_iouring_on_load(JNIEnv *env) {
@@ -12,6 +12,11 @@ int sys_io_uring_enter(int fd, unsigned to_submit, unsigned min_complete,
                  _NSIG / 8);
 }
 
+int sys_io_uring_enter2(int fd, unsigned to_submit, unsigned min_complete,
+                        unsigned flags, void *arg, size_t argsz) {
+    return syscall(__NR_io_uring_enter, fd, to_submit, min_complete, flags, arg, argsz);
+}
+
 int sys_io_uring_register(unsigned int fd, unsigned int opcode, void *arg, unsigned int nr_args) {
     return syscall(__NR_io_uring_register, fd, opcode, arg, nr_args);
 }
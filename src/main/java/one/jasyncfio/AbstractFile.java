@@ -1,21 +1,42 @@
 package one.jasyncfio;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 abstract class AbstractFile {
+    private static final AtomicInteger nextCacheId = new AtomicInteger();
+    // ids of closed files whose blocks were dropped from every cache, taken before new ones
+    private static final ConcurrentLinkedQueue<Integer> freeCacheIds = new ConcurrentLinkedQueue<>();
+
     private final String path;
     private final long pathAddress;
     private final int fd;
     private final PollableStatus pollableStatus;
     private final EventExecutor executor;
+    private final int fileSlot;
+    private volatile ReadMerger readMerger;
+    private volatile SingleFlight singleFlight;
+    private volatile Readahead readahead;
+    private final SyncGroup syncGroup;
+    // identifies the file in a BlockCache, file descriptors are reused; -1 until the file is cached, guarded by this
+    private int cacheId = -1;
+    // caches holding blocks of the file, the blocks are dropped when the file is closed; guarded by this
+    private List<BlockCache> caches;
 
-    AbstractFile(String path, long pathAddress, int fd, PollableStatus pollableStatus, EventExecutor executor) {
+    AbstractFile(String path, long pathAddress, int fd, int fileSlot, PollableStatus pollableStatus, EventExecutor executor) {
         this.path = path;
         this.pathAddress = pathAddress;
         this.fd = fd;
+        this.fileSlot = fileSlot;
         this.pollableStatus = pollableStatus;
         this.executor = executor;
+        this.syncGroup = new SyncGroup(executor);
     }
 
     /**
@@ -49,18 +70,14 @@ abstract class AbstractFile {
     public CompletableFuture<Integer> read(ByteBuffer[] buffers, long position, int length) {
         IovecArray iovecArray = new IovecArray(buffers);
         return executor.executeCommand(
-                Command.readVectored(
+                fixed(Command.readVectored(
                         fd,
                         position,
                         iovecArray.getIovecArrayAddress(),
                         length,
                         executor,
-                        IntegerAsyncResultProvider.newInstance()
-                )).whenComplete((bytesRead, ex) -> {
-            if (bytesRead != null) {
-                iovecArray.updatePositions(bytesRead);
-            }
-        });
+                        IntegerAsyncResultProvider.newInstance(executor).iovecArray(iovecArray)
+                )));
     }
 
     /**
@@ -107,18 +124,14 @@ abstract class AbstractFile {
     public CompletableFuture<Integer> write(ByteBuffer[] buffers, long position, int length) {
         IovecArray iovecArray = new IovecArray(buffers);
         return executor.executeCommand(
-                Command.writeVectored(
+                fixed(Command.writeVectored(
                         fd,
                         position,
                         iovecArray.getIovecArrayAddress(),
                         length,
                         executor,
-                        IntegerAsyncResultProvider.newInstance()
-                )).whenComplete((res, ex) -> {
-            if (res != null) {
-                iovecArray.updatePositions(res);
-            }
-        });
+                        IntegerAsyncResultProvider.newInstance(executor).iovecArray(iovecArray)
+                )));
     }
 
     /**
@@ -133,7 +146,7 @@ abstract class AbstractFile {
                         pathAddress,
                         statxBuf,
                         executor,
-                        IntegerAsyncResultProvider.newInstance()
+                        IntegerAsyncResultProvider.newInstance(executor)
                 )).thenApply((res) -> {
             long size = StatxUtils.getSize(statxBuf);
             MemoryUtils.freeMemory(statxBuf);
@@ -144,15 +157,13 @@ abstract class AbstractFile {
     /**
      * Issues fdatasync for the underlying file, instructing the OS to flush all writes to the device,
      * providing durability even if the system crashes or is rebooted.
+     * <p>
+     * Syncs of the file are group committed: while a sync is in the kernel, the syncs called meanwhile
+     * wait for it and then share a single next one, which covers all writes completed before any of them
+     * was called.
      */
     public CompletableFuture<Integer> dataSync() {
-        return executor.executeCommand(
-                Command.dataSync(
-                        fd,
-                        executor,
-                        IntegerAsyncResultProvider.newInstance()
-                )
-        );
+        return executor.executeCommand(dataSyncCommand().syncGroup(syncGroup));
     }
 
     /**
@@ -213,6 +224,30 @@ abstract class AbstractFile {
      * @return the number of bytes read
      */
     public CompletableFuture<Integer> read(ByteBuffer buffer, long position, int length) {
+        return read(buffer, position, length, 0);
+    }
+
+    /**
+     * Works in the same manner as {@link AbstractFile#read(ByteBuffer, long, int)}, but the read is cancelled
+     * by the kernel if it does not complete within the given time, the future then fails with {@link TimeoutException}.
+     * The deadline is a linked IORING_OP_LINK_TIMEOUT, so a read stuck on a slow device releases the buffer
+     * and its place in the queue when the time runs out.
+     *
+     * @param buffer   The buffer into which bytes are to be transferred. Must be allocated with {@link ByteBuffer#allocateDirect(int)}
+     * @param position The file position at which the transfer is to begin; must be non-negative
+     * @param length   The content length; must be non-negative
+     * @param timeout  The time to wait for the read; must be positive
+     * @param unit     The unit of the timeout
+     * @return the number of bytes read
+     */
+    public CompletableFuture<Integer> read(ByteBuffer buffer, long position, int length, long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        return read(buffer, position, length, unit.toNanos(timeout));
+    }
+
+    private CompletableFuture<Integer> read(ByteBuffer buffer, long position, int length, long timeoutNanos) {
         if (buffer.capacity() < length) {
             CompletableFuture<Integer> future = new CompletableFuture<>();
             future.completeExceptionally(new IllegalArgumentException("Buffer capacity less then length"));
@@ -221,21 +256,36 @@ abstract class AbstractFile {
         if (buffer.remaining() == 0) {
             return CompletableFuture.completedFuture(0);
         }
-        final int bufPosition = buffer.position();
-        return executor.executeCommand(
-                Command.read(
-                        fd,
-                        position,
-                        length,
-                        MemoryUtils.getDirectBufferAddress(buffer) + bufPosition,
-                        pollableStatus,
-                        executor,
-                        IntegerAsyncResultProvider.newInstance()
-                )).whenComplete((res, ex) -> {
-            if (res != null && res > 0) {
-                buffer.position(bufPosition + res);
-            }
-        });
+        if (timeoutNanos > 0) {
+            return executor.executeCommand(readCommand(buffer, position, length).timeout(timeoutNanos));
+        }
+        return executor.executeCommand(coalescible(readCommand(buffer, position, length)));
+    }
+
+    /**
+     * Works in the same manner as {@link AbstractFile#read(ByteBuffer, long, int)} if the executor of the file
+     * has capacity, see {@link EventExecutor#hasCapacity()}, otherwise does nothing.
+     *
+     * @return the number of bytes read, or null if the executor is saturated and the read was not started
+     */
+    public CompletableFuture<Integer> tryRead(ByteBuffer buffer, long position, int length) {
+        if (!executor.hasCapacity()) {
+            return null;
+        }
+        return read(buffer, position, length);
+    }
+
+    /**
+     * Works in the same manner as {@link AbstractFile#write(ByteBuffer, long, int)} if the executor of the file
+     * has capacity, see {@link EventExecutor#hasCapacity()}, otherwise does nothing.
+     *
+     * @return the number of bytes written, or null if the executor is saturated and the write was not started
+     */
+    public CompletableFuture<Integer> tryWrite(ByteBuffer buffer, long position, int length) {
+        if (!executor.hasCapacity()) {
+            return null;
+        }
+        return write(buffer, position, length);
     }
 
     /**
@@ -249,25 +299,33 @@ abstract class AbstractFile {
      * @return the number of bytes written
      */
     public CompletableFuture<Integer> write(ByteBuffer buffer, long position, int length) {
+        return write(buffer, position, length, 0);
+    }
+
+    /**
+     * Works in the same manner as {@link AbstractFile#write(ByteBuffer, long, int)}, but the write is cancelled
+     * by the kernel if it does not complete within the given time, the future then fails with {@link TimeoutException}.
+     * A cancelled write may still have been partially performed.
+     *
+     * @param buffer   The buffer from which bytes are to be retrieved
+     * @param position The file position at which the transfer is to begin; must be non-negative
+     * @param length   The content length; must be non-negative
+     * @param timeout  The time to wait for the write; must be positive
+     * @param unit     The unit of the timeout
+     * @return the number of bytes written
+     */
+    public CompletableFuture<Integer> write(ByteBuffer buffer, long position, int length, long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        return write(buffer, position, length, unit.toNanos(timeout));
+    }
+
+    private CompletableFuture<Integer> write(ByteBuffer buffer, long position, int length, long timeoutNanos) {
         if (buffer.remaining() == 0) {
             return CompletableFuture.completedFuture(0);
         }
-        int bufPos = buffer.position();
-        return executor.executeCommand(
-                Command.write(
-                        fd,
-                        position,
-                        length,
-                        MemoryUtils.getDirectBufferAddress(buffer) + bufPos,
-                        pollableStatus,
-                        executor,
-                        IntegerAsyncResultProvider.newInstance()
-                )
-        ).whenComplete((written, ex) -> {
-            if (written != null && written > 0) {
-                buffer.position(bufPos + written);
-            }
-        });
+        return executor.executeCommand(writeCommand(buffer, position, length).timeout(timeoutNanos));
     }
 
     /**
@@ -314,6 +372,136 @@ abstract class AbstractFile {
         return write(buffers, -1);
     }
 
+    /**
+     * Reads a sequence of bytes from this file to the given buffer, starting at the given file position
+     * and read up to length bytes. Works in the same manner as {@link AbstractFile#read(ByteBuffer, long, int)},
+     * except that the result is passed to the handler instead of a future, nothing is allocated on the way.
+     *
+     * @param buffer     The buffer into which bytes are to be transferred. Must be allocated with {@link ByteBuffer#allocateDirect(int)}
+     * @param position   The file position at which the transfer is to begin; must be non-negative
+     * @param length     The content length; must be non-negative
+     * @param attachment The object to attach to the I/O operation; can be null
+     * @param handler    The handler for consuming the result, invoked on the EventLoop thread
+     */
+    public <A> void read(ByteBuffer buffer, long position, int length, A attachment, IoCompletionHandler<? super A> handler) {
+        if (buffer.capacity() < length) {
+            handler.failed(new IllegalArgumentException("Buffer capacity less then length"), attachment);
+            return;
+        }
+        if (buffer.remaining() == 0) {
+            handler.completed(0, attachment);
+            return;
+        }
+        final int bufPosition = buffer.position();
+        executor.executeCommand(
+                fixed(Command.read(
+                        fd,
+                        position,
+                        length,
+                        MemoryUtils.getDirectBufferAddress(buffer) + bufPosition,
+                        pollableStatus,
+                        executor,
+                        HandlerResultProvider.newInstance(executor, attachment, handler).buffer(buffer, bufPosition)
+                )));
+    }
+
+    /**
+     * Reads a sequence of bytes from this file to the given buffer, starting at the given file position,
+     * see {@link AbstractFile#read(ByteBuffer, long, int, Object, IoCompletionHandler)}.
+     */
+    public <A> void read(ByteBuffer buffer, long position, A attachment, IoCompletionHandler<? super A> handler) {
+        read(buffer, position, buffer.limit(), attachment, handler);
+    }
+
+    /**
+     * Reads a sequence of bytes from this file into the buffers of the given iovec array, starting at the given file position.
+     * The positions of the buffers are updated with the number of bytes actually read.
+     * The iovec array can be reused for subsequent operations as long as the buffers are rewound to the state
+     * they had when the array was created.
+     *
+     * @param iovecArray The buffers into which bytes are to be transferred
+     * @param position   The file position at which the transfer is to begin; must be non-negative
+     * @param attachment The object to attach to the I/O operation; can be null
+     * @param handler    The handler for consuming the result, invoked on the EventLoop thread
+     */
+    public <A> void read(IovecArray iovecArray, long position, A attachment, IoCompletionHandler<? super A> handler) {
+        executor.executeCommand(
+                fixed(Command.readVectored(
+                        fd,
+                        position,
+                        iovecArray.getIovecArrayAddress(),
+                        iovecArray.getSize(),
+                        executor,
+                        HandlerResultProvider.newInstance(executor, attachment, handler).iovecArray(iovecArray)
+                )));
+    }
+
+    /**
+     * Writes the data with in the byte buffer the specified length starting at the given file position.
+     * Works in the same manner as {@link AbstractFile#write(ByteBuffer, long, int)},
+     * except that the result is passed to the handler instead of a future, nothing is allocated on the way.
+     *
+     * @param buffer     The buffer from which bytes are to be retrieved. Must be allocated with {@link ByteBuffer#allocateDirect(int)}
+     * @param position   The file position at which the transfer is to begin; must be non-negative
+     * @param length     The content length; must be non-negative
+     * @param attachment The object to attach to the I/O operation; can be null
+     * @param handler    The handler for consuming the result, invoked on the EventLoop thread
+     */
+    public <A> void write(ByteBuffer buffer, long position, int length, A attachment, IoCompletionHandler<? super A> handler) {
+        if (buffer.remaining() == 0) {
+            handler.completed(0, attachment);
+            return;
+        }
+        int bufPos = buffer.position();
+        executor.executeCommand(
+                fixed(Command.write(
+                        fd,
+                        position,
+                        length,
+                        MemoryUtils.getDirectBufferAddress(buffer) + bufPos,
+                        pollableStatus,
+                        executor,
+                        HandlerResultProvider.newInstance(executor, attachment, handler).buffer(buffer, bufPos)
+                )));
+    }
+
+    /**
+     * Writes a sequence of bytes to this file from the given buffer, starting at the given file position,
+     * see {@link AbstractFile#write(ByteBuffer, long, int, Object, IoCompletionHandler)}.
+     */
+    public <A> void write(ByteBuffer buffer, long position, A attachment, IoCompletionHandler<? super A> handler) {
+        write(buffer, position, buffer.limit(), attachment, handler);
+    }
+
+    /**
+     * Writes a sequence of bytes from the buffers of the given iovec array to this file, starting at the given file position,
+     * see {@link AbstractFile#read(IovecArray, long, Object, IoCompletionHandler)}.
+     */
+    public <A> void write(IovecArray iovecArray, long position, A attachment, IoCompletionHandler<? super A> handler) {
+        executor.executeCommand(
+                fixed(Command.writeVectored(
+                        fd,
+                        position,
+                        iovecArray.getIovecArrayAddress(),
+                        iovecArray.getSize(),
+                        executor,
+                        HandlerResultProvider.newInstance(executor, attachment, handler).iovecArray(iovecArray)
+                )));
+    }
+
+    /**
+     * Issues fdatasync for the underlying file, see {@link AbstractFile#dataSync()}.
+     * The result is passed to the handler instead of a future.
+     */
+    public <A> void dataSync(A attachment, IoCompletionHandler<? super A> handler) {
+        executor.executeCommand(
+                fixed(Command.dataSync(
+                        fd,
+                        executor,
+                        HandlerResultProvider.newInstance(executor, attachment, handler)
+                )).syncGroup(syncGroup));
+    }
+
     /**
      * Pre-allocates space in the filesystem to hold a file at least as big as the size argument from specified offset.
      * After a successful call, subsequent writes into the range
@@ -325,14 +513,14 @@ abstract class AbstractFile {
      */
     public CompletableFuture<Integer> preAllocate(long size, long offset) {
         return executor.executeCommand(
-                Command.preAllocate(
+                fixed(Command.preAllocate(
                         fd,
                         size,
                         0,
                         offset,
                         executor,
-                        IntegerAsyncResultProvider.newInstance()
-                )
+                        IntegerAsyncResultProvider.newInstance(executor)
+                ))
         );
     }
 
@@ -348,11 +536,87 @@ abstract class AbstractFile {
                         pathAddress,
                         0,
                         executor,
-                        IntegerAsyncResultProvider.newInstance()
+                        IntegerAsyncResultProvider.newInstance(executor)
                 )
         );
     }
 
+    /**
+     * Reads up to length bytes from this file into the registered buffer, starting at the given file position,
+     * with IORING_OP_READ_FIXED. Works in the same manner as {@link AbstractFile#read(ByteBuffer, long, int)}:
+     * bytes are transferred starting at the buffer position, and the position is advanced by the number of bytes read.
+     *
+     * @param buffer   The buffer leased with {@link EventExecutor#leaseBuffer()} from the executor of this file
+     * @param position The file position at which the transfer is to begin; must be non-negative
+     * @param length   The content length; must be non-negative and no larger than the buffer remaining
+     * @return the number of bytes read
+     */
+    public CompletableFuture<Integer> read(FixedBuffer buffer, long position, int length) {
+        ByteBuffer byteBuffer = buffer.getBuffer();
+        CompletableFuture<Integer> invalid = checkFixedBuffer(buffer, length);
+        if (invalid != null) {
+            return invalid;
+        }
+        final int bufPosition = byteBuffer.position();
+        return executor.executeCommand(
+                fixed(Command.readFixed(
+                        fd,
+                        position,
+                        length,
+                        buffer.getAddress() + bufPosition,
+                        buffer.getIndex(),
+                        pollableStatus,
+                        executor,
+                        IntegerAsyncResultProvider.newInstance(executor).buffer(byteBuffer, bufPosition)
+                )));
+    }
+
+    /**
+     * Reads the remaining bytes of the registered buffer from this file, starting at the given file position,
+     * see {@link AbstractFile#read(FixedBuffer, long, int)}.
+     */
+    public CompletableFuture<Integer> read(FixedBuffer buffer, long position) {
+        return read(buffer, position, buffer.getBuffer().remaining());
+    }
+
+    /**
+     * Writes length bytes of the registered buffer to this file, starting at the given file position,
+     * with IORING_OP_WRITE_FIXED. Works in the same manner as {@link AbstractFile#write(ByteBuffer, long, int)}:
+     * bytes are taken starting at the buffer position, and the position is advanced by the number of bytes written.
+     *
+     * @param buffer   The buffer leased with {@link EventExecutor#leaseBuffer()} from the executor of this file
+     * @param position The file position at which the transfer is to begin; must be non-negative
+     * @param length   The content length; must be non-negative and no larger than the buffer remaining
+     * @return the number of bytes written
+     */
+    public CompletableFuture<Integer> write(FixedBuffer buffer, long position, int length) {
+        ByteBuffer byteBuffer = buffer.getBuffer();
+        CompletableFuture<Integer> invalid = checkFixedBuffer(buffer, length);
+        if (invalid != null) {
+            return invalid;
+        }
+        final int bufPosition = byteBuffer.position();
+        return executor.executeCommand(
+                fixed(Command.writeFixed(
+                        fd,
+                        position,
+                        length,
+                        buffer.getAddress() + bufPosition,
+                        buffer.getIndex(),
+                        pollableStatus,
+                        executor,
+                        IntegerAsyncResultProvider.newInstance(executor).buffer(byteBuffer, bufPosition)
+                )));
+    }
+
+    /**
+     * Writes the remaining bytes of the registered buffer to this file, starting at the given file position,
+     * see {@link AbstractFile#write(FixedBuffer, long, int)}.
+     */
+    public CompletableFuture<Integer> write(FixedBuffer buffer, long position) {
+        return write(buffer, position, buffer.getBuffer().remaining());
+    }
+
     /**
      * Reads using ring buffer pool.
      * Can only be used if the file was opened with an EventExecutor that was created with the
@@ -367,36 +631,490 @@ abstract class AbstractFile {
      */
     public CompletableFuture<BufRingResult> readFixedBuffer(long position, short bufRingId) {
         return executor.executeCommand(
-                Command.readProvidedBuf(
+                coalescible(fixed(Command.readProvidedBuf(
                         fd,
                         position,
                         bufRingId,
                         pollableStatus,
                         executor,
-                        BufRingAsyncResultProvider.newInstance()
-                )
+                        BufRingAsyncResultProvider.newInstance(executor)
+                )))
         );
     }
 
+    /**
+     * Reads many scattered ranges of this file at once, for example the blocks of an index probe.
+     * All reads are handed to the EventLoop with a single task and submitted together, see {@link IoBatch},
+     * and share one future instead of a future per read. Each read works in the same manner
+     * as {@link AbstractFile#read(ByteBuffer, long, int)}, so it may be short at the end of the file.
+     *
+     * @param positions The file positions of the reads
+     * @param lengths   The lengths of the reads
+     * @param targets   The buffers into which bytes are to be transferred, one per read
+     * @return the number of bytes read by each read, or the first error if any read failed
+     */
+    public CompletableFuture<int[]> readMany(long[] positions, int[] lengths, ByteBuffer[] targets) {
+        checkReadMany(positions, lengths, targets);
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i].capacity() < lengths[i]) {
+                CompletableFuture<int[]> future = new CompletableFuture<>();
+                future.completeExceptionally(new IllegalArgumentException("Buffer capacity less then length"));
+                return future;
+            }
+        }
+        ReadManyResultProvider.Aggregate<int[]> aggregate = ReadManyResultProvider.Aggregate.bytes(targets.length);
+        Command<?>[] commands = new Command<?>[targets.length];
+        int size = 0;
+        for (int i = 0; i < targets.length; i++) {
+            ByteBuffer buffer = targets[i];
+            if (buffer.remaining() == 0) {
+                aggregate.completed(i, 0);
+                continue;
+            }
+            final int bufPosition = buffer.position();
+            commands[size++] = coalescible(fixed(Command.read(
+                    fd,
+                    positions[i],
+                    lengths[i],
+                    MemoryUtils.getDirectBufferAddress(buffer) + bufPosition,
+                    pollableStatus,
+                    executor,
+                    ReadManyResultProvider.newInstance(executor, aggregate, i).buffer(buffer, bufPosition)
+            )));
+        }
+        if (size > 0) {
+            executor.executeBatch(commands, size);
+        }
+        return aggregate.getFuture();
+    }
+
+    /**
+     * Works in the same manner as {@link AbstractFile#readMany(long[], int[], ByteBuffer[])}, but the result
+     * of every read is passed to the handler as soon as the read completes, with the attachment of the same index.
+     *
+     * @param attachments The objects to attach to the reads, one per read; elements can be null
+     * @param handler     The handler for consuming the results, invoked on the EventLoop thread
+     */
+    public <A> void readMany(long[] positions, int[] lengths, ByteBuffer[] targets, A[] attachments,
+                             IoCompletionHandler<? super A> handler) {
+        checkReadMany(positions, lengths, targets);
+        if (attachments.length != targets.length) {
+            throw new IllegalArgumentException("positions, lengths, targets and attachments must have the same length");
+        }
+        Command<?>[] commands = new Command<?>[targets.length];
+        int size = 0;
+        for (int i = 0; i < targets.length; i++) {
+            ByteBuffer buffer = targets[i];
+            if (buffer.capacity() < lengths[i]) {
+                handler.failed(new IllegalArgumentException("Buffer capacity less then length"), attachments[i]);
+                continue;
+            }
+            if (buffer.remaining() == 0) {
+                handler.completed(0, attachments[i]);
+                continue;
+            }
+            final int bufPosition = buffer.position();
+            commands[size++] = coalescible(fixed(Command.read(
+                    fd,
+                    positions[i],
+                    lengths[i],
+                    MemoryUtils.getDirectBufferAddress(buffer) + bufPosition,
+                    pollableStatus,
+                    executor,
+                    HandlerResultProvider.newInstance(executor, attachments[i], handler).buffer(buffer, bufPosition)
+            )));
+        }
+        if (size > 0) {
+            executor.executeBatch(commands, size);
+        }
+    }
+
+    /**
+     * Reads many scattered ranges of this file into buffers of the buf ring, see
+     * {@link AbstractFile#readFixedBuffer(long, short)} and {@link AbstractFile#readMany(long[], int[], ByteBuffer[])}.
+     * Every returned buffer must be closed, if any read fails the buffers of the other reads are recycled
+     * and the future fails.
+     *
+     * @param positions The file positions of the reads
+     * @param bufRingId The id with which bufRing was registered
+     * @return the buffers in the order of the positions
+     */
+    public CompletableFuture<BufRingResult[]> readManyFixedBuffer(long[] positions, short bufRingId) {
+        ReadManyResultProvider.Aggregate<BufRingResult[]> aggregate = ReadManyResultProvider.Aggregate.buffers(positions.length);
+        if (positions.length == 0) {
+            return aggregate.getFuture();
+        }
+        Command<?>[] commands = new Command<?>[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            commands[i] = coalescible(fixed(Command.readProvidedBuf(
+                    fd,
+                    positions[i],
+                    bufRingId,
+                    pollableStatus,
+                    executor,
+                    ReadManyResultProvider.newInstance(executor, aggregate, i)
+            )));
+        }
+        executor.executeBatch(commands, commands.length);
+        return aggregate.getFuture();
+    }
+
+    /**
+     * Reads the range of this file as a stream of chunks, for streaming a file to a consumer without managing
+     * buffers and demand by hand. Up to prefetch reads of chunkSize bytes are kept in flight, the chunks are
+     * delivered in file order as the subscriber requests them, see {@link ReadStream}. The buffers are page aligned
+     * and reused once the subscriber closes the chunks, at most twice the prefetch of them exist, so a subscriber
+     * that keeps chunks open stops the reads.
+     *
+     * @param from      the file position of the first byte; must be non-negative
+     * @param to        the file position after the last byte, the stream completes earlier at the end of the file;
+     *                  must not be less than from
+     * @param chunkSize the size of a read and of a chunk; must be positive
+     * @param prefetch  the most reads in flight; must be positive
+     */
+    public ReadStream<ReadStream.Chunk> readStream(long from, long to, int chunkSize, int prefetch) {
+        checkStream(from, to, prefetch);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        return new ReadStream.ChunkStream(this, from, to, chunkSize, prefetch);
+    }
+
+    /**
+     * Reads the range of this file as a stream of buf ring buffers, see {@link AbstractFile#readStream(long, long, int, int)}
+     * and {@link AbstractFile#readFixedBuffer(long, short)}. A chunk is a buffer of the ring, the subscriber closes
+     * it to return it to the kernel. The reads fail once the ring has no free buffer, prefetch and the chunks
+     * kept open together must stay below the number of buffers of the ring.
+     *
+     * @param from      the file position of the first byte; must be non-negative
+     * @param to        the file position after the last byte; must not be less than from
+     * @param bufRingId the id with which bufRing was registered
+     * @param prefetch  the most reads in flight; must be positive
+     */
+    public ReadStream<BufRingResult> readStreamFixedBuffer(long from, long to, short bufRingId, int prefetch) {
+        checkStream(from, to, prefetch);
+        int bufferLength = executor.getBufferLength(pollableStatus, bufRingId);
+        return new ReadStream.BufRingStream(this, from, to, bufRingId, bufferLength, prefetch);
+    }
+
+    private static void checkStream(long from, long to, int prefetch) {
+        if (from < 0) {
+            throw new IllegalArgumentException("from must be non-negative");
+        }
+        if (to < from) {
+            throw new IllegalArgumentException("to must not be less than from");
+        }
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch must be positive");
+        }
+    }
+
+    /**
+     * Merges contiguous and overlapping positional reads of this file issued in the same pass of the EventLoop
+     * into a single larger read, the result is copied back to the buffer of every caller. Scans reading neighbouring
+     * blocks from many callers get fewer, larger device requests at the cost of a copy.
+     * <p>
+     * Applies to {@link AbstractFile#read(ByteBuffer, long, int)}, {@link AbstractFile#tryRead(ByteBuffer, long, int)},
+     * readMany and {@link IoBatch#read(AbstractFile, ByteBuffer, long, int)}, not to reads with a timeout,
+     * reads at the current file position or reads of an {@link IoChain}. Cancelling a merged read does not stop it,
+     * its buffer is still written.
+     *
+     * @param maxMergedSize the largest merged read in bytes, 0 disables merging
+     */
+    public void mergeReads(int maxMergedSize) {
+        if (maxMergedSize < 0) {
+            throw new IllegalArgumentException("maxMergedSize must not be negative");
+        }
+        readMerger = maxMergedSize > 0 ? new ReadMerger(executor, maxMergedSize) : null;
+    }
+
+    /**
+     * Lets identical reads of this file share a single read in the kernel. While a positional read is in flight,
+     * reads of the same position and length, or the same position and buf ring, attach to it instead of reading
+     * the same bytes again: they get a copy of its bytes, buf ring reads get read only views of the same buffer,
+     * which returns to the kernel once every view is closed. Meant for hot blocks read by many callers at once.
+     * <p>
+     * Applies to the same reads as {@link AbstractFile#mergeReads(int)} and to
+     * {@link AbstractFile#readFixedBuffer(long, short)}. Reads see the data as of the shared read, a write
+     * of the same range racing with the reads may not be visible to the attached ones.
+     *
+     * @param enabled whether identical reads in flight are shared
+     */
+    public void deduplicateReads(boolean enabled) {
+        singleFlight = enabled ? new SingleFlight(executor) : null;
+    }
+
+    /**
+     * Reads ahead of sequential streams of positional reads of this file. Each read is matched against a few
+     * streams, so several readers scanning different parts of the file are each detected, and once a stream
+     * goes on the next windows of the file are read before they are asked for. Reads of a file opened with
+     * {@link OpenOption#DIRECT} are served from windows read into aligned buffers of the file, which has no
+     * other cache; for other files IORING_OP_FADVISE WILLNEED makes the kernel fill the page cache ahead.
+     * A stream starts one window ahead and goes further while its reads are served from the windows,
+     * up to maxWindows, and less far when windows are passed unused.
+     * <p>
+     * Applies to the same reads as {@link AbstractFile#mergeReads(int)}. Meant for files that are not written
+     * while they are read, like log replay and compaction: a write does not update the windows already read,
+     * O_DIRECT reads served from them may see the old bytes.
+     *
+     * @param windowSize the size of a window in bytes, a multiple of the page size; 0 disables readahead
+     * @param maxWindows the most windows a stream reads ahead; must be positive
+     */
+    public void readahead(int windowSize, int maxWindows) {
+        long pageSize = MemoryUtils.getPageSize();
+        if (windowSize < 0 || windowSize % pageSize != 0) {
+            throw new IllegalArgumentException("windowSize must be a non-negative multiple of " + pageSize);
+        }
+        if (maxWindows <= 0) {
+            throw new IllegalArgumentException("maxWindows must be positive");
+        }
+        if ((long) windowSize * maxWindows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("windowSize * maxWindows must not exceed " + Integer.MAX_VALUE);
+        }
+        Readahead previous = readahead;
+        readahead = windowSize > 0 ? new Readahead(executor, windowSize, maxWindows) : null;
+        if (previous != null) {
+            executor.execute(previous::close);
+        }
+    }
+
+    /**
+     * Lets the read be served by the readahead, shared with identical reads and merged with the neighbouring ones,
+     * see {@link AbstractFile#readahead(int, int)}, {@link AbstractFile#deduplicateReads(boolean)}
+     * and {@link AbstractFile#mergeReads(int)}.
+     */
+    <T> Command<T> coalescible(Command<T> read) {
+        if (read.getOffset() < 0) {
+            return read;
+        }
+        ReadMerger merger = readMerger;
+        SingleFlight singleFlight = this.singleFlight;
+        Readahead readahead = this.readahead;
+        if ((read.getFlags() & Native.IOSQE_BUFFER_SELECT) == 0) {
+            read.merger(merger);
+            read.readahead(readahead);
+        }
+        if (singleFlight != null) {
+            read.singleFlight(singleFlight);
+        }
+        return read;
+    }
+
+    private static void checkReadMany(long[] positions, int[] lengths, ByteBuffer[] targets) {
+        if (positions.length != lengths.length || positions.length != targets.length) {
+            throw new IllegalArgumentException("positions, lengths and targets must have the same length");
+        }
+    }
+
     /**
      * Asynchronously closes this file.
+     * <p>
+     * Operations of the file still in flight are cancelled with IORING_ASYNC_CANCEL_FD first (kernel 5.19+),
+     * their futures fail, requests already handed to the device complete normally.
      */
     public CompletableFuture<Integer> close() {
         MemoryUtils.freeMemory(pathAddress);
+        Readahead readahead = this.readahead;
+        if (readahead != null) {
+            executor.execute(readahead::close);
+        }
+        if (fd >= 0) {
+            executor.cancelAll(fd, false);
+        } else {
+            executor.cancelAll(fileSlot, true);
+        }
+        CompletableFuture<Integer> closed;
+        if (fileSlot >= 0) {
+            closed = closeRegistered();
+        } else {
+            closed = executor.executeCommand(
+                    Command.close(
+                            fd,
+                            executor,
+                            IntegerAsyncResultProvider.newInstance(executor)
+                    )
+            );
+        }
+        // the id of the file can only be reused once no cache holds its blocks
+        return closed.whenComplete((res, ex) -> dropCachedBlocks());
+    }
+
+    private void dropCachedBlocks() {
+        List<BlockCache> caches;
+        int cacheId;
+        synchronized (this) {
+            caches = this.caches;
+            cacheId = this.cacheId;
+            this.caches = null;
+            this.cacheId = -1;
+        }
+        if (caches == null) {
+            return;
+        }
+        for (BlockCache cache : caches) {
+            cache.invalidate(cacheId);
+        }
+        freeCacheIds.add(cacheId);
+    }
+
+    private CompletableFuture<Integer> closeRegistered() {
+        if (fd < 0) {
+            return executor.executeCommand(
+                    Command.closeDirect(
+                            fileSlot,
+                            executor,
+                            IntegerAsyncResultProvider.newInstance(executor)
+                    )
+            ).whenComplete((res, ex) -> {
+                // a failed close means the slot was already empty, it has been released by the successful one
+                if (ex == null) {
+                    executor.registeredFiles.release(fileSlot);
+                }
+            });
+        }
         return executor.executeCommand(
                 Command.close(
                         fd,
                         executor,
-                        IntegerAsyncResultProvider.newInstance()
+                        IntegerAsyncResultProvider.newInstance(executor)
                 )
-        );
+        ).thenCompose((res) -> {
+            // the rings still hold a reference to the file until the slot is cleared
+            return executor.registerFile(fileSlot, -1).thenApply((v) -> {
+                executor.registeredFiles.release(fileSlot);
+                return res;
+            });
+        });
     }
 
     public ByteBuffer allocateAlignedBuffer(int size, int alignment) {
         return MemoryUtils.allocateAlignedByteBuffer(size, alignment);
     }
 
+    /**
+     * Returns the file descriptor, or -1 if the file was opened straight into a registered files slot.
+     */
     int getRawFd() {
         return fd;
     }
+
+    /**
+     * Returns the registered files slot of the file, or -1 if the file is not registered.
+     */
+    int getFileSlot() {
+        return fileSlot;
+    }
+
+    /**
+     * Returns the id of the file in the cache, the cache drops the blocks of the file when the file is closed.
+     *
+     * @throws IllegalStateException if as many files as {@link BlockCache#FILE_ID_BITS} allow have cached blocks
+     */
+    synchronized int cacheIdFor(BlockCache cache) {
+        if (caches == null) {
+            Integer free = freeCacheIds.poll();
+            int id = free != null ? free : nextCacheId.getAndIncrement();
+            if (id >>> BlockCache.FILE_ID_BITS != 0) {
+                throw new IllegalStateException("too many open files with cached blocks");
+            }
+            cacheId = id;
+            caches = new ArrayList<>(1);
+        }
+        if (!caches.contains(cache)) {
+            caches.add(cache);
+        }
+        return cacheId;
+    }
+
+    /**
+     * Returns the id of the file in caches, -1 if none holds its blocks.
+     */
+    synchronized int getCacheId() {
+        return cacheId;
+    }
+
+    Readahead getReadahead() {
+        return readahead;
+    }
+
+    SyncGroup getSyncGroup() {
+        return syncGroup;
+    }
+
+    /**
+     * Reads into memory that is not a ByteBuffer of the caller, a frame of a {@link BlockCache}.
+     */
+    CompletableFuture<Integer> readToAddress(long address, long position, int length) {
+        return executor.executeCommand(fixed(Command.read(
+                fd,
+                position,
+                length,
+                address,
+                pollableStatus,
+                executor,
+                IntegerAsyncResultProvider.newInstance(executor)
+        )));
+    }
+
+    private CompletableFuture<Integer> checkFixedBuffer(FixedBuffer buffer, int length) {
+        if (buffer.getOwner() != executor.registeredBuffers) {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalArgumentException("Buffer is not registered in the executor of the file"));
+            return future;
+        }
+        if (length < 0 || buffer.getBuffer().remaining() < length) {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalArgumentException("Buffer remaining less then length"));
+            return future;
+        }
+        if (length == 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return null;
+    }
+
+    Command<CompletableFuture<Integer>> readCommand(ByteBuffer buffer, long position, int length) {
+        final int bufPosition = buffer.position();
+        return fixed(Command.read(
+                fd,
+                position,
+                length,
+                MemoryUtils.getDirectBufferAddress(buffer) + bufPosition,
+                pollableStatus,
+                executor,
+                IntegerAsyncResultProvider.newInstance(executor).buffer(buffer, bufPosition)
+        ));
+    }
+
+    Command<CompletableFuture<Integer>> writeCommand(ByteBuffer buffer, long position, int length) {
+        final int bufPosition = buffer.position();
+        return fixed(Command.write(
+                fd,
+                position,
+                length,
+                MemoryUtils.getDirectBufferAddress(buffer) + bufPosition,
+                pollableStatus,
+                executor,
+                IntegerAsyncResultProvider.newInstance(executor).buffer(buffer, bufPosition)
+        ));
+    }
+
+    Command<CompletableFuture<Integer>> dataSyncCommand() {
+        return fixed(Command.dataSync(
+                fd,
+                executor,
+                IntegerAsyncResultProvider.newInstance(executor)
+        ));
+    }
+
+    EventExecutor getExecutor() {
+        return executor;
+    }
+
+    private <T> Command<T> fixed(Command<T> command) {
+        if (fileSlot >= 0) {
+            return command.fixedFile(fileSlot);
+        }
+        return command;
+    }
 }
@@ -0,0 +1,56 @@
+package one.jasyncfio;
+
+/**
+ * Keeps an exponentially weighted moving average of the time between two arrivals of work
+ * and spins for twice that time, so a steady stream of requests never pays for a kernel wakeup
+ * while an idle executor falls asleep quickly.
+ */
+class AdaptiveIdleStrategy implements IdleStrategy {
+    private final long minSpinNanos;
+    private final long maxSpinNanos;
+
+    private long avgIdleNanos;
+    private long idleStart = -1;
+
+    AdaptiveIdleStrategy(long minSpinNanos, long maxSpinNanos) {
+        if (minSpinNanos < 0 || maxSpinNanos < minSpinNanos) {
+            throw new IllegalArgumentException("minSpinNanos must be non-negative and not greater than maxSpinNanos");
+        }
+        this.minSpinNanos = minSpinNanos;
+        this.maxSpinNanos = maxSpinNanos;
+        this.avgIdleNanos = minSpinNanos;
+    }
+
+    @Override
+    public Phase idle() {
+        long now = System.nanoTime();
+        if (idleStart == -1) {
+            idleStart = now;
+        }
+        long idle = now - idleStart;
+        long spin = Math.max(minSpinNanos, Math.min(maxSpinNanos, avgIdleNanos << 1));
+        if (idle < spin) {
+            return Phase.SPIN;
+        }
+        if (idle < spin << 1) {
+            return Phase.YIELD;
+        }
+        return Phase.SLEEP;
+    }
+
+    @Override
+    public long parkNanos() {
+        return 0;
+    }
+
+    @Override
+    public void reset() {
+        if (idleStart != -1) {
+            long idle = System.nanoTime() - idleStart;
+            // long sleeps should not blow up the average, everything above the window just means "sleep"
+            idle = Math.min(idle, maxSpinNanos);
+            avgIdleNanos += (idle - avgIdleNanos) >> 3;
+            idleStart = -1;
+        }
+    }
+}
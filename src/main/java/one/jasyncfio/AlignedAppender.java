@@ -0,0 +1,357 @@
+package one.jasyncfio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Write-behind appender for files opened with {@link OpenOption#DIRECT}. Appends of any size are copied into
+ * page aligned buffers, a full buffer is written as one aligned write while the next one fills, so thousands
+ * of small appends become a few large writes, several of them in flight at once.
+ * <p>
+ * {@link AlignedAppender#flush()} writes the partially filled buffer too, padded with zeros to the alignment.
+ * The block the appends stopped in is kept in memory and written again with the next flush, so the tail block
+ * of the file is never read back. Because of the padding the size of the file is the appended length rounded up
+ * to the page size; the appended length is {@link AlignedAppender#getPosition()}, callers that reopen the file
+ * keep it themselves, in a header or by the framing of what they append.
+ * <p>
+ * The appender is thread safe. A failed write fails the appender, the appends and flushes after it fail too,
+ * the file may have a hole at the failed write.
+ */
+public class AlignedAppender {
+    private final AbstractFile file;
+    private final int bufferSize;
+    private final int alignment;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    // appends waiting for a free buffer, in order
+    private final ArrayDeque<PendingAppend> waiting = new ArrayDeque<>();
+    // flushes waiting for the waiting appends
+    private final List<CompletableFuture<Long>> deferredFlushes = new ArrayList<>(0);
+    private final Set<CompletableFuture<Integer>> writes = new HashSet<>();
+    private Block current;
+    private long nextStart;
+    private long position;
+    private Throwable failure;
+    private boolean closed;
+
+    private AlignedAppender(AbstractFile file, int bufferSize, int buffers, int alignment) {
+        this.file = file;
+        this.bufferSize = bufferSize;
+        this.alignment = alignment;
+        for (int i = 0; i < buffers; i++) {
+            free.add(file.allocateAlignedBuffer(bufferSize, alignment));
+        }
+    }
+
+    /**
+     * Creates an appender that appends to the file at the given position. If the position is not aligned,
+     * the block it falls in is read first, so the bytes before the position are written back unchanged.
+     *
+     * @param file       the file, opened with {@link OpenOption#DIRECT} for writing and reading
+     * @param position   the position of the first appended byte, usually the length appended before; must be
+     *                   non-negative and not past the end of the file
+     * @param bufferSize the size of a buffer and of the writes of full buffers, a multiple of the page size
+     * @param buffers    the number of buffers, at least 2: one fills while the others are written
+     * @return the appender, fails if the block at the position can't be read
+     */
+    public static CompletableFuture<AlignedAppender> open(AbstractFile file, long position, int bufferSize, int buffers) {
+        int alignment = (int) MemoryUtils.getPageSize();
+        if (position < 0) {
+            throw new IllegalArgumentException("position must be non-negative");
+        }
+        if (bufferSize <= 0 || bufferSize % alignment != 0) {
+            throw new IllegalArgumentException("bufferSize must be a positive multiple of " + alignment);
+        }
+        if (buffers < 2) {
+            throw new IllegalArgumentException("buffers must be at least 2");
+        }
+        AlignedAppender appender = new AlignedAppender(file, bufferSize, buffers, alignment);
+        long start = position - position % alignment;
+        int tail = (int) (position - start);
+        ByteBuffer buffer = appender.free.poll();
+        if (tail == 0) {
+            appender.start(buffer, start, 0);
+            return CompletableFuture.completedFuture(appender);
+        }
+        ByteBuffer block = buffer.duplicate();
+        block.limit(alignment);
+        return file.read(block, start, alignment).thenApply(read -> {
+            if (read < tail) {
+                throw new IllegalArgumentException("position " + position + " is past the end of the file");
+            }
+            appender.start(buffer, start, tail);
+            return appender;
+        });
+    }
+
+    /**
+     * Appends the remaining bytes of the buffer. The bytes are copied and the buffer position advanced,
+     * usually right away; if every buffer is being written, the append waits for one and the source buffer
+     * must not be touched until the future completes.
+     *
+     * @param src the bytes to append, any buffer
+     * @return the file position of the first appended byte, once the bytes are copied; the bytes are on the file
+     * after a {@link AlignedAppender#flush()} issued after that
+     */
+    public synchronized CompletableFuture<Long> append(ByteBuffer src) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        if (failure != null) {
+            future.completeExceptionally(failure);
+            return future;
+        }
+        if (closed) {
+            future.completeExceptionally(new IllegalStateException("appender is closed"));
+            return future;
+        }
+        long appended = position;
+        position += src.remaining();
+        if (waiting.isEmpty() && copy(src)) {
+            future.complete(appended);
+        } else {
+            waiting.add(new PendingAppend(src, appended, future));
+        }
+        return future;
+    }
+
+    /**
+     * Writes the bytes appended so far, including the partially filled buffer. Appends waiting for a buffer
+     * are written too, the flush starts once they are copied.
+     *
+     * @return the position up to which the file holds the appended bytes, once all writes up to this flush
+     * complete; the bytes are not durable until a {@link AlignedAppender#sync()}
+     */
+    public synchronized CompletableFuture<Long> flush() {
+        if (failure != null) {
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            future.completeExceptionally(failure);
+            return future;
+        }
+        if (!waiting.isEmpty()) {
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            deferredFlushes.add(future);
+            return future;
+        }
+        return flushCopied();
+    }
+
+    /**
+     * Writes the partially filled buffer, called with the lock held and no appends waiting.
+     */
+    private CompletableFuture<Long> flushCopied() {
+        if (current != null && current.buffer.position() > current.flushed) {
+            int end = current.buffer.position();
+            int padded = (end + alignment - 1) / alignment * alignment;
+            for (int i = end; i < padded; i++) {
+                current.buffer.put(i, (byte) 0);
+            }
+            int from = current.flushed;
+            current.flushed = end;
+            submit(current, from, padded);
+        }
+        if (failure != null) {
+            // a write that fails right away is handled before submit returns, it is not among the writes any more
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            future.completeExceptionally(failure);
+            return future;
+        }
+        // with no buffer to fill, every appended byte is in a full buffer being written
+        long flushed = current != null ? current.start + current.buffer.position() : nextStart;
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).handle((v, ex) -> {
+            if (ex != null) {
+                // the flush may complete before the failed write is handled, appends after it must fail too
+                fail(ex);
+                throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+            }
+            return flushed;
+        });
+    }
+
+    /**
+     * Flushes the appended bytes and issues fdatasync, see {@link AbstractFile#dataSync()}.
+     *
+     * @return the position up to which the appended bytes are durable
+     */
+    public CompletableFuture<Long> sync() {
+        return flush().thenCompose(flushed -> file.dataSync().thenApply(res -> flushed));
+    }
+
+    /**
+     * Flushes the appended bytes, the appends after it fail. The file is not closed.
+     *
+     * @return see {@link AlignedAppender#flush()}
+     */
+    public CompletableFuture<Long> close() {
+        synchronized (this) {
+            closed = true;
+        }
+        return flush();
+    }
+
+    /**
+     * Returns the position right after the last appended byte, the appended length of the file.
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    private void start(ByteBuffer buffer, long start, int tail) {
+        nextStart = start;
+        nextBlock(buffer);
+        current.buffer.position(tail);
+        current.flushed = tail;
+        position = start + tail;
+    }
+
+    private void nextBlock(ByteBuffer buffer) {
+        buffer.clear();
+        buffer.limit(bufferSize);
+        current = new Block(buffer, nextStart);
+        nextStart += bufferSize;
+    }
+
+    /**
+     * Copies the source into the buffers, writing each one filled.
+     *
+     * @return false if the buffers ran out before the whole source was copied
+     */
+    private boolean copy(ByteBuffer src) {
+        while (src.hasRemaining()) {
+            if (current == null) {
+                return false;
+            }
+            int length = Math.min(src.remaining(), current.buffer.remaining());
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + length);
+            current.buffer.put(part);
+            src.position(src.position() + length);
+            if (!current.buffer.hasRemaining()) {
+                // a write completing right away is handled before submit returns
+                current.retired = true;
+                submit(current, current.flushed, bufferSize);
+                current = null;
+                ByteBuffer next = free.poll();
+                if (next != null) {
+                    nextBlock(next);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the bytes of the block between the offsets, from the start of the block the first one is in.
+     * Writes of the same block go one after another, the later one holds the newer bytes of their common block.
+     */
+    private void submit(Block block, int from, int to) {
+        int start = from - from % alignment;
+        ByteBuffer slice = block.buffer.duplicate();
+        slice.limit(to);
+        slice.position(start);
+        long filePosition = block.start + start;
+        CompletableFuture<Integer> write = block.lastWrite == null
+                ? write(slice, filePosition)
+                : block.lastWrite.thenCompose(res -> write(slice, filePosition));
+        block.lastWrite = write;
+        writes.add(write);
+        write.whenComplete((res, ex) -> completed(block, write, ex));
+    }
+
+    private CompletableFuture<Integer> write(ByteBuffer slice, long filePosition) {
+        int length = slice.remaining();
+        return file.write(slice, filePosition, length).thenCompose(written -> {
+            if (written == length) {
+                return CompletableFuture.completedFuture(written);
+            }
+            if (written == 0) {
+                throw new CompletionException(new IOException("no bytes written at position " + filePosition));
+            }
+            // the rest of a short write
+            return write(slice, filePosition + written);
+        });
+    }
+
+    private synchronized void completed(Block block, CompletableFuture<Integer> write, Throwable ex) {
+        writes.remove(write);
+        if (ex != null) {
+            fail(ex);
+        }
+        if (block.retired && block.lastWrite == write) {
+            free.add(block.buffer);
+            if (current == null && failure == null) {
+                nextBlock(free.poll());
+                while (!waiting.isEmpty() && copy(waiting.peek().src)) {
+                    PendingAppend append = waiting.poll();
+                    append.future.complete(append.position);
+                }
+                if (waiting.isEmpty() && !deferredFlushes.isEmpty()) {
+                    CompletableFuture<Long> flushed = flushCopied();
+                    for (CompletableFuture<Long> flush : deferredFlushes) {
+                        flushed.whenComplete((res, flushEx) -> {
+                            if (flushEx != null) {
+                                flush.completeExceptionally(flushEx);
+                            } else {
+                                flush.complete(res);
+                            }
+                        });
+                    }
+                    deferredFlushes.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Fails the appender on the first failed write, the waiting appends and flushes and all later calls fail with it.
+     */
+    private synchronized void fail(Throwable ex) {
+        if (failure != null) {
+            return;
+        }
+        failure = ex;
+        for (PendingAppend append : waiting) {
+            append.future.completeExceptionally(ex);
+        }
+        waiting.clear();
+        for (CompletableFuture<Long> flush : deferredFlushes) {
+            flush.completeExceptionally(ex);
+        }
+        deferredFlushes.clear();
+    }
+
+    /**
+     * A buffer and the file range it holds.
+     */
+    private static final class Block {
+        private final ByteBuffer buffer;
+        // aligned file position of the first byte of the buffer
+        private final long start;
+        // bytes of the buffer handed to writes
+        private int flushed;
+        private CompletableFuture<Integer> lastWrite;
+        // full and written, the buffer is reused once the last write completes
+        private boolean retired;
+
+        Block(ByteBuffer buffer, long start) {
+            this.buffer = buffer;
+            this.start = start;
+        }
+    }
+
+    private static final class PendingAppend {
+        private final ByteBuffer src;
+        private final long position;
+        private final CompletableFuture<Long> future;
+
+        PendingAppend(ByteBuffer src, long position, CompletableFuture<Long> future) {
+            this.src = src;
+            this.position = position;
+            this.future = future;
+        }
+    }
+}
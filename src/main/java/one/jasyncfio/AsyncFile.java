@@ -5,8 +5,8 @@ import java.util.concurrent.CompletableFuture;
 
 public class AsyncFile extends AbstractFile {
 
-    private AsyncFile(String path, long pathAddress, int fd, PollableStatus pollableStatus, EventExecutor executor) {
-        super(path, pathAddress, fd, pollableStatus, executor);
+    private AsyncFile(String path, long pathAddress, int fd, int fileSlot, PollableStatus pollableStatus, EventExecutor executor) {
+        super(path, pathAddress, fd, fileSlot, pollableStatus, executor);
     }
 
     public static CompletableFuture<AsyncFile> open(Path path, EventExecutor executor, OpenOption... openOption) {
@@ -30,28 +30,85 @@ public class AsyncFile extends AbstractFile {
     }
 
     public static CompletableFuture<AsyncFile> open(String path, int mode, EventExecutor executor, OpenOption... openOption) {
+        boolean isDirect = false;
+        boolean isRegistered = false;
+        for (int i = 0; i < openOption.length; i++) {
+            if (openOption[i] == OpenOption.DIRECT) {
+                isDirect = true;
+            } else if (openOption[i] == OpenOption.REGISTERED) {
+                isRegistered = true;
+            }
+        }
+        final PollableStatus pollableStatus;
+        if (isDirect) {
+            pollableStatus = PollableStatus.POLLABLE;
+        } else {
+            pollableStatus = PollableStatus.NON_POLLABLE;
+        }
+        if (isRegistered) {
+            return openRegistered(path, mode, executor, pollableStatus, openOption);
+        }
         long patAddress = MemoryUtils.getStringPtr(path);
         return executor.executeCommand(Command.openAt(
                 OpenOption.toFlags(openOption),
                 patAddress,
                 mode,
                 executor,
-                IntegerAsyncResultProvider.newInstance()
-        )).thenApply((res) -> {
-            boolean isDirect = false;
-            for (int i = 0; i < openOption.length; i++) {
-                if (openOption[i] == OpenOption.DIRECT) {
-                    isDirect = true;
-                    break;
-                }
-            }
-            final PollableStatus pollableStatus;
-            if (isDirect) {
-                pollableStatus = PollableStatus.POLLABLE;
-            } else {
-                pollableStatus = PollableStatus.NON_POLLABLE;
+                IntegerAsyncResultProvider.newInstance(executor)
+        )).thenApply((res) -> new AsyncFile(path, patAddress, res, -1, pollableStatus, executor));
+    }
+
+    /**
+     * Opens the file into a free slot of the registered files table. The slot is chosen by the executor
+     * rather than by the kernel with IORING_FILE_INDEX_ALLOC, so the same slot can be filled in every ring of the executor.
+     * An executor with a single ring opens the file straight into the slot, without creating a file descriptor,
+     * an IOPOLL executor opens a regular file descriptor and puts it into the slot of both its rings.
+     */
+    private static CompletableFuture<AsyncFile> openRegistered(
+            String path,
+            int mode,
+            EventExecutor executor,
+            PollableStatus pollableStatus,
+            OpenOption... openOption
+    ) {
+        RegisteredFiles registeredFiles = executor.registeredFiles;
+        if (registeredFiles == null) {
+            CompletableFuture<AsyncFile> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("Registered files are not enabled for the executor"));
+            return future;
+        }
+        int fileSlot = registeredFiles.allocate();
+        if (fileSlot < 0) {
+            CompletableFuture<AsyncFile> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("No free slots in the registered files table"));
+            return future;
+        }
+        long patAddress = MemoryUtils.getStringPtr(path);
+        int flags = OpenOption.toFlags(openOption);
+        final CompletableFuture<AsyncFile> result;
+        if (executor.canOpenDirect()) {
+            result = executor.executeCommand(Command.openAtDirect(
+                    flags,
+                    patAddress,
+                    mode,
+                    fileSlot,
+                    executor,
+                    IntegerAsyncResultProvider.newInstance(executor)
+            )).thenApply((res) -> new AsyncFile(path, patAddress, -1, fileSlot, pollableStatus, executor));
+        } else {
+            result = executor.executeCommand(Command.openAt(
+                    flags,
+                    patAddress,
+                    mode,
+                    executor,
+                    IntegerAsyncResultProvider.newInstance(executor)
+            )).thenCompose((fd) -> executor.registerFile(fileSlot, fd)
+                    .thenApply((v) -> new AsyncFile(path, patAddress, fd, fileSlot, pollableStatus, executor)));
+        }
+        return result.whenComplete((file, ex) -> {
+            if (ex != null) {
+                registeredFiles.release(fileSlot);
             }
-            return new AsyncFile(path, patAddress, res, pollableStatus, executor);
         });
     }
 }
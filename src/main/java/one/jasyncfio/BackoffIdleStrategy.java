@@ -0,0 +1,68 @@
+package one.jasyncfio;
+
+class BackoffIdleStrategy implements IdleStrategy {
+    private final int maxSpins;
+    private final int maxYields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    private Phase phase = Phase.SPIN;
+    private int spins;
+    private int yields;
+    private long parkNanos;
+
+    BackoffIdleStrategy(int maxSpins, int maxYields, long minParkNanos, long maxParkNanos) {
+        if (maxSpins < 0 || maxYields < 0) {
+            throw new IllegalArgumentException("maxSpins and maxYields must be non-negative");
+        }
+        if (minParkNanos <= 0 || maxParkNanos < minParkNanos) {
+            throw new IllegalArgumentException("minParkNanos must be positive and not greater than maxParkNanos");
+        }
+        this.maxSpins = maxSpins;
+        this.maxYields = maxYields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public Phase idle() {
+        switch (phase) {
+            case SPIN:
+                if (++spins > maxSpins) {
+                    phase = Phase.YIELD;
+                    return idle();
+                }
+                return Phase.SPIN;
+            case YIELD:
+                if (++yields > maxYields) {
+                    phase = Phase.PARK;
+                }
+                return Phase.YIELD;
+            case PARK:
+                if (parkNanos == 0) {
+                    parkNanos = minParkNanos;
+                } else if (parkNanos >= maxParkNanos) {
+                    reset();
+                    return Phase.SLEEP;
+                } else {
+                    parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+                }
+                return Phase.PARK;
+            default:
+                throw new IllegalStateException("Unexpected phase: " + phase);
+        }
+    }
+
+    @Override
+    public long parkNanos() {
+        return parkNanos;
+    }
+
+    @Override
+    public void reset() {
+        phase = Phase.SPIN;
+        spins = 0;
+        yields = 0;
+        parkNanos = 0;
+    }
+}
@@ -0,0 +1,459 @@
+package one.jasyncfio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of file blocks in off-heap memory, meant for files opened with {@link OpenOption#DIRECT}, which bypass
+ * the page cache of the kernel. Blocks are read straight into their frame of the cache and read in place
+ * through {@link CachedBlock} leases, the bytes are never copied.
+ * <p>
+ * The frames are page aligned slices of one arena allocated at creation. The block table is split into stripes
+ * with a lock each, so lookups of different blocks rarely contend, a miss takes the lock of the cache
+ * to find a frame. Frames are reclaimed by a CLOCK hand filtered by TinyLFU: the hand skips recently used blocks
+ * like CLOCK, and a block read more often than the incoming one, as estimated by a {@link FrequencySketch},
+ * is only evicted if none of the next few candidates is colder. A scan of blocks read once therefore evicts
+ * its own blocks rather than the hot ones.
+ * <p>
+ * The cache is thread safe and can be shared by files of any executors. It does not see writes,
+ * a file written after its blocks were cached must be dropped with {@link BlockCache#invalidate(AbstractFile)}.
+ * The blocks of a file are dropped when the file is closed.
+ */
+public class BlockCache {
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+    // candidates the hand compares before it settles for the coldest of them
+    private static final int SAMPLES = 8;
+    private static final int BLOCK_INDEX_BITS = 40;
+    // keys are non-negative, a negative key marks an empty frame
+    static final int FILE_ID_BITS = 63 - BLOCK_INDEX_BITS;
+
+    private final int blockSize;
+    private final ByteBuffer[] chunks;
+    private final Page[] frames;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final FrequencySketch sketch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // guarded by this
+    private final int[] free;
+    private int freeSize;
+    private int hand;
+
+    /**
+     * @param blocks    number of blocks the cache holds
+     * @param blockSize size of a block, power of 2 and at least 512 bytes, the positions of the blocks of a file
+     *                  are multiples of it, so a block is aligned for O_DIRECT
+     */
+    public BlockCache(int blocks, int blockSize) {
+        if (blocks <= 0) {
+            throw new IllegalArgumentException("blocks must be positive");
+        }
+        if (blockSize < 512 || blockSize > MAX_CHUNK_SIZE || Integer.bitCount(blockSize) != 1) {
+            throw new IllegalArgumentException("blockSize must be power of 2 between 512 and " + MAX_CHUNK_SIZE);
+        }
+        this.blockSize = blockSize;
+        this.frames = new Page[blocks];
+        this.free = new int[blocks];
+        // the arena is split into chunks, a ByteBuffer can't be larger than 2 GiB
+        int blocksPerChunk = MAX_CHUNK_SIZE / blockSize;
+        this.chunks = new ByteBuffer[(blocks + blocksPerChunk - 1) / blocksPerChunk];
+        long alignment = Math.max(blockSize, MemoryUtils.getPageSize());
+        for (int c = 0; c < chunks.length; c++) {
+            int chunkBlocks = Math.min(blocksPerChunk, blocks - c * blocksPerChunk);
+            ByteBuffer chunk = MemoryUtils.allocateAlignedByteBuffer(chunkBlocks * blockSize, alignment);
+            long chunkAddress = MemoryUtils.getDirectBufferAddress(chunk);
+            chunks[c] = chunk;
+            for (int i = 0; i < chunkBlocks; i++) {
+                ByteBuffer slice = chunk.duplicate();
+                slice.position(i * blockSize);
+                slice.limit((i + 1) * blockSize);
+                int frame = c * blocksPerChunk + i;
+                frames[frame] = new Page(frame, chunkAddress + (long) i * blockSize, slice.slice().asReadOnlyBuffer());
+            }
+        }
+        for (int i = 0; i < blocks; i++) {
+            free[i] = blocks - 1 - i;
+        }
+        this.freeSize = blocks;
+        int stripeCount = Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() * 4, 2) - 1) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = stripeCount - 1;
+        this.sketch = new FrequencySketch(blocks);
+    }
+
+    /**
+     * Leases the block of the file that contains the position. A block not in the cache is read into a free frame,
+     * readers of a block being read wait for the same read. A block at the end of the file holds only the bytes
+     * up to the end of the file.
+     *
+     * @param file     the file, its executor does the read on a miss
+     * @param position any position of the block; must be non-negative
+     * @return the pinned block, the lease must be closed; fails if the read fails or if every frame is pinned
+     */
+    public CompletableFuture<CachedBlock> read(AbstractFile file, long position) {
+        if (position < 0) {
+            throw new IllegalArgumentException("position must be non-negative");
+        }
+        long blockPosition = position & -blockSize;
+        long key = keyOf(file, blockPosition);
+        sketch.increment(key);
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Page page = stripe.get(key);
+            if (page != null) {
+                hits.increment();
+                return lease(page, page.pin(), blockPosition);
+            }
+        }
+        misses.increment();
+        Page frame;
+        try {
+            frame = allocate(key);
+        } catch (IllegalStateException ex) {
+            CompletableFuture<CachedBlock> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+        CompletableFuture<Integer> loaded;
+        Page started;
+        synchronized (stripe) {
+            started = stripe.get(key);
+            if (started == null) {
+                loaded = frame.load(key);
+                stripe.put(frame);
+            } else {
+                loaded = started.pin();
+            }
+        }
+        if (started != null) {
+            // another reader started the block meanwhile
+            release(frame);
+            return lease(started, loaded, blockPosition);
+        }
+        try {
+            file.readToAddress(frame.address, blockPosition, blockSize).whenComplete((bytes, ex) -> {
+                if (ex == null) {
+                    loaded.complete(bytes);
+                } else {
+                    failed(stripe, frame, loaded, ex);
+                }
+            });
+        } catch (Throwable ex) {
+            failed(stripe, frame, loaded, ex);
+        }
+        return lease(frame, loaded, blockPosition);
+    }
+
+    /**
+     * Leases the block if it is in the cache and has been read, never starts a read.
+     *
+     * @return the pinned block or null, the lease must be closed
+     */
+    public CachedBlock tryRead(AbstractFile file, long position) {
+        if (position < 0) {
+            throw new IllegalArgumentException("position must be non-negative");
+        }
+        long blockPosition = position & -blockSize;
+        long key = keyOf(file, blockPosition);
+        sketch.increment(key);
+        Stripe stripe = stripeOf(key);
+        Page page;
+        CompletableFuture<Integer> loaded;
+        synchronized (stripe) {
+            page = stripe.get(key);
+            if (page == null || !page.loaded.isDone() || page.loaded.isCompletedExceptionally()) {
+                misses.increment();
+                return null;
+            }
+            loaded = page.pin();
+        }
+        hits.increment();
+        return new CachedBlock(this, page, view(page, loaded.join()), blockPosition);
+    }
+
+    /**
+     * Drops all blocks of the file, blocks leased at the moment are dropped when their leases are closed.
+     */
+    public void invalidate(AbstractFile file) {
+        int cacheId = file.getCacheId();
+        if (cacheId >= 0) {
+            invalidate(cacheId);
+        }
+    }
+
+    void invalidate(int cacheId) {
+        long fileKey = (long) cacheId << BLOCK_INDEX_BITS;
+        synchronized (this) {
+            for (Page page : frames) {
+                long key = page.key;
+                if (key >= 0 && (key & -(1L << BLOCK_INDEX_BITS)) == fileKey) {
+                    Stripe stripe = stripeOf(key);
+                    synchronized (stripe) {
+                        if (page.key != key || page.retired) {
+                            continue;
+                        }
+                        stripe.remove(page);
+                        if (page.pins > 0) {
+                            page.retired = true;
+                            continue;
+                        }
+                        page.clear();
+                    }
+                    evictions.increment();
+                    free[freeSize++] = page.frame;
+                }
+            }
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void failed(Stripe stripe, Page frame, CompletableFuture<Integer> loaded, Throwable ex) {
+        synchronized (stripe) {
+            if (!frame.retired) {
+                stripe.remove(frame);
+            }
+            // the readers waiting for the block never get a lease
+            frame.clear();
+        }
+        release(frame);
+        loaded.completeExceptionally(ex);
+    }
+
+    void unpin(Page page) {
+        boolean retired;
+        synchronized (stripeOf(page.key)) {
+            retired = --page.pins == 0 && page.retired;
+            if (retired) {
+                page.clear();
+            }
+        }
+        if (retired) {
+            release(page);
+        }
+    }
+
+    private CompletableFuture<CachedBlock> lease(Page page, CompletableFuture<Integer> loaded, long blockPosition) {
+        return loaded.thenApply(bytes -> new CachedBlock(this, page, view(page, bytes), blockPosition));
+    }
+
+    private static ByteBuffer view(Page page, int bytes) {
+        ByteBuffer view = page.buffer.duplicate();
+        view.limit(bytes);
+        return view;
+    }
+
+    /**
+     * Takes a free frame, or evicts a block.
+     *
+     * @throws IllegalStateException if every frame is pinned
+     */
+    private synchronized Page allocate(long key) {
+        if (freeSize > 0) {
+            return frames[free[--freeSize]];
+        }
+        int incoming = sketch.frequency(key);
+        Page coldest = null;
+        int coldestFrequency = Integer.MAX_VALUE;
+        int sampled = 0;
+        // two full turns, the first one may only clear the reference bits
+        for (int scanned = 0; scanned < 2 * frames.length; scanned++) {
+            Page page = frames[hand];
+            if (++hand == frames.length) {
+                hand = 0;
+            }
+            if (page.referenced) {
+                page.referenced = false;
+                continue;
+            }
+            // unsynchronized hints, checked again under the lock of the stripe
+            long pageKey = page.key;
+            if (pageKey < 0 || page.pins > 0) {
+                continue;
+            }
+            int frequency = sketch.frequency(pageKey);
+            if (frequency <= incoming && evict(page, pageKey)) {
+                return page;
+            }
+            if (frequency < coldestFrequency) {
+                coldest = page;
+                coldestFrequency = frequency;
+            }
+            if (++sampled == SAMPLES) {
+                if (evict(coldest, coldest.key)) {
+                    return coldest;
+                }
+                coldest = null;
+                coldestFrequency = Integer.MAX_VALUE;
+                sampled = 0;
+            }
+        }
+        if (coldest != null && evict(coldest, coldest.key)) {
+            return coldest;
+        }
+        throw new IllegalStateException("all blocks of the cache are pinned");
+    }
+
+    private boolean evict(Page page, long key) {
+        if (key < 0) {
+            return false;
+        }
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            if (page.key != key || page.pins > 0 || page.retired) {
+                return false;
+            }
+            stripe.remove(page);
+            page.clear();
+        }
+        evictions.increment();
+        return true;
+    }
+
+    private synchronized void release(Page page) {
+        free[freeSize++] = page.frame;
+    }
+
+    private long keyOf(AbstractFile file, long blockPosition) {
+        long index = blockPosition / blockSize;
+        if (index >>> BLOCK_INDEX_BITS != 0) {
+            throw new IllegalArgumentException("position is too large");
+        }
+        return ((long) file.cacheIdFor(this) << BLOCK_INDEX_BITS) | index;
+    }
+
+    private Stripe stripeOf(long key) {
+        return stripes[(int) FrequencySketch.spread(key) & stripeMask];
+    }
+
+    /**
+     * A frame of the cache and the block in it. The block fields are guarded by the stripe of the key.
+     */
+    static final class Page {
+        final int frame;
+        final long address;
+        // read only view of the frame
+        final ByteBuffer buffer;
+        long key = -1;
+        int pins;
+        // dropped by invalidate while leased, the frame is freed by the last unpin
+        boolean retired;
+        CompletableFuture<Integer> loaded;
+        volatile boolean referenced;
+
+        Page(int frame, long address, ByteBuffer buffer) {
+            this.frame = frame;
+            this.address = address;
+            this.buffer = buffer;
+        }
+
+        CompletableFuture<Integer> load(long key) {
+            this.key = key;
+            this.pins = 1;
+            this.referenced = false;
+            this.loaded = new CompletableFuture<>();
+            return loaded;
+        }
+
+        CompletableFuture<Integer> pin() {
+            pins++;
+            referenced = true;
+            return loaded;
+        }
+
+        void clear() {
+            key = -1;
+            pins = 0;
+            retired = false;
+            loaded = null;
+        }
+    }
+
+    /**
+     * Open addressing table of the blocks of a stripe, keyed by {@link Page#key}, with linear probing
+     * and backward shift deletion. Guarded by its own monitor.
+     */
+    private static final class Stripe {
+        private Page[] slots = new Page[16];
+        private int size;
+
+        Page get(long key) {
+            int mask = slots.length - 1;
+            for (int i = indexOf(key, mask); ; i = (i + 1) & mask) {
+                Page page = slots[i];
+                if (page == null || page.key == key) {
+                    return page;
+                }
+            }
+        }
+
+        void put(Page page) {
+            if (++size > slots.length / 2) {
+                resize();
+            }
+            insert(slots, page);
+        }
+
+        void remove(Page page) {
+            int mask = slots.length - 1;
+            int i = indexOf(page.key, mask);
+            while (slots[i] != page) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = null;
+            size--;
+            // move the following entries of the run back, so lookups do not stop at the hole
+            for (int j = (i + 1) & mask; slots[j] != null; j = (j + 1) & mask) {
+                int home = indexOf(slots[j].key, mask);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    slots[i] = slots[j];
+                    slots[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        private void resize() {
+            Page[] resized = new Page[slots.length * 2];
+            for (Page page : slots) {
+                if (page != null) {
+                    insert(resized, page);
+                }
+            }
+            slots = resized;
+        }
+
+        private static void insert(Page[] slots, Page page) {
+            int mask = slots.length - 1;
+            int i = indexOf(page.key, mask);
+            while (slots[i] != null) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = page;
+        }
+
+        private static int indexOf(long key, int mask) {
+            return (int) (FrequencySketch.spread(key) >>> 32) & mask;
+        }
+    }
+}
@@ -1,27 +1,11 @@
 package one.jasyncfio;
 
-import cn.danielw.fop.DisruptorObjectPool;
-import cn.danielw.fop.ObjectPool;
-import cn.danielw.fop.PoolConfig;
-import cn.danielw.fop.Poolable;
-
 import java.util.concurrent.CompletableFuture;
 
 class BufRingAsyncResultProvider implements ResultProvider<CompletableFuture<BufRingResult>> {
 
-    private static final BufRingAsyncResultProviderAllocator allocator = new BufRingAsyncResultProviderAllocator();
-
-    private static final PoolConfig poolConfig = new PoolConfig() {
-        {
-            setPartitionSize(100);
-            setMaxSize(50);
-        }
-    };
-
-    private static final ObjectPool<BufRingAsyncResultProvider> pool = new DisruptorObjectPool<>(poolConfig, allocator);
-
-    private Poolable<BufRingAsyncResultProvider> handle;
-    private CompletableFuture<BufRingResult> res = new CompletableFuture<>();
+    private EventExecutor executor;
+    private CompletableFuture<BufRingResult> res;
 
     @Override
     public void onSuccess(int result) {
@@ -31,7 +15,11 @@ class BufRingAsyncResultProvider implements ResultProvider<CompletableFuture<Buf
     @Override
     public void onSuccess(Object object) {
         try {
-            res.complete((BufRingResult) object);
+            BufRingResult result = (BufRingResult) object;
+            if (!res.complete(result)) {
+                // the caller cancelled the read and never sees the buffer, it goes back to the ring
+                result.recycle();
+            }
         } finally {
             release();
         }
@@ -46,6 +34,11 @@ class BufRingAsyncResultProvider implements ResultProvider<CompletableFuture<Buf
         }
     }
 
+    @Override
+    public boolean isCancelled() {
+        return res.isCancelled();
+    }
+
     @Override
     public CompletableFuture<BufRingResult> getInner() {
         return res;
@@ -54,15 +47,16 @@ class BufRingAsyncResultProvider implements ResultProvider<CompletableFuture<Buf
     @Override
     public void release() {
         res = null;
-        handle.close();
+        EventExecutor executor = this.executor;
+        this.executor = null;
+        executor.bufRingResultProviderPool.release(this);
     }
 
 
-    static BufRingAsyncResultProvider newInstance() {
-        Poolable<BufRingAsyncResultProvider> handle = pool.borrowObject();
-        BufRingAsyncResultProvider obj = handle.getObject();
-        obj.handle = handle;
-        obj.res = new CompletableFuture<>();
-        return obj;
+    static BufRingAsyncResultProvider newInstance(EventExecutor executor) {
+        BufRingAsyncResultProvider inst = executor.bufRingResultProviderPool.borrow();
+        inst.executor = executor;
+        inst.res = new CompletableFuture<>();
+        return inst;
     }
 }
@@ -1,6 +1,7 @@
 package one.jasyncfio;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class BufRingResult implements AutoCloseable {
     private ByteBuffer buffer;
@@ -8,6 +9,8 @@ public class BufRingResult implements AutoCloseable {
     private int bufferId;
     private Ring ownerRing;
     private short bufRingId;
+    // readers of a shared buffer still open, null if the buffer is not shared
+    private AtomicInteger references;
 
     BufRingResult(ByteBuffer buffer, int readBytes, int bufferId, Ring ownerRing, short bufRingId) {
         this.buffer = buffer;
@@ -25,6 +28,13 @@ public class BufRingResult implements AutoCloseable {
         return readBytes;
     }
 
+    /**
+     * Drops the bytes read past the given length, the stream reading a range reads its last buffer whole.
+     */
+    void truncate(int readBytes) {
+        this.readBytes = readBytes;
+    }
+
     int getBufferId() {
         return bufferId;
     }
@@ -33,8 +43,27 @@ public class BufRingResult implements AutoCloseable {
         return ownerRing;
     }
 
+    /**
+     * Read only views of the buffer for count readers, the buffer returns to the kernel when all of them are closed.
+     */
+    BufRingResult[] share(int count) {
+        AtomicInteger references = new AtomicInteger(count);
+        BufRingResult[] views = new BufRingResult[count];
+        for (int i = 0; i < count; i++) {
+            views[i] = new BufRingResult(buffer.asReadOnlyBuffer(), readBytes, bufferId, ownerRing, bufRingId);
+            views[i].references = references;
+        }
+        return views;
+    }
+
     @Override
     public void close() throws Exception {
-        ownerRing.recycleBuffer(bufferId, bufRingId);
+        recycle();
+    }
+
+    void recycle() {
+        if (references == null || references.decrementAndGet() == 0) {
+            ownerRing.recycleBuffer(bufferId, bufRingId);
+        }
     }
 }
@@ -0,0 +1,18 @@
+package one.jasyncfio;
+
+class BusySpinIdleStrategy implements IdleStrategy {
+
+    @Override
+    public Phase idle() {
+        return Phase.SPIN;
+    }
+
+    @Override
+    public long parkNanos() {
+        return 0;
+    }
+
+    @Override
+    public void reset() {
+    }
+}
@@ -0,0 +1,50 @@
+package one.jasyncfio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A lease of a block of the {@link BlockCache}. While the lease is open the block stays pinned in its frame,
+ * so the bytes can be read in place, without a copy. The lease must be closed when the bytes are no longer used,
+ * a cache with every frame pinned cannot load new blocks.
+ */
+public class CachedBlock implements AutoCloseable {
+    private final BlockCache cache;
+    private final BlockCache.Page page;
+    private final ByteBuffer buffer;
+    private final long position;
+    private boolean closed;
+
+    CachedBlock(BlockCache cache, BlockCache.Page page, ByteBuffer buffer, long position) {
+        this.cache = cache;
+        this.page = page;
+        this.buffer = buffer;
+        this.position = position;
+    }
+
+    /**
+     * Read only view of the block, from its first byte to the last byte of the file in the block.
+     * The buffer must not be used after the lease is closed.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * The file position of the first byte of the block.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Unpins the block, it can be evicted once all leases of it are closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            throw new IllegalStateException("lease is already closed");
+        }
+        closed = true;
+        cache.unpin(page);
+    }
+}
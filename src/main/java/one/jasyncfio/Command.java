@@ -1,20 +1,6 @@
 package one.jasyncfio;
 
-import cn.danielw.fop.DisruptorObjectPool;
-import cn.danielw.fop.ObjectPool;
-import cn.danielw.fop.PoolConfig;
-import cn.danielw.fop.Poolable;
-
 class Command<T> implements Runnable {
-    private static final CommandAllocator<? extends Command<?>> allocator = new CommandAllocator<>();
-    private static final PoolConfig poolConfig = new PoolConfig() {
-        {
-            setPartitionSize(50);
-            setMinSize(100);
-            setMaxSize(150);
-        }
-    };
-    private static final ObjectPool<? extends Command<?>> pool = new DisruptorObjectPool<>(poolConfig, allocator);
 
     private byte op;
     private int flags;
@@ -25,10 +11,15 @@ class Command<T> implements Runnable {
     private long offset;
     private int bufIndex;
     private int fileIndex;
+    private long timeoutNanos;
+    private int chainLength;
+    private ReadMerger merger;
+    private SingleFlight singleFlight;
+    private Readahead readahead;
+    private SyncGroup syncGroup;
     private T operationResult;
     private EventExecutor executor;
     private PollableStatus pollableStatus;
-    private Poolable<?> handle;
     private ResultProvider<T> resultProvider;
 
 
@@ -68,6 +59,69 @@ class Command<T> implements Runnable {
         return fileIndex;
     }
 
+    /**
+     * Number of commands of the chain this command heads while it waits in the executor overflow queue, 0 otherwise.
+     */
+    int getChainLength() {
+        return chainLength;
+    }
+
+    void setChainLength(int chainLength) {
+        this.chainLength = chainLength;
+    }
+
+    /**
+     * Merger of the file this read may be merged into a larger read by, see {@link AbstractFile#mergeReads(int)}.
+     */
+    ReadMerger getMerger() {
+        return merger;
+    }
+
+    Command<T> merger(ReadMerger merger) {
+        this.merger = merger;
+        return this;
+    }
+
+    /**
+     * Single flight reads of the file this read may attach to, see {@link AbstractFile#deduplicateReads(boolean)}.
+     */
+    SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    Command<T> singleFlight(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+        return this;
+    }
+
+    /**
+     * Readahead of the file that may serve this read, see {@link AbstractFile#readahead(int, int)}.
+     */
+    Readahead getReadahead() {
+        return readahead;
+    }
+
+    Command<T> readahead(Readahead readahead) {
+        this.readahead = readahead;
+        return this;
+    }
+
+    /**
+     * Group commit of the file this sync joins, see {@link AbstractFile#dataSync()}.
+     */
+    SyncGroup getSyncGroup() {
+        return syncGroup;
+    }
+
+    Command<T> syncGroup(SyncGroup syncGroup) {
+        this.syncGroup = syncGroup;
+        return this;
+    }
+
+    long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
     PollableStatus getPollableStatus() {
         return pollableStatus;
     }
@@ -86,8 +140,56 @@ class Command<T> implements Runnable {
 
     @Override
     public void run() {
+        executor.admit(this);
+    }
+
+    void runOn(Ring ring) {
         long opId = executor.scheduleCommand(this);
-        executor.ringFromCommand(this).addOperation(this, opId);
+        scheduled(ring, opId);
+        ring.addOperation(this, opId);
+    }
+
+    /**
+     * Tells the result provider the ring and the user_data of the request that carries the command.
+     */
+    void scheduled(Ring ring, long userData) {
+        resultProvider.onScheduled(ring, userData);
+    }
+
+    boolean isCancelled() {
+        return resultProvider.isCancelled();
+    }
+
+    /**
+     * Addresses the file by its registered files slot instead of the file descriptor.
+     */
+    Command<T> fixedFile(int fileSlot) {
+        fd = fileSlot;
+        flags |= Native.IOSQE_FIXED_FILE;
+        return this;
+    }
+
+    /**
+     * Makes the next command submitted to the ring wait for this one, see {@link IoChain}.
+     *
+     * @param linkFlag IOSQE_IO_LINK or IOSQE_IO_HARDLINK
+     */
+    Command<T> link(int linkFlag) {
+        flags |= linkFlag;
+        return this;
+    }
+
+    /**
+     * Links an IORING_OP_LINK_TIMEOUT to the command, the kernel cancels the command if it is not complete in time.
+     *
+     * @param timeoutNanos timeout, 0 means no timeout
+     */
+    Command<T> timeout(long timeoutNanos) {
+        if (timeoutNanos > 0) {
+            this.timeoutNanos = timeoutNanos;
+            flags |= Native.IOSQE_IO_LINK;
+        }
+        return this;
     }
 
     void complete(Object obj) {
@@ -129,6 +231,30 @@ class Command<T> implements Runnable {
                 resultProvider);
     }
 
+    /**
+     * Posts a completion with the given res and user_data into the completion queue of the target ring.
+     */
+    static <T> Command<T> msgRing(
+            int targetRingFd,
+            int res,
+            long userData,
+            EventExecutor executor,
+            ResultProvider<T> resultProvider
+    ) {
+        return init(Native.IORING_OP_MSG_RING,
+                0,
+                0,
+                targetRingFd,
+                Native.IORING_MSG_DATA,
+                res,
+                userData,
+                0,
+                0,
+                PollableStatus.NON_POLLABLE,
+                executor,
+                resultProvider);
+    }
+
     static <T> Command<T> writeVectored(
             int fd,
             long offset,
@@ -251,6 +377,58 @@ class Command<T> implements Runnable {
         );
     }
 
+    static <T> Command<T> readFixed(
+            int fd,
+            long offset,
+            int length,
+            long bufferAddress,
+            int bufIndex,
+            PollableStatus pollableStatus,
+            EventExecutor executor,
+            ResultProvider<T> resultProvider
+    ) {
+        return init(
+                Native.IORING_OP_READ_FIXED,
+                0,
+                0,
+                fd,
+                bufferAddress,
+                length,
+                offset,
+                bufIndex,
+                0,
+                pollableStatus,
+                executor,
+                resultProvider
+        );
+    }
+
+    static <T> Command<T> writeFixed(
+            int fd,
+            long offset,
+            int length,
+            long bufferAddress,
+            int bufIndex,
+            PollableStatus pollableStatus,
+            EventExecutor executor,
+            ResultProvider<T> resultProvider
+    ) {
+        return init(
+                Native.IORING_OP_WRITE_FIXED,
+                0,
+                0,
+                fd,
+                bufferAddress,
+                length,
+                offset,
+                bufIndex,
+                0,
+                pollableStatus,
+                executor,
+                resultProvider
+        );
+    }
+
     static <T> Command<T> size(
             long pathAddress,
             long statxBuffer,
@@ -296,6 +474,59 @@ class Command<T> implements Runnable {
         );
     }
 
+    /**
+     * Opens the file straight into the registered files slot, no file descriptor is created.
+     * Requires kernel 5.15+
+     */
+    static <T> Command<T> openAtDirect(
+            int openFlags,
+            long pathPtr,
+            int mode,
+            int fileSlot,
+            EventExecutor executor,
+            ResultProvider<T> resultProvider
+    ) {
+        return init(
+                Native.IORING_OP_OPENAT,
+                0,
+                openFlags,
+                -1,
+                pathPtr,
+                mode,
+                0,
+                0,
+                fileSlot + 1,
+                null,
+                executor,
+                resultProvider
+        );
+    }
+
+    /**
+     * Closes the file in the registered files slot.
+     * Requires kernel 5.15+
+     */
+    static <T> Command<T> closeDirect(
+            int fileSlot,
+            EventExecutor executor,
+            ResultProvider<T> resultProvider
+    ) {
+        return init(
+                Native.IORING_OP_CLOSE,
+                0,
+                0,
+                0,
+                0,
+                0,
+                0,
+                0,
+                fileSlot + 1,
+                null,
+                executor,
+                resultProvider
+        );
+    }
+
     static <T> Command<T> close(
             int fd,
             EventExecutor executor,
@@ -388,6 +619,30 @@ class Command<T> implements Runnable {
         );
     }
 
+    static <T> Command<T> fadvise(
+            int fd,
+            long offset,
+            int length,
+            int advice,
+            EventExecutor executor,
+            ResultProvider<T> resultProvider
+    ) {
+        return init(
+                Native.IORING_OP_FADVISE,
+                0,
+                advice,
+                fd,
+                0,
+                length,
+                offset,
+                0,
+                0,
+                null,
+                executor,
+                resultProvider
+        );
+    }
+
     static <T> Command<T> unlink(
             int dirFd,
             long pathAddress,
@@ -425,8 +680,8 @@ class Command<T> implements Runnable {
             EventExecutor executor,
             ResultProvider<T> resultProvider
     ) {
-        Poolable<Command<T>> handle = (Poolable<Command<T>>) pool.borrowObject();
-        Command<T> command = handle.getObject();
+        @SuppressWarnings("unchecked")
+        Command<T> command = (Command<T>) executor.commandPool.borrow();
         command.op = op;
         command.flags = flags;
         command.rwFlags = rwFlags;
@@ -440,11 +695,11 @@ class Command<T> implements Runnable {
         command.pollableStatus = pollableStatus;
         command.resultProvider = resultProvider;
         command.operationResult = resultProvider.getInner();
-        command.handle = handle;
         return command;
     }
 
     void release() {
+        EventExecutor executor = this.executor;
         op = 0;
         flags = 0;
         rwFlags = 0;
@@ -452,13 +707,19 @@ class Command<T> implements Runnable {
         bufferAddress = 0;
         length = 0;
         offset = 0;
+        timeoutNanos = 0;
+        chainLength = 0;
+        merger = null;
+        singleFlight = null;
+        readahead = null;
+        syncGroup = null;
         bufIndex = 0;
         fileIndex = 0;
         operationResult = null;
         resultProvider = null;
-        executor = null;
+        this.executor = null;
         pollableStatus = null;
-        handle.close();
+        executor.commandPool.release(this);
     }
 
     @Override
@@ -0,0 +1,49 @@
+package one.jasyncfio;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Future of a command in the kernel. Cancelling it submits IORING_OP_ASYNC_CANCEL for the command,
+ * so a stuck request releases its buffer and its place in the queue instead of waiting for the device.
+ * <p>
+ * A command that has not reached the ring yet is never submitted. For a command in the kernel the cancellation
+ * is best effort: requests already handed to the device are not interrupted, the buffer must not be reused
+ * until the kernel is done with it.
+ */
+class CommandFuture<T> extends CompletableFuture<T> {
+    private final EventExecutor executor;
+    // written and read only by the EventLoop thread
+    private Ring ring;
+    private long userData;
+
+    CommandFuture(EventExecutor executor) {
+        this.executor = executor;
+    }
+
+    void scheduled(Ring ring, long userData) {
+        this.ring = ring;
+        this.userData = userData;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            try {
+                // commands are executed in order, so the command is admitted when this task runs; a command that
+                // waits in the overflow queue or in a holder such as ReadMerger is dropped instead when it gets to the ring
+                executor.execute(this::cancelInKernel);
+            } catch (RejectedExecutionException ignored) {
+                // the executor is stopping and waits for all commands anyway
+            }
+        }
+        return cancelled;
+    }
+
+    private void cancelInKernel() {
+        if (ring != null) {
+            ring.cancel(userData);
+        }
+    }
+}
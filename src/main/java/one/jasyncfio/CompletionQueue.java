@@ -52,6 +52,10 @@ class CompletionQueue {
         return ringHead != MemoryUtils.getIntVolatile(kTail);
     }
 
+    int readyCount() {
+        return MemoryUtils.getIntVolatile(kTail) - ringHead;
+    }
+
     int processEvents(CompletionCallback callback) {
         int tail = MemoryUtils.getIntVolatile(kTail);
         int i = 0;
@@ -1,19 +1,24 @@
 package one.jasyncfio;
 
 import com.tdunning.math.stats.TDigest;
-import one.jasyncfio.collections.IntObjectHashMap;
-import one.jasyncfio.collections.IntObjectMap;
+import one.jasyncfio.collections.SlotTable;
 import org.jctools.queues.MpscChunkedArrayQueue;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.IntSupplier;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 public abstract class EventExecutor implements AutoCloseable {
 
@@ -52,29 +57,63 @@ public abstract class EventExecutor implements AutoCloseable {
 
         }
     };
-    private final IntSupplier sequencer = new IntSupplier() {
-        private int i = 0;
-
-        @Override
-        public int getAsInt() {
-            return i++;
-        }
-    };
     private final Queue<Runnable> tasks = new MpscChunkedArrayQueue<>(4096, 65536);
     private final long eventFdBuffer = MemoryUtils.allocateMemory(8);
 
-    final long sleepTimeout;
-    final boolean monitoringEnabled;
-    private final Thread t;
-    final IntObjectMap<Command<?>> commands;
+    private final AtomicInteger inFlight = new AtomicInteger();
 
-    long startWork = -1;
+    // executor of the EventLoop thread, used to reach other executors with IORING_OP_MSG_RING
+    private static final ThreadLocal<EventExecutor> currentExecutor = new ThreadLocal<>();
+    private boolean msgRingSupported;
+    LongConsumer messageHandler;
+    // completions the sleeping EventLoop waits for, see Builder#sleepBatching
+    int sleepMinCompletions = 1;
+    long sleepMaxWaitNanos;
 
-    protected EventExecutor(int entries, boolean monitoringEnabled, long sleepTimeout) {
+    private final IdleStrategy idleStrategy;
+    private final TimerWheel timers = new TimerWheel(512, TimeUnit.MILLISECONDS.toNanos(1), System.nanoTime());
+    private final long[] idleTimes = new long[IdleStrategy.Phase.values().length];
+    final boolean monitoringEnabled;
+    final int entries;
+    final int maxInFlight;
+    // commands over the in flight limit, in submission order, accessed only by the EventLoop thread
+    private final ArrayDeque<Command<?>> overflow = new ArrayDeque<>();
+    // mergers holding reads of the current pass, accessed only by the EventLoop thread
+    private final List<ReadMerger> mergers = new ArrayList<>();
+    private final int threadAffinity;
+    private final Thread t;
+    final SlotTable<Command<?>> commands;
+    final RegisteredFiles registeredFiles;
+    final RegisteredBuffers registeredBuffers;
+    final ObjectPool<Command<?>> commandPool;
+    final ObjectPool<IntegerAsyncResultProvider> integerResultProviderPool;
+    final ObjectPool<BufRingAsyncResultProvider> bufRingResultProviderPool;
+    final ObjectPool<HandlerResultProvider> handlerResultProviderPool;
+    final ObjectPool<ReadManyResultProvider> readManyResultProviderPool;
+
+    protected EventExecutor(int entries,
+                            boolean monitoringEnabled,
+                            IdleStrategy idleStrategy,
+                            int threadAffinity,
+                            int registeredFiles,
+                            int registeredBuffers,
+                            int registeredBufferSize,
+                            int maxInFlight) {
         this.monitoringEnabled = monitoringEnabled;
-        this.sleepTimeout = sleepTimeout;
-
-        this.commands = new IntObjectHashMap<>(entries);
+        this.entries = entries;
+        this.maxInFlight = maxInFlight;
+        this.registeredFiles = registeredFiles > 0 ? new RegisteredFiles(registeredFiles) : null;
+        this.registeredBuffers = registeredBuffers > 0 ? new RegisteredBuffers(registeredBuffers, registeredBufferSize) : null;
+        this.idleStrategy = idleStrategy;
+        this.threadAffinity = threadAffinity;
+
+        // in flight commands are bounded by the completion queue size, which is twice the entries by default
+        this.commands = new SlotTable<>(entries * 2);
+        this.commandPool = new ObjectPool<>(Command::new, this, entries * 2);
+        this.integerResultProviderPool = new ObjectPool<>(IntegerAsyncResultProvider::new, this, entries * 2);
+        this.bufRingResultProviderPool = new ObjectPool<>(BufRingAsyncResultProvider::new, this, entries * 2);
+        this.handlerResultProviderPool = new ObjectPool<>(HandlerResultProvider::new, this, entries * 2);
+        this.readManyResultProviderPool = new ObjectPool<>(ReadManyResultProvider::new, this, entries * 2);
         this.t = new Thread(this::run, "EventExecutor");
     }
 
@@ -82,10 +121,54 @@ public abstract class EventExecutor implements AutoCloseable {
         return getLatencies(percentiles, commandExecutionDelays);
     }
 
+    /**
+     * Returns the total time in nanoseconds the EventLoop thread has spent in each idle phase,
+     * indexed by {@link IdleStrategy.Phase#ordinal()}.
+     */
+    public CompletableFuture<long[]> getIdleTimes() {
+        CompletableFuture<long[]> f = new CompletableFuture<>();
+        execute(() -> f.complete(idleTimes.clone()));
+        return f;
+    }
+
+    /**
+     * Returns an estimate of the number of commands that have been handed to this executor
+     * and have not completed yet. The value is published by the event loop thread and may lag behind.
+     */
+    public int getInFlightCount() {
+        return inFlight.get() + tasks.size();
+    }
+
+    /**
+     * Whether a new command would go to the kernel right away rather than wait in the overflow queue,
+     * see {@link EventExecutor.Builder#maxInFlight(int)}. Like {@link EventExecutor#getInFlightCount()} the answer is an estimate.
+     */
+    public boolean hasCapacity() {
+        return getInFlightCount() < maxInFlight;
+    }
+
+    /**
+     * Leases a buffer of the registered buffers arena, see {@link EventExecutor.Builder#registeredBuffers(int, int)}.
+     * The buffer must be returned with {@link FixedBuffer#close()}.
+     *
+     * @throws IllegalStateException if the executor has no registered buffers or all of them are leased
+     */
+    public FixedBuffer leaseBuffer() {
+        if (registeredBuffers == null) {
+            throw new IllegalStateException("registered buffers are not enabled");
+        }
+        FixedBuffer buffer = registeredBuffers.lease();
+        if (buffer == null) {
+            throw new IllegalStateException("no free registered buffers");
+        }
+        return buffer;
+    }
+
     @Override
     public void close() {
-        if (state.getAndSet(STOP) == WAIT) {
-            wakeup(inEventLoop());
+        int prev = state.getAndSet(STOP);
+        if (prev == WAIT) {
+            unpark();
         }
     }
 
@@ -98,17 +181,286 @@ public abstract class EventExecutor implements AutoCloseable {
         return resultHolder;
     }
 
+    /**
+     * Creates a chain of dependent operations on files of this executor, see {@link IoChain}.
+     */
+    public IoChain chain() {
+        return new IoChain(this);
+    }
+
+    /**
+     * Creates a batch of independent operations on files of this executor, see {@link IoBatch}.
+     */
+    public IoBatch batch() {
+        return new IoBatch(this);
+    }
+
+    /**
+     * Hands the commands to the EventLoop with a single task, they are queued before the next io_uring_enter.
+     */
+    void executeBatch(Command<?>[] batch, int size) {
+        if (monitoringEnabled) {
+            for (int i = 0; i < size; i++) {
+                commandsStarts.put(batch[i], Native.getCpuTimer());
+            }
+        }
+        execute(() -> {
+            for (int i = 0; i < size; i++) {
+                admit(batch[i]);
+            }
+        });
+    }
+
+    /**
+     * Queues the commands to the ring back to back, so they are submitted with a single io_uring_enter
+     * and the links between them are not split across submissions.
+     */
+    void executeChain(Command<?>[] chain, int size) {
+        if (monitoringEnabled) {
+            for (int i = 0; i < size; i++) {
+                commandsStarts.put(chain[i], Native.getCpuTimer());
+            }
+        }
+        execute(() -> {
+            if (overflow.isEmpty() && canAdmit(size)) {
+                runChain(chain, size);
+            } else {
+                chain[0].setChainLength(size);
+                for (int i = 0; i < size; i++) {
+                    overflow.add(chain[i]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues the command to its ring, or to the overflow queue if the in flight limit is reached.
+     * Called on the EventLoop thread.
+     */
+    void admit(Command<?> command) {
+        if (command.isCancelled()) {
+            drop(command);
+            return;
+        }
+        Readahead readahead = command.getReadahead();
+        SingleFlight singleFlight = command.getSingleFlight();
+        ReadMerger merger = command.getMerger();
+        SyncGroup syncGroup = command.getSyncGroup();
+        if (syncGroup != null) {
+            syncGroup.add(command);
+        } else if (readahead != null) {
+            readahead.add(command);
+        } else if (singleFlight != null) {
+            singleFlight.add(command);
+        } else if (merger != null) {
+            merger.add(command);
+        } else if (overflow.isEmpty() && canAdmit(1)) {
+            command.runOn(ringFromCommand(command));
+        } else {
+            overflow.add(command);
+        }
+    }
+
+    /**
+     * Remembers the merger that holds reads, to flush it before the next io_uring_enter.
+     */
+    void queueMerger(ReadMerger merger) {
+        mergers.add(merger);
+    }
+
+    private void flushMergers() {
+        for (int i = 0; i < mergers.size(); i++) {
+            mergers.get(i).flush();
+        }
+        mergers.clear();
+    }
+
+    private boolean canAdmit(int count) {
+        int inKernel = inKernel();
+        // a chain longer than the limit still has to go in, alone
+        return inKernel == 0 || inKernel + count <= maxInFlight;
+    }
+
+    private int inKernel() {
+        // the eventfd read is always armed, it is not a user command
+        return Math.max(commands.size() - 1, 0);
+    }
+
+    private void runChain(Command<?>[] chain, int size) {
+        Ring ring = linkRing();
+        ring.submissionQueue.reserve(size);
+        for (int i = 0; i < size; i++) {
+            chain[i].runOn(ring);
+        }
+    }
+
+    private boolean runOverflow() {
+        boolean ran = false;
+        Command<?> head;
+        while ((head = overflow.peek()) != null) {
+            int size = Math.max(head.getChainLength(), 1);
+            if (!canAdmit(size)) {
+                break;
+            }
+            if (size == 1) {
+                overflow.poll();
+                if (head.isCancelled()) {
+                    drop(head);
+                } else {
+                    head.runOn(ringFromCommand(head));
+                }
+            } else if (isChainCancelled(size)) {
+                // the kernel fails the links after a cancelled one, the whole chain is dropped instead
+                for (int i = 0; i < size; i++) {
+                    drop(overflow.poll());
+                }
+            } else {
+                Ring ring = linkRing();
+                ring.submissionQueue.reserve(size);
+                for (int i = 0; i < size; i++) {
+                    overflow.poll().runOn(ring);
+                }
+            }
+            ran = true;
+        }
+        return ran;
+    }
+
+    private boolean isChainCancelled(int size) {
+        Iterator<Command<?>> links = overflow.iterator();
+        for (int i = 0; i < size; i++) {
+            if (links.next().isCancelled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Completes a command cancelled before it reached the ring without submitting it, its buffer is never touched.
+     */
+    void drop(Command<?> command) {
+        if (monitoringEnabled) {
+            commandsStarts.remove(command);
+        }
+        command.error(new CancellationException());
+    }
+
     <T> long scheduleCommand(Command<T> command) {
-        int id = sequencer.getAsInt();
-        commands.put(id, command);
-        return id;
+        return commands.add(command);
     }
 
     boolean hasTasks() {
         return !tasks.isEmpty();
     }
 
-    private void execute(Runnable task) {
+    /**
+     * Cancels all in flight commands of the file in every ring of the executor, see {@link Ring#cancelAll(int, boolean)}.
+     * Commands submitted later from the same thread are not affected.
+     */
+    void cancelAll(int fd, boolean fixedFile) {
+        execute(() -> submitCancelAll(fd, fixedFile));
+    }
+
+    /**
+     * Runs the task on the EventLoop thread, never inline. Posted from the EventLoop thread of another executor,
+     * a sleeping EventLoop is woken up by a completion the other executor posts into its ring with IORING_OP_MSG_RING,
+     * which saves the eventfd write and the re-arm of the eventfd read, otherwise the eventfd is used.
+     */
+    public void post(Runnable task) {
+        addTask(task);
+        wakeup(inEventLoop());
+    }
+
+    /**
+     * Runs the task on the EventLoop thread once the delay has passed. Timers have a resolution of a millisecond,
+     * the task never runs early, but may run up to a millisecond late, or later if the EventLoop is busy.
+     * Tasks not run when the executor is closed are cancelled.
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(new ScheduledTask(task, System.nanoTime() + unit.toNanos(Math.max(delay, 0)), 0));
+    }
+
+    /**
+     * Runs the task on the EventLoop thread after the initial delay and then every period, see
+     * {@link EventExecutor#schedule(Runnable, long, TimeUnit)}. If a run takes longer than the period, the next
+     * one starts late, runs are never concurrent. A task that throws is not run again.
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        return schedule(new ScheduledTask(task, System.nanoTime() + unit.toNanos(Math.max(initialDelay, 0)), unit.toNanos(period)));
+    }
+
+    private ScheduledFuture<?> schedule(ScheduledTask task) {
+        execute(() -> timers.add(task));
+        return task;
+    }
+
+    /**
+     * Longest time the EventLoop can sleep before a timer is due, -1 if there are no timers.
+     */
+    long parkTimeoutNanos() {
+        return timers.nanosToNextTick(System.nanoTime());
+    }
+
+    /**
+     * Delivers the message to the handler of this executor on its EventLoop thread, see {@link Builder#messageHandler(LongConsumer)}.
+     * Sent from the EventLoop thread of another executor, the message is posted straight into the completion queue of
+     * this executor with IORING_OP_MSG_RING, otherwise it goes through the task queue. Messages are not ordered
+     * with tasks.
+     */
+    public void sendMessage(long message) {
+        if (messageHandler == null) {
+            throw new IllegalStateException("message handler is not set");
+        }
+        EventExecutor sender = currentExecutor.get();
+        if (sender != null && sender != this && sender.msgRingSupported) {
+            if (state.get() == STOP) {
+                throw new RejectedExecutionException("Event loop is stopped");
+            }
+            sender.messageRing(this, (int) message, Ring.MESSAGE | (message >>> 32), () -> execute(() -> handleMessage(message)));
+        } else {
+            execute(() -> handleMessage(message));
+        }
+    }
+
+    void handleMessage(long message) {
+        try {
+            messageHandler.accept(message);
+        } catch (Throwable ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Posts a completion into the sleepable ring of the target, called by the EventLoop thread.
+     *
+     * @param fallback runs if the kernel could not post the completion, for example the target ring is closed
+     */
+    private void messageRing(EventExecutor target, int res, long userData, Runnable fallback) {
+        Command<CompletableFuture<Integer>> command = Command.msgRing(
+                target.sleepableRingFd(),
+                res,
+                userData,
+                this,
+                IntegerAsyncResultProvider.newInstance(this)
+        );
+        CompletableFuture<Integer> result = command.getOperationResult();
+        if (monitoringEnabled) {
+            commandsStarts.put(command, Native.getCpuTimer());
+        }
+        // a wakeup must not wait in the overflow queue
+        command.runOn(ringFromCommand(command));
+        result.whenComplete((r, ex) -> {
+            if (ex != null) {
+                fallback.run();
+            }
+        });
+    }
+
+    void execute(Runnable task) {
         boolean inEventLoop = inEventLoop();
         if (inEventLoop) {
             safeExec(task);
@@ -119,9 +471,17 @@ public abstract class EventExecutor implements AutoCloseable {
     }
 
     private void wakeup(boolean inEventLoop) {
+        if (inEventLoop) {
+            return;
+        }
         int localState = state.get();
-        if (!inEventLoop && (localState != AWAKE && state.compareAndSet(WAIT, AWAKE))) {
-            unpark();
+        if (localState == WAIT && state.compareAndSet(WAIT, AWAKE)) {
+            EventExecutor sender = currentExecutor.get();
+            if (sender != null && sender.msgRingSupported) {
+                sender.messageRing(this, 0, Ring.NO_CALLBACK, this::unpark);
+            } else {
+                unpark();
+            }
         }
     }
 
@@ -139,28 +499,65 @@ public abstract class EventExecutor implements AutoCloseable {
         }
     }
 
-    private void drain() {
+    private boolean drain() {
+        boolean worked = false;
         boolean moreWork = true;
         do {
             try {
                 boolean run = runAllTasks();
-                if (run) {
-                    submitIo();
+                if (!timers.isEmpty() && timers.expire(System.nanoTime())) {
+                    run = true;
                 }
+                if (!mergers.isEmpty()) {
+                    flushMergers();
+                }
+                // completion handlers running on the loop may have queued submissions too,
+                // and the poll ring has to be entered to reap its completions
+                submitIo();
+                // completed futures wake up callers checking hasCapacity, publish the count without them first
+                inFlight.lazySet(Math.max(inKernel() - readyCompletions(), 0) + overflow.size());
                 int processed = processAllCompletedTasks();
-                moreWork = processed != 0 || run;
+                if (!overflow.isEmpty() && runOverflow()) {
+                    run = true;
+                }
+                inFlight.lazySet(inKernel() + overflow.size());
+                moreWork = processed != 0 || run || !mergers.isEmpty();
+                worked |= moreWork;
             } catch (Throwable r) {
                 handleLoopException(r);
             }
         } while (moreWork);
+        return worked;
     }
 
-    private void resetSleepTimeout() {
-        startWork = System.nanoTime();
-    }
-
-    private boolean sleepTimeout() {
-        return System.nanoTime() - startWork >= sleepTimeout;
+    private void idle() {
+        IdleStrategy.Phase phase = idleStrategy.idle();
+        long start = System.nanoTime();
+        switch (phase) {
+            case SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            case PARK:
+            case SLEEP:
+                // a park is a sleep in the kernel with a timeout, so completions end it as well as tasks
+                if (state.compareAndSet(AWAKE, WAIT)) {
+                    try {
+                        if (canSleep()) {
+                            long timeout = parkTimeoutNanos();
+                            if (phase == IdleStrategy.Phase.PARK) {
+                                timeout = timeout < 0 ? idleStrategy.parkNanos() : Math.min(timeout, idleStrategy.parkNanos());
+                            }
+                            submitTasksAndWait(timeout);
+                        }
+                    } finally {
+                        state.compareAndSet(WAIT, AWAKE);
+                    }
+                }
+                break;
+        }
+        idleTimes[phase.ordinal()] += System.nanoTime() - start;
     }
 
     private void handleLoopException(Throwable t) {
@@ -172,7 +569,7 @@ public abstract class EventExecutor implements AutoCloseable {
         }
     }
 
-    private boolean inEventLoop() {
+    boolean inEventLoop() {
         return t == Thread.currentThread();
     }
 
@@ -188,29 +585,37 @@ public abstract class EventExecutor implements AutoCloseable {
         ));
     }
 
+    private void pinThread() {
+        try {
+            Native.setThreadAffinity(threadAffinity);
+        } catch (Throwable ex) {
+            ex.printStackTrace();
+        }
+    }
+
     private void run() {
+        if (threadAffinity >= 0) {
+            pinThread();
+        }
+        currentExecutor.set(this);
+        initRings();
         addEventFdRead();
-        resetSleepTimeout();
         while (true) {
-            try {
-                state.set(WAIT);
-                if (canSleep()) {
-                    if (sleepTimeout()) {
-                        submitTasksAndWait();
-                        resetSleepTimeout();
-                    }
+            if (drain()) {
+                idleStrategy.reset();
+            } else {
+                try {
+                    idle();
+                } catch (Throwable t) {
+                    handleLoopException(t);
                 }
-            } catch (Throwable t) {
-                handleLoopException(t);
-            } finally {
-                state.set(AWAKE);
             }
-            drain();
             if (state.get() == STOP) {
-                while (!canSleep()) {
+                while (!canSleep() || !overflow.isEmpty()) {
                     // make sure we proceed all tasks, submit all submissions and wait all completions
                     drain();
                 }
+                timers.cancelAll();
                 closeRings();
                 break;
             }
@@ -218,6 +623,7 @@ public abstract class EventExecutor implements AutoCloseable {
     }
 
     private void start() {
+        msgRingSupported = new IoUringProbe(sleepableRingFd()).isOpSupported(Native.IORING_OP_MSG_RING);
         t.start();
     }
 
@@ -237,6 +643,27 @@ public abstract class EventExecutor implements AutoCloseable {
         }
     }
 
+    /**
+     * Updates the registered files slot on the EventLoop thread, rings created with IORING_SETUP_SINGLE_ISSUER
+     * reject io_uring_register calls of any other thread.
+     */
+    CompletableFuture<Void> registerFile(int slot, int fd) {
+        if (inEventLoop()) {
+            updateRegisteredFile(slot, fd);
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                updateRegisteredFile(slot, fd);
+                f.complete(null);
+            } catch (Throwable ex) {
+                f.completeExceptionally(ex);
+            }
+        });
+        return f;
+    }
+
     private CompletableFuture<double[]> getLatencies(double[] percentiles, TDigest digest) {
         if (!monitoringEnabled) {
             throw new IllegalStateException("monitoring is not enabled");
@@ -254,21 +681,58 @@ public abstract class EventExecutor implements AutoCloseable {
 
     protected abstract void unpark();
 
+    abstract int sleepableRingFd();
+
+    /**
+     * Puts the file descriptor into the registered files slot of every ring of the executor.
+     */
+    abstract void updateRegisteredFile(int slot, int fd);
+
+    /**
+     * Whether a file can be opened straight into a registered files slot, which is only possible if the
+     * executor has a single ring, the kernel installs the file into the ring that executed the open.
+     */
+    abstract boolean canOpenDirect();
+
     protected abstract <T> Ring ringFromCommand(Command<T> command);
 
+    protected abstract void submitCancelAll(int fd, boolean fixedFile);
+
+    /**
+     * Ring for linked commands, all links of a chain must be in the same ring.
+     */
+    protected abstract Ring linkRing();
+
     protected abstract int getBufferLength(PollableStatus pollableStatus, short bufRingId);
 
     protected abstract boolean canSleep();
 
-    protected abstract void submitTasksAndWait();
+    /**
+     * @param timeoutNanos longest sleep, -1 to sleep until woken up
+     */
+    protected abstract void submitTasksAndWait(long timeoutNanos);
 
     protected abstract void closeRings();
 
     protected abstract int processAllCompletedTasks();
 
+    /**
+     * Number of completions posted by the kernel and not processed yet.
+     */
+    protected abstract int readyCompletions();
+
     protected abstract void submitIo();
 
+    /**
+     * Enables the rings created disabled and registers the ring fds, called by the EventLoop thread before it submits anything.
+     */
+    protected abstract void initRings();
+
     public static class Builder {
+        private static final int DEFER_TASKRUN_FLAGS = Native.IORING_SETUP_SINGLE_ISSUER
+                | Native.IORING_SETUP_DEFER_TASKRUN | Native.IORING_SETUP_TASKRUN_FLAG;
+        private static final int COOP_TASKRUN_FLAGS = Native.IORING_SETUP_COOP_TASKRUN | Native.IORING_SETUP_TASKRUN_FLAG;
+
         private int entries = 4096;
         private boolean ioRingSetupSqPoll = false;
         private int sqThreadIdle = 0;
@@ -279,7 +743,21 @@ public abstract class EventExecutor implements AutoCloseable {
         private boolean ioRingSetupClamp = false;
         private boolean ioRingSetupAttachWq = false;
         private int attachWqRingFd = 0;
-        private long sleepTimeoutMs = 1000;
+        private Supplier<IdleStrategy> idleStrategy = IdleStrategy::backoff;
+        private int threadAffinity = -1;
+        private int registeredFiles = 0;
+        private int registeredBuffers = 0;
+        private int registeredBufferSize = 0;
+        private int maxInFlight = -1;
+        private boolean ioRingSetupSingleIssuer = false;
+        private boolean ioRingSetupDeferTaskrun = false;
+        private boolean ioRingSetupCoopTaskrun = false;
+        private boolean ioRingSetupSubmitAll = false;
+        private boolean defaultSetupFlags = true;
+        private boolean registeredRing = true;
+        private LongConsumer messageHandler;
+        private int sleepMinCompletions = 1;
+        private long sleepMaxWaitNanos = 0;
 
         private final List<BufRingDescriptor> bufRingDescriptors = new ArrayList<>();
         private boolean ioPoll;
@@ -363,6 +841,98 @@ public abstract class EventExecutor implements AutoCloseable {
             return this;
         }
 
+        /**
+         * A hint to the kernel that only a single task will submit requests, which lets it skip internal synchronization.
+         * The rings are created disabled and enabled by the EventLoop thread, which becomes the only submitter.
+         */
+        public Builder ioRingSetupSingleIssuer() {
+            this.ioRingSetupSingleIssuer = true;
+            return this;
+        }
+
+        /**
+         * By default, io_uring processes completion work at the end of any system call or thread interrupt, which
+         * can delay the application from making other progress. With this flag completions are only posted when
+         * the EventLoop thread calls io_uring_enter with IORING_ENTER_GETEVENTS, the EventLoop does it whenever
+         * the kernel reports pending work with IORING_SQ_TASKRUN. Implies {@link Builder#ioRingSetupSingleIssuer()}
+         * and IORING_SETUP_TASKRUN_FLAG, can't be used with {@link Builder#ioRingSetupSqPoll(int)}.
+         */
+        public Builder ioRingSetupDeferTaskrun() {
+            this.ioRingSetupDeferTaskrun = true;
+            return this;
+        }
+
+        /**
+         * Stops the kernel from interrupting the EventLoop thread with an inter-processor interrupt to run
+         * completion work, the work runs the next time the thread enters the kernel. Implies
+         * IORING_SETUP_TASKRUN_FLAG, so the EventLoop knows when it has to enter the kernel to get the completions.
+         */
+        public Builder ioRingSetupCoopTaskrun() {
+            this.ioRingSetupCoopTaskrun = true;
+            return this;
+        }
+
+        /**
+         * Keeps submitting the whole batch if one of its requests fails at submission time,
+         * otherwise the kernel stops at the first failed request.
+         */
+        public Builder ioRingSetupSubmitAll() {
+            this.ioRingSetupSubmitAll = true;
+            return this;
+        }
+
+        /**
+         * Whether to enable IORING_SETUP_SUBMIT_ALL and IORING_SETUP_COOP_TASKRUN if the kernel supports them,
+         * default is true. The flags set explicitly are used either way. IORING_SETUP_DEFER_TASKRUN is not enabled
+         * by default, once the ring is enabled io_uring_register calls of threads other than the EventLoop fail.
+         */
+        public Builder defaultSetupFlags(boolean enabled) {
+            this.defaultSetupFlags = enabled;
+            return this;
+        }
+
+        /**
+         * Whether the EventLoop thread registers the ring fds with IORING_REGISTER_RING_FDS, which saves the kernel
+         * an fd lookup on every io_uring_enter. Default is true, kernels before 5.18 keep using the plain fds.
+         */
+        public Builder registeredRing(boolean enabled) {
+            this.registeredRing = enabled;
+            return this;
+        }
+
+        /**
+         * Handler of the messages sent to the executor with {@link EventExecutor#sendMessage(long)},
+         * called on the EventLoop thread.
+         */
+        public Builder messageHandler(LongConsumer messageHandler) {
+            if (messageHandler == null) {
+                throw new IllegalArgumentException("messageHandler must not be null");
+            }
+            this.messageHandler = messageHandler;
+            return this;
+        }
+
+        /**
+         * Makes the sleeping EventLoop wait for minCompletions completions or maxWait, whichever comes first, instead of
+         * waking up for every completion, which cuts wakeups under moderate load. Since kernel 6.12 the EventLoop keeps
+         * sleeping after maxWait until the first completion, older kernels wake it up every maxWait.
+         * Tasks and wakeups are completions too, they can be delayed by up to maxWait.
+         *
+         * @param minCompletions completions to wait for, greater than 1
+         * @param maxWait        longest wait for minCompletions completions
+         */
+        public Builder sleepBatching(int minCompletions, long maxWait, TimeUnit unit) {
+            if (minCompletions <= 1) {
+                throw new IllegalArgumentException("minCompletions must be greater than 1");
+            }
+            if (maxWait <= 0) {
+                throw new IllegalArgumentException("maxWait must be positive");
+            }
+            this.sleepMinCompletions = minCompletions;
+            this.sleepMaxWaitNanos = unit.toNanos(maxWait);
+            return this;
+        }
+
         /**
          * Setup buf ring with provided parameters. Later if you want to read to thus buf ring you must specify
          * the bufRingId provided for this call
@@ -385,12 +955,28 @@ public abstract class EventExecutor implements AutoCloseable {
         /**
          * The time after which the EventLoop thread will be put to sleep. The higher the value, the higher
          * the CPU consumption, but the lower the latency, the lower the CPU consumption and the higher the latency.
-         * Default value is 1000 milliseconds
+         * Shortcut for {@link IdleStrategy#sleepTimeout(long, TimeUnit)}.
          *
          * @param sleepTimeoutMs sleep timeout in milliseconds
          */
         public Builder sleepTimeout(long sleepTimeoutMs) {
-            this.sleepTimeoutMs = sleepTimeoutMs;
+            if (sleepTimeoutMs < 0) {
+                throw new IllegalArgumentException("sleepTimeoutMs < 0");
+            }
+            this.idleStrategy = () -> IdleStrategy.sleepTimeout(sleepTimeoutMs, TimeUnit.MILLISECONDS);
+            return this;
+        }
+
+        /**
+         * What the EventLoop thread does when there is no work, see {@link IdleStrategy}.
+         * The supplier is called once per executor, strategies keep state and must not be shared.
+         * Default is {@link IdleStrategy#backoff()}.
+         */
+        public Builder idleStrategy(Supplier<IdleStrategy> idleStrategy) {
+            if (idleStrategy == null) {
+                throw new IllegalArgumentException("idleStrategy must not be null");
+            }
+            this.idleStrategy = idleStrategy;
             return this;
         }
 
@@ -412,6 +998,141 @@ public abstract class EventExecutor implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Binds the EventLoop thread to the given cpu.
+         *
+         * @param cpu cpu to bound to
+         */
+        public Builder threadAffinity(int cpu) {
+            if (cpu < 0) {
+                throw new IllegalArgumentException("cpu < 0");
+            }
+            this.threadAffinity = cpu;
+            return this;
+        }
+
+        /**
+         * Registers a sparse table of files of the given size in the rings of the executor.
+         * Files opened with {@link OpenOption#REGISTERED} take a slot of the table and are referenced by its index
+         * in all operations, which saves the kernel from looking up the file descriptor on every submission.
+         *
+         * @param count number of slots
+         */
+        public Builder registeredFiles(int count) {
+            if (count <= 0) {
+                throw new IllegalArgumentException("count must be positive");
+            }
+            this.registeredFiles = count;
+            return this;
+        }
+
+        /**
+         * Allocates a page aligned arena of count buffers of bufferSize bytes each and registers it in the rings
+         * of the executor. Buffers are leased with {@link EventExecutor#leaseBuffer()} and used with
+         * {@link AbstractFile#read(FixedBuffer, long, int)} and {@link AbstractFile#write(FixedBuffer, long, int)},
+         * the kernel does not have to pin and unpin the user pages on every request.
+         * <p>
+         * Before kernel 5.12 registered memory is accounted against RLIMIT_MEMLOCK.
+         *
+         * @param count      number of buffers, at most 16384
+         * @param bufferSize size of every buffer, use a multiple of the page size to keep all buffers page aligned
+         */
+        public Builder registeredBuffers(int count, int bufferSize) {
+            if (count <= 0 || count > 16384) {
+                throw new IllegalArgumentException("count must be positive and at most 16384");
+            }
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("bufferSize must be positive");
+            }
+            if ((long) count * bufferSize > Integer.MAX_VALUE - MemoryUtils.getPageSize()) {
+                throw new IllegalArgumentException("registered buffers arena is too large");
+            }
+            this.registeredBuffers = count;
+            this.registeredBufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Maximum number of commands in the kernel. Commands over the limit wait in a queue of the executor
+         * and are submitted as earlier commands complete, so load spikes are queued instead of overflowing
+         * the rings, use {@link EventExecutor#hasCapacity()} to see if the executor is saturated.
+         * Default is entries, which keeps the completion queue from overflowing even if every command
+         * has a linked timeout.
+         *
+         * @param maxInFlight limit, must be positive
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new IllegalArgumentException("maxInFlight must be positive");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        Builder copy() {
+            Builder copy = new Builder();
+            copy.entries = entries;
+            copy.ioRingSetupSqPoll = ioRingSetupSqPoll;
+            copy.sqThreadIdle = sqThreadIdle;
+            copy.ioRingSetupSqAff = ioRingSetupSqAff;
+            copy.sqThreadCpu = sqThreadCpu;
+            copy.ioRingSetupCqSize = ioRingSetupCqSize;
+            copy.cqSize = cqSize;
+            copy.ioRingSetupClamp = ioRingSetupClamp;
+            copy.ioRingSetupAttachWq = ioRingSetupAttachWq;
+            copy.attachWqRingFd = attachWqRingFd;
+            copy.idleStrategy = idleStrategy;
+            copy.threadAffinity = threadAffinity;
+            copy.registeredFiles = registeredFiles;
+            copy.registeredBuffers = registeredBuffers;
+            copy.registeredBufferSize = registeredBufferSize;
+            copy.maxInFlight = maxInFlight;
+            copy.ioRingSetupSingleIssuer = ioRingSetupSingleIssuer;
+            copy.ioRingSetupDeferTaskrun = ioRingSetupDeferTaskrun;
+            copy.ioRingSetupCoopTaskrun = ioRingSetupCoopTaskrun;
+            copy.ioRingSetupSubmitAll = ioRingSetupSubmitAll;
+            copy.defaultSetupFlags = defaultSetupFlags;
+            copy.registeredRing = registeredRing;
+            copy.messageHandler = messageHandler;
+            copy.sleepMinCompletions = sleepMinCompletions;
+            copy.sleepMaxWaitNanos = sleepMaxWaitNanos;
+            copy.bufRingDescriptors.addAll(bufRingDescriptors);
+            copy.ioPoll = ioPoll;
+            copy.monitoring = monitoring;
+            return copy;
+        }
+
+        boolean isIoRingSetupAttachWq() {
+            return ioRingSetupAttachWq;
+        }
+
+        private int setupFlags() {
+            int flags = 0;
+            if (ioRingSetupSingleIssuer) {
+                flags |= Native.IORING_SETUP_SINGLE_ISSUER;
+            }
+            if (ioRingSetupDeferTaskrun) {
+                flags |= DEFER_TASKRUN_FLAGS;
+            }
+            if (ioRingSetupCoopTaskrun) {
+                flags |= COOP_TASKRUN_FLAGS;
+            }
+            if (ioRingSetupSubmitAll) {
+                flags |= Native.IORING_SETUP_SUBMIT_ALL;
+            }
+            if (defaultSetupFlags) {
+                if (IoUringProbe.isSetupSupported(Native.IORING_SETUP_SUBMIT_ALL)) {
+                    flags |= Native.IORING_SETUP_SUBMIT_ALL;
+                }
+                // with SQPOLL the kernel thread runs the completion work
+                if (!ioRingSetupSqPoll && (flags & Native.IORING_SETUP_TASKRUN_FLAG) == 0
+                        && IoUringProbe.isSetupSupported(COOP_TASKRUN_FLAGS)) {
+                    flags |= COOP_TASKRUN_FLAGS;
+                }
+            }
+            return flags;
+        }
+
         public EventExecutor build() {
             if (entries > 4096 || !isPowerOfTwo(entries)) {
                 throw new IllegalArgumentException("entries must be power of 2 and less than 4096");
@@ -422,6 +1143,10 @@ public abstract class EventExecutor implements AutoCloseable {
             if (ioRingSetupSqAff && !ioRingSetupSqPoll) {
                 throw new IllegalArgumentException("IORING_SETUP_SQ_AFF is only meaningful when IORING_SETUP_SQPOLL is specified");
             }
+            if (ioRingSetupDeferTaskrun && ioRingSetupSqPoll) {
+                throw new IllegalArgumentException("IORING_SETUP_DEFER_TASKRUN can't be used with IORING_SETUP_SQPOLL");
+            }
+            int setupFlags = setupFlags();
 
             final EventExecutor executor;
 
@@ -437,8 +1162,15 @@ public abstract class EventExecutor implements AutoCloseable {
                         ioRingSetupAttachWq,
                         attachWqRingFd,
                         bufRingDescriptors,
-                        sleepTimeoutMs,
-                        monitoring
+                        idleStrategy.get(),
+                        monitoring,
+                        threadAffinity,
+                        registeredFiles,
+                        registeredBuffers,
+                        registeredBufferSize,
+                        maxInFlight == -1 ? entries : maxInFlight,
+                        setupFlags,
+                        registeredRing
                 );
             } else {
                 executor = new EventExecutorImpl(entries,
@@ -452,10 +1184,20 @@ public abstract class EventExecutor implements AutoCloseable {
                         ioRingSetupAttachWq,
                         attachWqRingFd,
                         bufRingDescriptors,
-                        sleepTimeoutMs,
-                        monitoring
+                        idleStrategy.get(),
+                        monitoring,
+                        threadAffinity,
+                        registeredFiles,
+                        registeredBuffers,
+                        registeredBufferSize,
+                        maxInFlight == -1 ? entries : maxInFlight,
+                        setupFlags,
+                        registeredRing
                 );
             }
+            executor.messageHandler = messageHandler;
+            executor.sleepMinCompletions = sleepMinCompletions;
+            executor.sleepMaxWaitNanos = sleepMaxWaitNanos;
             executor.start();
             return executor;
         }
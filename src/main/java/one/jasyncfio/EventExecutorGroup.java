@@ -0,0 +1,169 @@
+package one.jasyncfio;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A set of {@link EventExecutor}s, each with its own thread and ring.
+ * Files opened through the group are bound to one of the executors according to the {@link PlacementStrategy},
+ * so throughput scales with the number of executors instead of being limited by a single event loop.
+ */
+public class EventExecutorGroup implements AutoCloseable {
+    private final List<EventExecutor> executors;
+    private final PlacementStrategy placementStrategy;
+
+    private EventExecutorGroup(List<EventExecutor> executors, PlacementStrategy placementStrategy) {
+        this.executors = Collections.unmodifiableList(executors);
+        this.placementStrategy = placementStrategy;
+    }
+
+    public CompletableFuture<AsyncFile> open(Path path, OpenOption... openOption) {
+        return open(path, 438, openOption);
+    }
+
+    public CompletableFuture<AsyncFile> open(Path path, int mode, OpenOption... openOption) {
+        return open(path.normalize().toAbsolutePath().toString(), mode, openOption);
+    }
+
+    public CompletableFuture<AsyncFile> open(String path, OpenOption... openOption) {
+        return open(path, 438, openOption);
+    }
+
+    public CompletableFuture<AsyncFile> open(String path, int mode, OpenOption... openOption) {
+        return AsyncFile.open(path, mode, executorFor(path), openOption);
+    }
+
+    /**
+     * Returns the executor the given path would be bound to by the group {@link PlacementStrategy}.
+     */
+    public EventExecutor executorFor(String path) {
+        return placementStrategy.select(path, executors);
+    }
+
+    public List<EventExecutor> executors() {
+        return executors;
+    }
+
+    public int size() {
+        return executors.size();
+    }
+
+    @Override
+    public void close() {
+        for (EventExecutor executor : executors) {
+            executor.close();
+        }
+    }
+
+    public static EventExecutorGroup initDefault() {
+        return new Builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int executors = -1;
+        private EventExecutor.Builder executorBuilder = EventExecutor.builder();
+        private boolean threadAffinity = true;
+        private int[] cpus;
+        private boolean shareWorkQueue = true;
+        private PlacementStrategy placementStrategy = PlacementStrategy.roundRobin();
+
+        private Builder() {
+        }
+
+        /**
+         * Number of executors in the group. Default is the number of cpus the current thread is allowed to run on.
+         */
+        public Builder executors(int executors) {
+            if (executors <= 0) {
+                throw new IllegalArgumentException("executors must be positive");
+            }
+            this.executors = executors;
+            return this;
+        }
+
+        /**
+         * Template used to create every executor of the group.
+         */
+        public Builder executorBuilder(EventExecutor.Builder executorBuilder) {
+            this.executorBuilder = executorBuilder;
+            return this;
+        }
+
+        /**
+         * Cpus the executors threads are bound to, executor i is bound to cpus[i % cpus.length].
+         * Default is the set of cpus the current thread is allowed to run on.
+         */
+        public Builder cpus(int... cpus) {
+            if (cpus.length == 0) {
+                throw new IllegalArgumentException("cpus must not be empty");
+            }
+            this.cpus = cpus.clone();
+            this.threadAffinity = true;
+            return this;
+        }
+
+        /**
+         * Do not bind executors threads to cpus.
+         */
+        public Builder noThreadAffinity() {
+            this.threadAffinity = false;
+            return this;
+        }
+
+        /**
+         * Do not share the asynchronous worker thread backend between the rings of the group,
+         * see {@link EventExecutor.Builder#ioRingSetupAttachWq(int)}.
+         */
+        public Builder noSharedWorkQueue() {
+            this.shareWorkQueue = false;
+            return this;
+        }
+
+        /**
+         * Strategy used to bind files to executors when they are opened through the group.
+         * Default is {@link PlacementStrategy#roundRobin()}.
+         */
+        public Builder placementStrategy(PlacementStrategy placementStrategy) {
+            this.placementStrategy = placementStrategy;
+            return this;
+        }
+
+        public EventExecutorGroup build() {
+            int[] cpus = this.cpus;
+            if (threadAffinity && cpus == null) {
+                cpus = Native.getThreadAffinity();
+            }
+            int executors = this.executors;
+            if (executors == -1) {
+                executors = cpus != null ? cpus.length : Runtime.getRuntime().availableProcessors();
+            }
+
+            List<EventExecutor> result = new ArrayList<>(executors);
+            try {
+                for (int i = 0; i < executors; i++) {
+                    EventExecutor.Builder builder = executorBuilder.copy();
+                    if (threadAffinity) {
+                        builder.threadAffinity(cpus[i % cpus.length]);
+                    }
+                    if (shareWorkQueue && i > 0 && !builder.isIoRingSetupAttachWq()) {
+                        builder.ioRingSetupAttachWq(result.get(0).sleepableRingFd());
+                    }
+                    result.add(builder.build());
+                }
+            } catch (Throwable ex) {
+                for (EventExecutor executor : result) {
+                    executor.close();
+                }
+                throw ex;
+            }
+            return new EventExecutorGroup(result, placementStrategy);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 class EventExecutorImpl extends EventExecutor {
 
     private final Ring sleepableRing;
+    private final boolean registeredRing;
 
     protected EventExecutorImpl(
             int entries,
@@ -18,12 +19,24 @@ class EventExecutorImpl extends EventExecutor {
             boolean ioRingSetupAttachWq,
             int attachWqRingFd,
             List<BufRingDescriptor> bufRingDescriptorList,
-            long sleepTimeoutMs,
-            boolean monitoring
+            IdleStrategy idleStrategy,
+            boolean monitoring,
+            int threadAffinity,
+            int registeredFiles,
+            int registeredBuffers,
+            int registeredBufferSize,
+            int maxInFlight,
+            int setupFlags,
+            boolean registeredRing
     ) {
-        super(entries, monitoring, sleepTimeoutMs);
+        super(entries, monitoring, idleStrategy, threadAffinity, registeredFiles, registeredBuffers, registeredBufferSize, maxInFlight);
 
-        int flags = 0;
+        this.registeredRing = registeredRing;
+        int flags = setupFlags;
+        if ((setupFlags & Native.IORING_SETUP_SINGLE_ISSUER) != 0) {
+            // rings are created by the builder thread, the EventLoop thread enables them and becomes the issuer
+            flags |= Native.IORING_SETUP_R_DISABLED;
+        }
         if (ioRingSetupSqPoll) {
             flags |= Native.IORING_SETUP_SQPOLL;
         }
@@ -54,8 +67,26 @@ class EventExecutorImpl extends EventExecutor {
                 commandsStarts,
                 commandExecutionDelays
         );
+        sleepableRing.onMessage(this::handleMessage);
+        if (registeredFiles > 0) {
+            sleepableRing.registerFiles(registeredFiles);
+        }
+        if (this.registeredBuffers != null) {
+            sleepableRing.registerBuffers(this.registeredBuffers);
+        }
+    }
+
+    @Override
+    void updateRegisteredFile(int slot, int fd) {
+        sleepableRing.updateRegisteredFile(slot, fd);
     }
 
+    @Override
+    boolean canOpenDirect() {
+        return true;
+    }
+
+    @Override
     int sleepableRingFd() {
         return sleepableRing.ring.getRingFd();
     }
@@ -70,6 +101,16 @@ class EventExecutorImpl extends EventExecutor {
         return sleepableRing;
     }
 
+    @Override
+    protected Ring linkRing() {
+        return sleepableRing;
+    }
+
+    @Override
+    protected void submitCancelAll(int fd, boolean fixedFile) {
+        sleepableRing.cancelAll(fd, fixedFile);
+    }
+
     @Override
     protected int getBufferLength(PollableStatus pollableStatus, short bufRingId) {
         if (!sleepableRing.isBufRingInitialized()) {
@@ -78,14 +119,27 @@ class EventExecutorImpl extends EventExecutor {
         return sleepableRing.getBufferLength(bufRingId);
     }
 
+    @Override
+    protected int readyCompletions() {
+        return sleepableRing.readyCompletions();
+    }
+
     @Override
     protected int processAllCompletedTasks() {
         return sleepableRing.processCompletedTasks();
     }
 
+    @Override
+    protected void initRings() {
+        sleepableRing.enable();
+        if (registeredRing) {
+            sleepableRing.registerRingFd();
+        }
+    }
+
     @Override
     protected void submitIo() {
-        if (sleepableRing.hasPending()) {
+        if (sleepableRing.hasPending() || sleepableRing.hasTaskRun()) {
             sleepableRing.submitIo();
         }
     }
@@ -104,7 +158,7 @@ class EventExecutorImpl extends EventExecutor {
         return sleepableRing.hasCompletions();
     }
 
-    protected void submitTasksAndWait() {
-        sleepableRing.park();
+    protected void submitTasksAndWait(long timeoutNanos) {
+        sleepableRing.park(sleepMinCompletions, sleepMaxWaitNanos, timeoutNanos);
     }
 }
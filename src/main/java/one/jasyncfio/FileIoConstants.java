@@ -35,4 +35,6 @@ class FileIoConstants {
     static native int spliceFNonblock();
 
     static native int spliceFMore();
+
+    static native int posixFadvWillneed();
 }
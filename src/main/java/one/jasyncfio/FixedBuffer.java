@@ -0,0 +1,56 @@
+package one.jasyncfio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A buffer of the registered buffers arena of an {@link EventExecutor}, see
+ * {@link EventExecutor.Builder#registeredBuffers(int, int)}. The kernel keeps the pages of the arena pinned,
+ * so reads and writes through {@link AbstractFile#read(FixedBuffer, long, int)} and
+ * {@link AbstractFile#write(FixedBuffer, long, int)} skip the per-request page mapping.
+ * <p>
+ * The buffer must be returned with {@link FixedBuffer#close()} when it is no longer used,
+ * and it can only be used with files of the executor it was leased from.
+ */
+public class FixedBuffer implements AutoCloseable {
+    private final RegisteredBuffers owner;
+    private final int index;
+    private final ByteBuffer buffer;
+    private final long address;
+    // guarded by owner
+    boolean leased;
+
+    FixedBuffer(RegisteredBuffers owner, int index, ByteBuffer buffer, long address) {
+        this.owner = owner;
+        this.index = index;
+        this.buffer = buffer;
+        this.address = address;
+    }
+
+    /**
+     * The memory of the buffer, operations transfer bytes starting at its position.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    long getAddress() {
+        return address;
+    }
+
+    RegisteredBuffers getOwner() {
+        return owner;
+    }
+
+    /**
+     * Clears the buffer and returns it to the arena.
+     */
+    @Override
+    public void close() {
+        buffer.clear();
+        owner.release(this);
+    }
+}
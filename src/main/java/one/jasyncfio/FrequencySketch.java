@@ -0,0 +1,83 @@
+package one.jasyncfio;
+
+/**
+ * Count-min sketch of 4 bit counters estimating how often keys of the {@link BlockCache} are accessed,
+ * the frequency filter of TinyLFU. All counters are halved once the number of recorded accesses reaches ten times
+ * the number of pages, so the sketch forgets old popularity.
+ * <p>
+ * Counters are updated without synchronization, a lost update makes an estimate slightly lower, which is fine
+ * for deciding what to evict.
+ */
+class FrequencySketch {
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    // 16 counters of 4 bits per long
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * Math.max(capacity, 16);
+    }
+
+    void increment(long key) {
+        long hash = spread(key);
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), counterOf(hash, i));
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * @return estimated number of accesses of the key, 0 to 15
+     */
+    int frequency(long key) {
+        long hash = spread(key);
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            int shift = counterOf(hash, i) << 2;
+            frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> shift) & 0xF));
+        }
+        return frequency;
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int shift = counter << 2;
+        long mask = 0xFL << shift;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << shift;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int indexOf(long hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        return (int) (h >>> 32) & tableMask;
+    }
+
+    private static int counterOf(long hash, int i) {
+        return (int) (hash >>> (i << 3)) & 0xF;
+    }
+
+    static long spread(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+}
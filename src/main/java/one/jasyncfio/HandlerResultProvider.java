@@ -0,0 +1,99 @@
+package one.jasyncfio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Delivers the result straight to an {@link IoCompletionHandler}, the provider returns to the pool before
+ * the handler is invoked, so the handler can submit the next operation without growing the pool.
+ */
+class HandlerResultProvider implements ResultProvider<Void> {
+    private EventExecutor executor;
+    private IoCompletionHandler<Object> handler;
+    private Object attachment;
+    private ByteBuffer buffer;
+    private int bufferPosition;
+    private IovecArray iovecArray;
+
+    @SuppressWarnings("unchecked")
+    static <A> HandlerResultProvider newInstance(
+            EventExecutor executor,
+            A attachment,
+            IoCompletionHandler<? super A> handler
+    ) {
+        HandlerResultProvider inst = executor.handlerResultProviderPool.borrow();
+        inst.executor = executor;
+        inst.handler = (IoCompletionHandler<Object>) handler;
+        inst.attachment = attachment;
+        return inst;
+    }
+
+    /**
+     * The buffer position will be advanced by the number of bytes transferred.
+     */
+    HandlerResultProvider buffer(ByteBuffer buffer, int bufferPosition) {
+        this.buffer = buffer;
+        this.bufferPosition = bufferPosition;
+        return this;
+    }
+
+    /**
+     * The buffers positions will be advanced by the number of bytes transferred.
+     */
+    HandlerResultProvider iovecArray(IovecArray iovecArray) {
+        this.iovecArray = iovecArray;
+        return this;
+    }
+
+    @Override
+    public void onSuccess(int result) {
+        if (result > 0) {
+            if (buffer != null) {
+                buffer.position(bufferPosition + result);
+            } else if (iovecArray != null) {
+                iovecArray.updatePositions(result);
+            }
+        }
+        IoCompletionHandler<Object> handler = this.handler;
+        Object attachment = this.attachment;
+        release();
+        try {
+            handler.completed(result, attachment);
+        } catch (Throwable ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onSuccess(Object object) {
+        throw new IllegalArgumentException();
+    }
+
+    @Override
+    public void onError(Throwable ex) {
+        IoCompletionHandler<Object> handler = this.handler;
+        Object attachment = this.attachment;
+        release();
+        try {
+            handler.failed(ex, attachment);
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+
+    @Override
+    public Void getInner() {
+        return null;
+    }
+
+    @Override
+    public void release() {
+        handler = null;
+        attachment = null;
+        buffer = null;
+        bufferPosition = 0;
+        iovecArray = null;
+        EventExecutor executor = this.executor;
+        this.executor = null;
+        executor.handlerResultProviderPool.release(this);
+    }
+}
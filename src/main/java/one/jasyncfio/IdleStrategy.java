@@ -0,0 +1,96 @@
+package one.jasyncfio;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides what the EventLoop thread does when it has no tasks to run and no completions to process.
+ * The strategy trades CPU consumption for latency: spinning reacts to new work immediately but burns a core,
+ * sleeping in the kernel is free but adds a wakeup to the latency of the next operation.
+ * <p>
+ * Every executor owns its own instance, the methods are only called from the EventLoop thread.
+ */
+public interface IdleStrategy {
+
+    enum Phase {
+        /**
+         * Busy-wait for the next iteration.
+         */
+        SPIN,
+        /**
+         * Give up the cpu with {@link Thread#yield()}.
+         */
+        YIELD,
+        /**
+         * Sleep in the kernel for at most {@link IdleStrategy#parkNanos()}, a task or a completion ends it earlier.
+         */
+        PARK,
+        /**
+         * Sleep in the kernel until a task or a completion arrives.
+         */
+        SLEEP
+    }
+
+    /**
+     * Called every time the EventLoop finds no work.
+     *
+     * @return what the EventLoop should do in this idle iteration
+     */
+    Phase idle();
+
+    /**
+     * Park time of the last {@link Phase#PARK} returned by {@link IdleStrategy#idle()}.
+     */
+    long parkNanos();
+
+    /**
+     * Called when the EventLoop has found work.
+     */
+    void reset();
+
+    /**
+     * Never sleeps, lowest latency and a full core per executor.
+     */
+    static IdleStrategy busySpin() {
+        return new BusySpinIdleStrategy();
+    }
+
+    /**
+     * Spins for the given time after the last work, then sleeps in the kernel.
+     */
+    static IdleStrategy sleepTimeout(long timeout, TimeUnit unit) {
+        return new SleepTimeoutIdleStrategy(unit.toNanos(timeout));
+    }
+
+    /**
+     * Spins 100 times, yields 10 times, then parks from 1 microsecond up to 1 millisecond doubling the park time,
+     * then sleeps in the kernel.
+     */
+    static IdleStrategy backoff() {
+        return backoff(100, 10, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Spins maxSpins times, yields maxYields times, then parks from minParkNanos up to maxParkNanos doubling the park time,
+     * then sleeps in the kernel.
+     */
+    static IdleStrategy backoff(int maxSpins, int maxYields, long minParkNanos, long maxParkNanos) {
+        return new BackoffIdleStrategy(maxSpins, maxYields, minParkNanos, maxParkNanos);
+    }
+
+    /**
+     * Spins for twice the average time between two arrivals of work, but at least 1 microsecond and at most 100 microseconds,
+     * yields for the same time, then sleeps in the kernel. If work arrives less often than every 100 microseconds
+     * spinning is pointless and the EventLoop goes to sleep almost immediately.
+     */
+    static IdleStrategy adaptive() {
+        return adaptive(TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MICROSECONDS.toNanos(100));
+    }
+
+    /**
+     * Spins for twice the average time between two arrivals of work clamped to [minSpinNanos, maxSpinNanos],
+     * yields for the same time, then sleeps in the kernel.
+     */
+    static IdleStrategy adaptive(long minSpinNanos, long maxSpinNanos) {
+        return new AdaptiveIdleStrategy(minSpinNanos, maxSpinNanos);
+    }
+}
@@ -1,42 +1,68 @@
 package one.jasyncfio;
 
-import cn.danielw.fop.DisruptorObjectPool;
-import cn.danielw.fop.ObjectPool;
-import cn.danielw.fop.PoolConfig;
-import cn.danielw.fop.Poolable;
-
+import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 
 class IntegerAsyncResultProvider implements ResultProvider<CompletableFuture<Integer>> {
-    private static final IntegerAsyncResultProviderAllocator allocator = new IntegerAsyncResultProviderAllocator();
-
-    private static final PoolConfig poolConfig = new PoolConfig() {
-        {
-            setPartitionSize(100);
-            setMaxSize(50);
-        }
-    };
-    private static final ObjectPool<IntegerAsyncResultProvider> pool = new DisruptorObjectPool<>(poolConfig, allocator);
-    private Poolable<IntegerAsyncResultProvider> handle;
+    private EventExecutor executor;
 
-    private CompletableFuture<Integer> res;
+    private CommandFuture<Integer> res;
+    private ByteBuffer buffer;
+    private int bufferPosition;
+    private IovecArray iovecArray;
 
     IntegerAsyncResultProvider() {
     }
 
 
-    static IntegerAsyncResultProvider newInstance() {
-        Poolable<IntegerAsyncResultProvider> handle = pool.borrowObject();
-        IntegerAsyncResultProvider inst = handle.getObject();
-        inst.handle = handle;
-        inst.res = new CompletableFuture<>();
+    static IntegerAsyncResultProvider newInstance(EventExecutor executor) {
+        IntegerAsyncResultProvider inst = executor.integerResultProviderPool.borrow();
+        inst.executor = executor;
+        inst.res = new CommandFuture<>(executor);
         return inst;
     }
 
+    /**
+     * The buffer position will be advanced by the number of bytes transferred before the future is completed.
+     */
+    IntegerAsyncResultProvider buffer(ByteBuffer buffer, int bufferPosition) {
+        this.buffer = buffer;
+        this.bufferPosition = bufferPosition;
+        return this;
+    }
+
+    /**
+     * The buffers positions will be advanced by the number of bytes transferred before the future is completed.
+     */
+    IntegerAsyncResultProvider iovecArray(IovecArray iovecArray) {
+        this.iovecArray = iovecArray;
+        return this;
+    }
+
+    @Override
+    public void onScheduled(Ring ring, long userData) {
+        res.scheduled(ring, userData);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return res.isCancelled();
+    }
+
     @Override
     public void onSuccess(int result) {
         try {
+            if (result > 0) {
+                if (buffer != null) {
+                    buffer.position(bufferPosition + result);
+                } else if (iovecArray != null) {
+                    iovecArray.updatePositions(result);
+                }
+            }
             res.complete(result);
+        } catch (Throwable ex) {
+            // the kernel transferred more than the buffer can hold
+            res.completeExceptionally(ex);
         } finally {
             release();
         }
@@ -63,6 +89,11 @@ class IntegerAsyncResultProvider implements ResultProvider<CompletableFuture<Int
     @Override
     public void release() {
         res = null;
-        handle.close();
+        buffer = null;
+        bufferPosition = 0;
+        iovecArray = null;
+        EventExecutor executor = this.executor;
+        this.executor = null;
+        executor.integerResultProviderPool.release(this);
     }
 }
@@ -0,0 +1,107 @@
+package one.jasyncfio;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A batch of independent operations handed to the EventLoop at once. Every operation added to the batch
+ * costs a single task and at most a single wakeup of the EventLoop when the batch is committed, instead of
+ * one of each per operation, and the EventLoop queues all of them before entering the kernel, so the whole
+ * batch is submitted with a single io_uring_enter per ring.
+ * <p>
+ * Unlike {@link IoChain} the operations are not linked and run concurrently, a failed operation does not
+ * affect the others. All files of the batch must be opened with the executor that created it,
+ * a batch can be committed only once and is not thread safe.
+ */
+public class IoBatch {
+    private final EventExecutor executor;
+    private Command<?>[] commands = new Command<?>[16];
+    private int size;
+    private boolean committed;
+
+    IoBatch(EventExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Reads up to length bytes from the file into the buffer, see {@link AbstractFile#read(ByteBuffer, long, int)}.
+     *
+     * @return the number of bytes read, completes after the batch is committed
+     */
+    public CompletableFuture<Integer> read(AbstractFile file, ByteBuffer buffer, long position, int length) {
+        checkFile(file);
+        if (buffer.capacity() < length) {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalArgumentException("Buffer capacity less then length"));
+            return future;
+        }
+        if (buffer.remaining() == 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return add(file.coalescible(file.readCommand(buffer, position, length)));
+    }
+
+    /**
+     * Writes length bytes of the buffer to the file, see {@link AbstractFile#write(ByteBuffer, long, int)}.
+     *
+     * @return the number of bytes written, completes after the batch is committed
+     */
+    public CompletableFuture<Integer> write(AbstractFile file, ByteBuffer buffer, long position, int length) {
+        checkFile(file);
+        if (buffer.remaining() == 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return add(file.writeCommand(buffer, position, length));
+    }
+
+    /**
+     * Flushes the data of the file, see {@link AbstractFile#dataSync()}. The flush is not ordered with
+     * the writes of the same batch, use {@link IoChain} for that.
+     */
+    public CompletableFuture<Integer> dataSync(AbstractFile file) {
+        checkFile(file);
+        return add(file.dataSyncCommand().syncGroup(file.getSyncGroup()));
+    }
+
+    /**
+     * Number of operations in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Hands all operations of the batch to the EventLoop. Operations that do not fit into the in flight limit
+     * of the executor wait in its overflow queue, see {@link EventExecutor.Builder#maxInFlight(int)}.
+     */
+    public void commit() {
+        if (committed) {
+            throw new IllegalStateException("batch is already committed");
+        }
+        committed = true;
+        if (size > 0) {
+            executor.executeBatch(commands, size);
+        }
+        commands = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Integer> add(Command<?> command) {
+        if (size == commands.length) {
+            commands = Arrays.copyOf(commands, size * 2);
+        }
+        commands[size++] = command;
+        // commands return to the pool once completed, take the future before committing
+        return (CompletableFuture<Integer>) command.getOperationResult();
+    }
+
+    private void checkFile(AbstractFile file) {
+        if (committed) {
+            throw new IllegalStateException("batch is already committed");
+        }
+        if (file.getExecutor() != executor) {
+            throw new IllegalArgumentException("file is not opened with the executor of the batch");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package one.jasyncfio;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A chain of dependent operations executed by the kernel one after another, for example write, write, dataSync.
+ * All links are queued with IOSQE_IO_LINK and submitted with a single io_uring_enter, so the next operation
+ * starts as soon as the previous one completes, without a round trip through the EventLoop and the caller thread.
+ * <p>
+ * If a link fails, the remaining links are cancelled by the kernel, unless the chain uses {@link IoChain#hardLinks()}.
+ * All files of the chain must be opened with the executor that created it, a chain can be submitted only once.
+ */
+public class IoChain {
+    private final EventExecutor executor;
+    private Command<?>[] links = new Command<?>[4];
+    private int size;
+    private int linkFlag = Native.IOSQE_IO_LINK;
+    private boolean submitted;
+
+    IoChain(EventExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Reads up to length bytes from the file into the buffer, see {@link AbstractFile#read(ByteBuffer, long, int)}.
+     */
+    public IoChain read(AbstractFile file, ByteBuffer buffer, long position, int length) {
+        checkFile(file);
+        if (buffer.capacity() < length) {
+            throw new IllegalArgumentException("Buffer capacity less then length");
+        }
+        return add(file.readCommand(buffer, position, length));
+    }
+
+    /**
+     * Writes length bytes of the buffer to the file, see {@link AbstractFile#write(ByteBuffer, long, int)}.
+     */
+    public IoChain write(AbstractFile file, ByteBuffer buffer, long position, int length) {
+        checkFile(file);
+        return add(file.writeCommand(buffer, position, length));
+    }
+
+    /**
+     * Flushes the data of the file, see {@link AbstractFile#dataSync()}.
+     */
+    public IoChain dataSync(AbstractFile file) {
+        checkFile(file);
+        return add(file.dataSyncCommand());
+    }
+
+    /**
+     * Links the operations with IOSQE_IO_HARDLINK, a failed or short link does not cancel the rest of the chain.
+     */
+    public IoChain hardLinks() {
+        this.linkFlag = Native.IOSQE_IO_HARDLINK;
+        return this;
+    }
+
+    /**
+     * Submits the chain.
+     *
+     * @return the result of the last link, or the error of the first failed link
+     */
+    public CompletableFuture<Integer> submit() {
+        List<CompletableFuture<Integer>> results = submitEach();
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).whenComplete((res, ex) -> {
+            for (CompletableFuture<Integer> link : results) {
+                if (link.isCompletedExceptionally()) {
+                    result.completeExceptionally(causeOf(link));
+                    return;
+                }
+            }
+            result.complete(results.get(results.size() - 1).join());
+        });
+        return result;
+    }
+
+    /**
+     * Submits the chain.
+     *
+     * @return the result of every link in the order they were added, links cancelled because of
+     * a failed link before them fail with an {@link java.io.IOException}
+     */
+    @SuppressWarnings("unchecked")
+    public List<CompletableFuture<Integer>> submitEach() {
+        if (submitted) {
+            throw new IllegalStateException("chain is already submitted");
+        }
+        if (size == 0) {
+            throw new IllegalStateException("chain is empty");
+        }
+        submitted = true;
+        List<CompletableFuture<Integer>> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (i < size - 1) {
+                links[i].link(linkFlag);
+            }
+            // commands return to the pool once completed, take the futures before submitting
+            results.add((CompletableFuture<Integer>) links[i].getOperationResult());
+        }
+        executor.executeChain(links, size);
+        return Collections.unmodifiableList(results);
+    }
+
+    private IoChain add(Command<?> command) {
+        if (submitted) {
+            throw new IllegalStateException("chain is already submitted");
+        }
+        if (size == links.length) {
+            links = Arrays.copyOf(links, size * 2);
+        }
+        links[size++] = command;
+        return this;
+    }
+
+    private void checkFile(AbstractFile file) {
+        if (file.getExecutor() != executor) {
+            throw new IllegalArgumentException("file is not opened with the executor of the chain");
+        }
+        if (size == executor.entries) {
+            throw new IllegalArgumentException("chain can't be longer than the submission queue");
+        }
+    }
+
+    private static Throwable causeOf(CompletableFuture<Integer> failed) {
+        try {
+            failed.join();
+            throw new IllegalStateException("future is not failed");
+        } catch (CompletionException ex) {
+            return ex.getCause();
+        } catch (CancellationException ex) {
+            return ex;
+        }
+    }
+}
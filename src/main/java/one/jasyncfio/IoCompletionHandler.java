@@ -0,0 +1,30 @@
+package one.jasyncfio;
+
+/**
+ * A handler for consuming the result of an asynchronous I/O operation, the counterpart of
+ * {@link java.nio.channels.CompletionHandler} for {@link AsyncFile}.
+ * <p>
+ * The handler is invoked on the EventLoop thread straight from the completion queue, without allocating a future,
+ * so a single handler instance can be reused for any number of operations and the attachment can be used
+ * to carry per operation state. The handler must not block, it delays every other operation of the executor.
+ *
+ * @param <A> The type of the object attached to the I/O operation
+ */
+public interface IoCompletionHandler<A> {
+
+    /**
+     * Invoked when an operation has completed.
+     *
+     * @param result     The result of the I/O operation, usually the number of bytes transferred
+     * @param attachment The object attached to the I/O operation when it was initiated
+     */
+    void completed(int result, A attachment);
+
+    /**
+     * Invoked when an operation fails.
+     *
+     * @param exc        The exception to indicate why the I/O operation failed
+     * @param attachment The object attached to the I/O operation when it was initiated
+     */
+    void failed(Throwable exc, A attachment);
+}
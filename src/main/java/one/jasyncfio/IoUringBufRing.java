@@ -105,14 +105,15 @@ class IoUringBufRing {
 
         Native.ioUringRegister(ringFd, Native.IORING_REGISTER_PBUF_RING, registerBufRingBufferAddress, 1);
         for (int i = 0; i < numOfBuffers; i++) {
-            addBuffer(i);
+            addBuffer(i, i);
             initBbArrayElement(i);
         }
         IoUringBufRingStruct.publishTail(bufRingBaseAddress, (short) numOfBuffers);
     }
 
     void recycleBuffer(int id) {
-        addBuffer(id);
+        // the recycled buffer goes to the tail slot, whatever its id
+        addBuffer(id, 0);
         buffers[id].clear();
         IoUringBufRingStruct.publishTail(bufRingBaseAddress, (short) 1);
     }
@@ -133,11 +134,11 @@ class IoUringBufRing {
         buffers[id] = slice;
     }
 
-    private void addBuffer(int id) {
+    private void addBuffer(int id, int offset) {
         long ioUringBuf = IoUringBufRingStruct.getIoUringBuf(
                 bufRingBaseAddress,
                 IoUringBufRingStruct.getTail(bufRingBaseAddress),
-                id,
+                offset,
                 getBufRingMask());
 
         IoUringBuf.setAddr(ioUringBuf, getRingBufferAddress(id));
@@ -1,6 +1,8 @@
 package one.jasyncfio;
 
 import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 class IoUringProbe {
 
@@ -16,6 +18,8 @@ class IoUringProbe {
     private static final int OP = 0; // __u8
     private static final int FLAGS = 2; // __u16
 
+    private static final Map<Integer, Boolean> setupFlagsSupport = new ConcurrentHashMap<>();
+
     private final ByteBuffer probeBuffer = ByteBuffer.allocateDirect((int) Native.probeBufferSize());
     private final byte lastOpSupported;
     private final byte probeOpsArrayLen;
@@ -30,6 +34,23 @@ class IoUringProbe {
         lastOpSupported = MemoryUtils.getByte(probeBufferAddress);
     }
 
+    /**
+     * IORING_REGISTER_PROBE only reports opcodes, setup flags are probed by creating a small ring with them,
+     * the kernel rejects unknown flags with EINVAL.
+     */
+    static boolean isSetupSupported(int flags) {
+        return setupFlagsSupport.computeIfAbsent(flags, f -> {
+            try {
+                Uring ring = Native.setupIoUring(2, f | Native.IORING_SETUP_R_DISABLED, 0, 0, 0, 0);
+                ring.getSubmissionQueue().close();
+                ring.close();
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        });
+    }
+
     boolean isOpSupported(int ioUringOp) {
         return lastOpSupported >= ioUringOp;
     }
@@ -60,6 +60,10 @@ public class MemoryUtils {
         unsafe.freeMemory(ptr);
     }
 
+    public static void copyMemory(long srcAddress, long destAddress, long bytes) {
+        unsafe.copyMemory(srcAddress, destAddress, bytes);
+    }
+
     public static long getPageSize() {
         return Native.getPageSize();
     }
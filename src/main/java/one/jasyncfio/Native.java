@@ -42,7 +42,8 @@ class Native {
                 (int) pointers[0][8],
                 pointers[0][9],
                 (int) pointers[0][10],
-                pointers[0][11]
+                pointers[0][11],
+                (int) pointers[0][12]
         );
         final CompletionQueue completionQueue = new CompletionQueue(
                 pointers[1][0],
@@ -61,6 +62,24 @@ class Native {
 
     private static native int ioUringEnter0(int ringFd, int toSubmit, int minComplete, int flags);
 
+    /**
+     * io_uring_enter with IORING_ENTER_EXT_ARG, arg points to a struct io_uring_getevents_arg.
+     *
+     * @return number of submitted sqes, 0 if the wait timed out
+     */
+    static int ioUringEnterExtArg(int ringFd, int toSubmit, int minComplete, int flags, long arg) {
+        int ret = ioUringEnterExtArg0(ringFd, toSubmit, minComplete, flags, arg);
+        if (ret == -ETIME) {
+            return 0;
+        }
+        if (ret < 0) {
+            throw new RuntimeException("io_uring enter error: " + ret);
+        }
+        return ret;
+    }
+
+    private static native int ioUringEnterExtArg0(int ringFd, int toSubmit, int minComplete, int flags, long arg);
+
     private static native long[][] setupIoUring0(int entries, int flags, int sqThreadIdle, int sqThreadCpu, int cqSize, int attachWqRingFd);
 
     public static native int getEventFd();
@@ -95,6 +114,23 @@ class Native {
 
     public static native long getCpuTimer();
 
+    /**
+     * Binds the calling thread to the given cpu
+     */
+    static void setThreadAffinity(int cpu) {
+        int ret = setThreadAffinity0(cpu);
+        if (ret < 0) {
+            throw new RuntimeException(String.format("Can't bind thread to cpu %d; error code: %d; message: %s", cpu, -ret, decodeErrno(ret)));
+        }
+    }
+
+    private static native int setThreadAffinity0(int cpu);
+
+    /**
+     * Returns the cpus the calling thread is allowed to run on
+     */
+    static native int[] getThreadAffinity();
+
     /**
      * took from netty io uring project
      */
@@ -149,6 +185,10 @@ class Native {
     public static final byte IORING_OP_ACCEPT = UringConstants.ioRingOpAccept();
     public static final byte IORING_OP_TIMEOUT = UringConstants.ioRingOpTimeout();
     public static final byte IORING_OP_TIMEOUT_REMOVE = UringConstants.ioRingOpTimeoutRemove();
+    public static final byte IORING_OP_ASYNC_CANCEL = UringConstants.ioRingOpAsyncCancel();
+    public static final byte IORING_OP_LINK_TIMEOUT = UringConstants.ioRingOpLinkTimeout();
+    public static final byte IORING_OP_MSG_RING = UringConstants.ioRingOpMsgRing();
+    public static final int IORING_MSG_DATA = UringConstants.ioRingMsgData();
     public static final byte IORING_OP_SENDMSG = UringConstants.ioRingOpSendMsg();
     public static final byte IORING_OP_RECVMSG = UringConstants.ioRingOpRecvMsg();
     public static final byte IORING_OP_SEND = UringConstants.ioRingOpSend();
@@ -156,11 +196,13 @@ class Native {
     public static final byte IORING_OP_SHUTDOWN = UringConstants.ioRingOpShutdown();
     public static final byte IORING_OP_SEND_ZC = UringConstants.ioRingOpSendZc();
     public static final byte IORING_OP_SPLICE = UringConstants.ioRingOpSplice();
+    public static final byte IORING_OP_FADVISE = UringConstants.ioRingOpFadvise();
 
     public static final int IORING_REGISTER_BUFFERS = UringConstants.ioRingRegisterBuffers();
     public static final int IORING_UNREGISTER_BUFFERS = UringConstants.ioRingUnregisterBuffers();
     public static final int IORING_REGISTER_FILES = UringConstants.ioRingRegisterFiles();
     public static final int IORING_UNREGISTER_FILES = UringConstants.ioRingUnregisterFiles();
+    public static final int IORING_REGISTER_FILES_UPDATE = UringConstants.ioRingRegisterFilesUpdate();
     public static final int IORING_REGISTER_PBUF_RING = UringConstants.ioRingRegisterPbufRing();
     public static final int IORING_UNREGISTER_PBUF_RING = UringConstants.ioRingUnregisterPbufRing();
     public static final int IORING_REGISTER_PROBE = UringConstants.ioRingRegisterProbe();
@@ -175,7 +217,28 @@ class Native {
     public static final int IORING_SETUP_CQ_SIZE = UringConstants.ioRingSetupCqSize();
     public static final int IORING_SETUP_CLAMP = UringConstants.ioRingSetupClamp();
     public static final int IORING_SETUP_ATTACH_WQ = UringConstants.ioRingSetupAttachWq();
+    public static final int IORING_SETUP_R_DISABLED = UringConstants.ioRingSetupRDisabled();
+    public static final int IORING_SETUP_SUBMIT_ALL = UringConstants.ioRingSetupSubmitAll();
+    public static final int IORING_SETUP_COOP_TASKRUN = UringConstants.ioRingSetupCoopTaskrun();
+    public static final int IORING_SETUP_TASKRUN_FLAG = UringConstants.ioRingSetupTaskrunFlag();
+    public static final int IORING_SETUP_SINGLE_ISSUER = UringConstants.ioRingSetupSingleIssuer();
+    public static final int IORING_SETUP_DEFER_TASKRUN = UringConstants.ioRingSetupDeferTaskrun();
+    public static final int IORING_SQ_TASKRUN = UringConstants.ioRingSqTaskrun();
+    public static final int IORING_REGISTER_ENABLE_RINGS = UringConstants.ioRingRegisterEnableRings();
+    public static final int IORING_REGISTER_RING_FDS = UringConstants.ioRingRegisterRingFds();
+    public static final int IORING_UNREGISTER_RING_FDS = UringConstants.ioRingUnregisterRingFds();
+    public static final int IORING_ENTER_REGISTERED_RING = UringConstants.ioRingEnterRegisteredRing();
     public static final int IOSQE_BUFFER_SELECT = UringConstants.iosqeBufferSelect();
+    public static final int IOSQE_FIXED_FILE = UringConstants.iosqeFixedFile();
+    public static final int IOSQE_IO_LINK = UringConstants.iosqeIoLink();
+    public static final int IOSQE_IO_HARDLINK = UringConstants.iosqeIoHardlink();
+    public static final int IORING_ASYNC_CANCEL_ALL = UringConstants.ioRingAsyncCancelAll();
+    public static final int IORING_ASYNC_CANCEL_FD = UringConstants.ioRingAsyncCancelFd();
+    public static final int IORING_ASYNC_CANCEL_FD_FIXED = UringConstants.ioRingAsyncCancelFdFixed();
+
+    public static final int ECANCELED = UringConstants.eCanceled();
+    public static final int ETIME = UringConstants.eTime();
+    public static final int IORING_FEAT_MIN_TIMEOUT = UringConstants.ioRingFeatMinTimeout();
 
     public static final int IORING_CQE_F_BUFFER = UringConstants.ioRingCqeFBuffer();
 
@@ -196,4 +259,5 @@ class Native {
     public static final int SPLICE_F_MOVE = FileIoConstants.spliceFMove();
     public static final int SPLICE_F_NONBLOCK = FileIoConstants.spliceFNonblock();
     public static final int SPLICE_F_MORE = FileIoConstants.spliceFMore();
+    public static final int POSIX_FADV_WILLNEED = FileIoConstants.posixFadvWillneed();
 }
@@ -0,0 +1,58 @@
+package one.jasyncfio;
+
+import org.jctools.queues.SpmcArrayQueue;
+
+import java.util.Queue;
+import java.util.function.Supplier;
+
+/**
+ * Pool of objects owned by one {@link EventExecutor}.
+ * <p>
+ * Objects are always returned by the EventLoop thread, when the command they belong to completes, but may be borrowed
+ * by any thread. The EventLoop thread takes objects from a plain array stack, other threads take them from a
+ * single producer queue filled by the EventLoop thread, so neither path needs a lock and the EventLoop path
+ * is plain field writes. When the pool is empty a new object is allocated, when it is full the object is dropped.
+ */
+class ObjectPool<T> {
+    private final Supplier<T> factory;
+    private final EventExecutor executor;
+    private final Queue<T> shared;
+    private final Object[] local;
+    private int localSize;
+
+    ObjectPool(Supplier<T> factory, EventExecutor executor, int capacity) {
+        this.factory = factory;
+        this.executor = executor;
+        this.shared = new SpmcArrayQueue<>(capacity);
+        this.local = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    T borrow() {
+        if (executor.inEventLoop()) {
+            if (localSize > 0) {
+                T obj = (T) local[--localSize];
+                local[localSize] = null;
+                return obj;
+            }
+        }
+        T obj = shared.poll();
+        if (obj == null) {
+            obj = factory.get();
+        }
+        return obj;
+    }
+
+    /**
+     * Must be called from the EventLoop thread only, objects released from other threads are dropped.
+     */
+    void release(T obj) {
+        if (!executor.inEventLoop()) {
+            return;
+        }
+        // refill the queue visible to other threads first, the loop can always fall back to it
+        if (!shared.offer(obj) && localSize < local.length) {
+            local[localSize++] = obj;
+        }
+    }
+}
@@ -15,7 +15,12 @@ public enum OpenOption {
     EXCL,
     NOATIME,
     SYNC,
-    DIRECT;
+    DIRECT,
+    /**
+     * Open the file into a slot of the executor registered files table,
+     * see {@link EventExecutor.Builder#registeredFiles(int)}.
+     */
+    REGISTERED;
 
 
     static int toFlags(OpenOption... options) {
@@ -65,6 +70,9 @@ public enum OpenOption {
                     case DIRECT:
                         flags |= Native.O_DIRECT;
                         break;
+                    case REGISTERED:
+                        // not an open flag, see AsyncFile#open
+                        break;
                 }
             }
         }
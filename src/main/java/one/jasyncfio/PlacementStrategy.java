@@ -0,0 +1,63 @@
+package one.jasyncfio;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which {@link EventExecutor} of an {@link EventExecutorGroup} a file is bound to when it is opened.
+ * All subsequent operations on the file are executed by the selected executor.
+ */
+public interface PlacementStrategy {
+
+    /**
+     * @param path      absolute path of the file being opened
+     * @param executors executors of the group, never empty
+     * @return executor the file will be bound to
+     */
+    EventExecutor select(String path, List<EventExecutor> executors);
+
+    /**
+     * Spreads files evenly across the executors in the order they are opened.
+     */
+    static PlacementStrategy roundRobin() {
+        return new PlacementStrategy() {
+            private final AtomicInteger next = new AtomicInteger();
+
+            @Override
+            public EventExecutor select(String path, List<EventExecutor> executors) {
+                return executors.get((next.getAndIncrement() & Integer.MAX_VALUE) % executors.size());
+            }
+        };
+    }
+
+    /**
+     * Always places the same path on the same executor, so every open of a file shares one ring.
+     */
+    static PlacementStrategy hashOfPath() {
+        return (path, executors) -> {
+            int h = path.hashCode();
+            h ^= (h >>> 16);
+            return executors.get((h & Integer.MAX_VALUE) % executors.size());
+        };
+    }
+
+    /**
+     * Places the file on the executor with the smallest number of in flight commands,
+     * see {@link EventExecutor#getInFlightCount()}.
+     */
+    static PlacementStrategy leastInFlight() {
+        return (path, executors) -> {
+            EventExecutor result = executors.get(0);
+            int min = result.getInFlightCount();
+            for (int i = 1; i < executors.size(); i++) {
+                EventExecutor executor = executors.get(i);
+                int inFlight = executor.getInFlightCount();
+                if (inFlight < min) {
+                    min = inFlight;
+                    result = executor;
+                }
+            }
+            return result;
+        };
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 class PollEventExecutorImpl extends EventExecutor {
 
     private final Ring sleepableRing;
+    private final boolean registeredRing;
     private final Ring pollRing;
 
     PollEventExecutorImpl(int entries,
@@ -18,12 +19,24 @@ class PollEventExecutorImpl extends EventExecutor {
                           boolean ioRingSetupAttachWq,
                           int attachWqRingFd,
                           List<BufRingDescriptor> bufRingDescriptorList,
-                          long sleepTimeoutMs,
-                          boolean monitoring
+                          IdleStrategy idleStrategy,
+                          boolean monitoring,
+                          int threadAffinity,
+                          int registeredFiles,
+                          int registeredBuffers,
+                          int registeredBufferSize,
+                          int maxInFlight,
+            int setupFlags,
+            boolean registeredRing
     ) {
-        super(entries, monitoring, sleepTimeoutMs);
+        super(entries, monitoring, idleStrategy, threadAffinity, registeredFiles, registeredBuffers, registeredBufferSize, maxInFlight);
 
-        int flags = 0;
+        this.registeredRing = registeredRing;
+        int flags = setupFlags;
+        if ((setupFlags & Native.IORING_SETUP_SINGLE_ISSUER) != 0) {
+            // rings are created by the builder thread, the EventLoop thread enables them and becomes the issuer
+            flags |= Native.IORING_SETUP_R_DISABLED;
+        }
         if (ioRingSetupSqPoll) {
             flags |= Native.IORING_SETUP_SQPOLL;
         }
@@ -54,6 +67,7 @@ class PollEventExecutorImpl extends EventExecutor {
                 commandsStarts,
                 commandExecutionDelays
         );
+        sleepableRing.onMessage(this::handleMessage);
         pollRing = new PollRing(
                 entries,
                 flags | Native.IORING_SETUP_IOPOLL,
@@ -67,6 +81,30 @@ class PollEventExecutorImpl extends EventExecutor {
                 commandsStarts,
                 commandExecutionDelays
         );
+        if (registeredFiles > 0) {
+            sleepableRing.registerFiles(registeredFiles);
+            pollRing.registerFiles(registeredFiles);
+        }
+        if (this.registeredBuffers != null) {
+            sleepableRing.registerBuffers(this.registeredBuffers);
+            pollRing.registerBuffers(this.registeredBuffers);
+        }
+    }
+
+    @Override
+    void updateRegisteredFile(int slot, int fd) {
+        sleepableRing.updateRegisteredFile(slot, fd);
+        pollRing.updateRegisteredFile(slot, fd);
+    }
+
+    @Override
+    boolean canOpenDirect() {
+        return false;
+    }
+
+    @Override
+    int sleepableRingFd() {
+        return sleepableRing.ring.getRingFd();
     }
 
     @Override
@@ -86,7 +124,12 @@ class PollEventExecutorImpl extends EventExecutor {
     @Override
     protected <T> Ring ringFromCommand(Command<T> command) {
         final Ring result;
-        if (command.getOp() == Native.IORING_OP_READ || command.getOp() == Native.IORING_OP_WRITE) {
+        byte op = command.getOp();
+        // IOPOLL rings reject timeouts, timed commands are completed by interrupts
+        if (command.getTimeoutNanos() > 0) {
+            result = sleepableRing;
+        } else if (op == Native.IORING_OP_READ || op == Native.IORING_OP_WRITE
+                || op == Native.IORING_OP_READ_FIXED || op == Native.IORING_OP_WRITE_FIXED) {
             if (PollableStatus.POLLABLE == command.getPollableStatus()) {
                 result = pollRing;
             } else {
@@ -98,12 +141,37 @@ class PollEventExecutorImpl extends EventExecutor {
         return result;
     }
 
+    @Override
+    protected Ring linkRing() {
+        // a chain mixes reads and writes with fsync and friends, which the IOPOLL ring does not accept
+        return sleepableRing;
+    }
+
+    @Override
+    protected void submitCancelAll(int fd, boolean fixedFile) {
+        sleepableRing.cancelAll(fd, fixedFile);
+        pollRing.cancelAll(fd, fixedFile);
+    }
+
+    @Override
+    protected void initRings() {
+        sleepableRing.enable();
+        pollRing.enable();
+        if (registeredRing) {
+            sleepableRing.registerRingFd();
+            pollRing.registerRingFd();
+        }
+    }
+
     protected void submitIo() {
-        if (sleepableRing.hasPending()) {
+        if (sleepableRing.hasPending() || sleepableRing.hasTaskRun()) {
             sleepableRing.submitIo();
         }
-        if (pollRing.hasInKernel() || pollRing.hasPending()) {
+        if (pollRing.hasPending()) {
             pollRing.submissionQueue.submit();
+        } else if (pollRing.hasInKernel()) {
+            // IOPOLL completions are only reaped by io_uring_enter with GETEVENTS
+            pollRing.submissionQueue.getEvents();
         }
     }
 
@@ -111,6 +179,11 @@ class PollEventExecutorImpl extends EventExecutor {
         sleepableRing.unpark();
     }
 
+    @Override
+    protected int readyCompletions() {
+        return sleepableRing.readyCompletions() + pollRing.readyCompletions();
+    }
+
     @Override
     protected int processAllCompletedTasks() {
         int result = 0;
@@ -126,8 +199,8 @@ class PollEventExecutorImpl extends EventExecutor {
     }
 
     @Override
-    protected void submitTasksAndWait() {
-        sleepableRing.park();
+    protected void submitTasksAndWait(long timeoutNanos) {
+        sleepableRing.park(sleepMinCompletions, sleepMaxWaitNanos, timeoutNanos);
     }
 
     @Override
@@ -1,7 +1,7 @@
 package one.jasyncfio;
 
 import com.tdunning.math.stats.TDigest;
-import one.jasyncfio.collections.IntObjectMap;
+import one.jasyncfio.collections.SlotTable;
 
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
@@ -15,7 +15,7 @@ class PollRing extends Ring {
              int cqSize,
              int attachWqRingFd,
              List<BufRingDescriptor> bufRingDescriptorList,
-             IntObjectMap<Command<?>> commands,
+             SlotTable<Command<?>> commands,
              boolean monitoringEnabled,
              ConcurrentMap<Command<?>, Long> commandStarts,
              TDigest commandExecutionDelays) {
@@ -35,7 +35,7 @@ class PollRing extends Ring {
     }
 
     @Override
-    void park() {
+    void park(int minComplete, long minWaitNanos, long timeoutNanos) {
         throw new UnsupportedOperationException("Can't park poll ring");
     }
 
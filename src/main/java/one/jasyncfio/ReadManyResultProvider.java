@@ -0,0 +1,155 @@
+package one.jasyncfio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delivers the result of one read of {@link AbstractFile#readMany(long[], int[], ByteBuffer[])} to the
+ * {@link Aggregate} shared by all reads of the call, so the call allocates one future, not one per read.
+ */
+class ReadManyResultProvider implements ResultProvider<Void> {
+    private EventExecutor executor;
+    private Aggregate<?> aggregate;
+    private int index;
+    private ByteBuffer buffer;
+    private int bufferPosition;
+
+    static ReadManyResultProvider newInstance(EventExecutor executor, Aggregate<?> aggregate, int index) {
+        ReadManyResultProvider inst = executor.readManyResultProviderPool.borrow();
+        inst.executor = executor;
+        inst.aggregate = aggregate;
+        inst.index = index;
+        return inst;
+    }
+
+    /**
+     * The buffer position will be advanced by the number of bytes transferred.
+     */
+    ReadManyResultProvider buffer(ByteBuffer buffer, int bufferPosition) {
+        this.buffer = buffer;
+        this.bufferPosition = bufferPosition;
+        return this;
+    }
+
+    @Override
+    public void onSuccess(int result) {
+        Aggregate<?> aggregate = this.aggregate;
+        int index = this.index;
+        try {
+            if (result > 0 && buffer != null) {
+                buffer.position(bufferPosition + result);
+            }
+        } catch (Throwable ex) {
+            // the kernel transferred more than the buffer can hold
+            release();
+            aggregate.failed(ex);
+            return;
+        }
+        release();
+        aggregate.completed(index, result);
+    }
+
+    @Override
+    public void onSuccess(Object object) {
+        Aggregate<?> aggregate = this.aggregate;
+        int index = this.index;
+        release();
+        aggregate.completed(index, (BufRingResult) object);
+    }
+
+    @Override
+    public void onError(Throwable ex) {
+        Aggregate<?> aggregate = this.aggregate;
+        release();
+        aggregate.failed(ex);
+    }
+
+    @Override
+    public Void getInner() {
+        return null;
+    }
+
+    @Override
+    public void release() {
+        aggregate = null;
+        index = 0;
+        buffer = null;
+        bufferPosition = 0;
+        EventExecutor executor = this.executor;
+        this.executor = null;
+        executor.readManyResultProviderPool.release(this);
+    }
+
+    /**
+     * Results of all reads of one call, completes the future once the last read is done, with the first error if any
+     * read failed. Updated only on the EventLoop thread, or by the caller before the reads are handed to the EventLoop.
+     */
+    static final class Aggregate<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final T results;
+        private final int[] bytes;
+        private final BufRingResult[] buffers;
+        private int remaining;
+        private Throwable error;
+
+        private Aggregate(T results, int[] bytes, BufRingResult[] buffers, int count) {
+            this.results = results;
+            this.bytes = bytes;
+            this.buffers = buffers;
+            this.remaining = count;
+            if (count == 0) {
+                future.complete(results);
+            }
+        }
+
+        static Aggregate<int[]> bytes(int count) {
+            int[] bytes = new int[count];
+            return new Aggregate<>(bytes, bytes, null, count);
+        }
+
+        static Aggregate<BufRingResult[]> buffers(int count) {
+            BufRingResult[] buffers = new BufRingResult[count];
+            return new Aggregate<>(buffers, null, buffers, count);
+        }
+
+        CompletableFuture<T> getFuture() {
+            return future;
+        }
+
+        void completed(int index, int result) {
+            bytes[index] = result;
+            done();
+        }
+
+        void completed(int index, BufRingResult result) {
+            buffers[index] = result;
+            done();
+        }
+
+        void failed(Throwable ex) {
+            if (error == null) {
+                error = ex;
+            }
+            done();
+        }
+
+        private void done() {
+            if (--remaining > 0) {
+                return;
+            }
+            if (error == null) {
+                future.complete(results);
+                return;
+            }
+            if (buffers != null) {
+                // nobody gets the buffers of a failed call, give them back to the kernel
+                for (BufRingResult buffer : buffers) {
+                    if (buffer != null) {
+                        buffer.recycle();
+                    }
+                }
+            }
+            future.completeExceptionally(error);
+        }
+    }
+}
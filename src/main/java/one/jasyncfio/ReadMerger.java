@@ -0,0 +1,161 @@
+package one.jasyncfio;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Merges the reads of one file queued in the same pass of the EventLoop, see {@link AbstractFile#mergeReads(int)}.
+ * <p>
+ * Reads are collected instead of queued to the ring and flushed right before the EventLoop enters the kernel.
+ * Contiguous and overlapping reads go to the device as one read of their whole range, up to the max merged size,
+ * into a page aligned scratch buffer, the completion copies every caller's part into its buffer.
+ * The merger is not thread safe, only the EventLoop thread touches it.
+ */
+class ReadMerger {
+    private static final Comparator<Command<?>> BY_OFFSET = Comparator.comparingLong(Command::getOffset);
+
+    private final EventExecutor executor;
+    private final int maxMergedSize;
+    private Command<?>[] pending = new Command<?>[16];
+    private int size;
+
+    ReadMerger(EventExecutor executor, int maxMergedSize) {
+        this.executor = executor;
+        this.maxMergedSize = maxMergedSize;
+    }
+
+    /**
+     * Holds the read until the EventLoop flushes the merger, right before it enters the kernel.
+     */
+    void add(Command<?> read) {
+        if (size == 0) {
+            executor.queueMerger(this);
+        }
+        if (size == pending.length) {
+            pending = Arrays.copyOf(pending, size * 2);
+        }
+        pending[size++] = read;
+    }
+
+    void flush() {
+        Arrays.sort(pending, 0, size, BY_OFFSET);
+        int i = 0;
+        while (i < size) {
+            long start = pending[i].getOffset();
+            long end = start + pending[i].getLength();
+            int j = i + 1;
+            for (; j < size; j++) {
+                long offset = pending[j].getOffset();
+                long readEnd = offset + pending[j].getLength();
+                if (offset > end || Math.max(end, readEnd) - start > maxMergedSize) {
+                    break;
+                }
+                end = Math.max(end, readEnd);
+            }
+            if (j - i == 1) {
+                executor.admit(pending[i].merger(null));
+            } else {
+                executor.admit(merge(Arrays.copyOfRange(pending, i, j), start, (int) (end - start)));
+            }
+            i = j;
+        }
+        Arrays.fill(pending, 0, size, null);
+        size = 0;
+    }
+
+    private Command<Integer> merge(Command<?>[] reads, long start, int length) {
+        Command<?> first = reads[0];
+        long pageSize = MemoryUtils.getPageSize();
+        // O_DIRECT reads need an aligned buffer, the range of aligned reads is aligned too
+        long memory = MemoryUtils.allocateMemory(length + pageSize);
+        long address = (memory + pageSize - 1) & -pageSize;
+        Command<Integer> merged = Command.read(
+                first.getFd(),
+                start,
+                length,
+                address,
+                first.getPollableStatus(),
+                executor,
+                new MergedReadResultProvider(reads, start, memory, address)
+        );
+        if ((first.getFlags() & Native.IOSQE_FIXED_FILE) != 0) {
+            merged.fixedFile(first.getFd());
+        }
+        if (executor.monitoringEnabled) {
+            Long started = null;
+            for (Command<?> read : reads) {
+                Long readStarted = executor.commandsStarts.remove(read);
+                if (started == null) {
+                    started = readStarted;
+                }
+            }
+            executor.commandsStarts.put(merged, started != null ? started : Native.getCpuTimer());
+        }
+        return merged;
+    }
+
+    /**
+     * Splits the result of a merged read back to the reads it is made of.
+     */
+    private static class MergedReadResultProvider implements ResultProvider<Integer> {
+        private final Command<?>[] reads;
+        private final long start;
+        private final long memory;
+        private final long address;
+
+        MergedReadResultProvider(Command<?>[] reads, long start, long memory, long address) {
+            this.reads = reads;
+            this.start = start;
+            this.memory = memory;
+            this.address = address;
+        }
+
+        @Override
+        public void onSuccess(int result) {
+            try {
+                for (Command<?> read : reads) {
+                    // a read past the end of the file gets what is left of its range, possibly nothing
+                    int transferred = (int) Math.max(Math.min(start + result - read.getOffset(), read.getLength()), 0);
+                    if (!read.isCancelled()) {
+                        MemoryUtils.copyMemory(address + (read.getOffset() - start), read.getBufferAddress(), transferred);
+                    }
+                    read.complete(transferred);
+                }
+            } finally {
+                MemoryUtils.freeMemory(memory);
+            }
+        }
+
+        @Override
+        public void onSuccess(Object object) {
+            throw new IllegalArgumentException();
+        }
+
+        @Override
+        public void onError(Throwable ex) {
+            MemoryUtils.freeMemory(memory);
+            for (Command<?> read : reads) {
+                read.error(ex);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            for (Command<?> read : reads) {
+                if (!read.isCancelled()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Integer getInner() {
+            return null;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+}
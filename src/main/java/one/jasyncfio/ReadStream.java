@@ -0,0 +1,420 @@
+package one.jasyncfio;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A range of a file read as a stream of chunks, see {@link AbstractFile#readStream(long, long, int, int)} and
+ * {@link AbstractFile#readStreamFixedBuffer(long, long, short, int)}.
+ * <p>
+ * The stream follows the Reactive Streams contract with its own {@link Subscriber} and {@link Subscription}
+ * interfaces, the library has no dependencies and Java 8 has no java.util.concurrent.Flow; both map one to one to
+ * org.reactivestreams, an adapter is a few lines. Up to prefetch reads are kept in flight whatever the demand,
+ * their chunks are delivered in file order as {@link Subscription#request(long)} allows. The stream completes
+ * at the end of the range or at the end of the file, a short read is the end of the file.
+ * <p>
+ * A delivered chunk holds its buffer until it is closed, the subscriber must close every chunk, and closes it
+ * once done with the bytes. The stream can be subscribed once.
+ */
+public abstract class ReadStream<T extends AutoCloseable> {
+    final AbstractFile file;
+    private final long to;
+    private final int prefetch;
+    // reads in file order, completed ones wait for demand
+    private final ArrayDeque<PendingRead<T>> reads = new ArrayDeque<>();
+    private Subscriber<? super T> subscriber;
+    private long position;
+    private long requested;
+    private Throwable invalidRequest;
+    // a short read was delivered, no more reads are issued
+    private boolean eof;
+    private boolean cancelled;
+    private boolean terminated;
+    private boolean draining;
+    private boolean missed;
+
+    ReadStream(AbstractFile file, long from, long to, int prefetch) {
+        this.file = file;
+        this.position = from;
+        this.to = to;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Subscribes to the stream, the reads start right away, before any demand.
+     */
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        synchronized (this) {
+            if (this.subscriber != null) {
+                subscriber.onSubscribe(CANCELLED);
+                subscriber.onError(new IllegalStateException("stream can be subscribed only once"));
+                return;
+            }
+            this.subscriber = subscriber;
+        }
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                synchronized (ReadStream.this) {
+                    if (n <= 0) {
+                        invalidRequest = new IllegalArgumentException("request must be positive, got " + n);
+                    } else {
+                        requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+                    }
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                synchronized (ReadStream.this) {
+                    cancelled = true;
+                }
+                drain();
+            }
+        });
+        drain();
+    }
+
+    /**
+     * Reads the chunk at the position.
+     */
+    abstract CompletableFuture<T> read(long position, int length);
+
+    /**
+     * Returns the length of the next read at the position, at most the rest of the range.
+     */
+    abstract int nextLength(long position, long to);
+
+    abstract int readBytes(T chunk);
+
+    /**
+     * Releases a chunk that is not delivered, for example read after the end of the file.
+     */
+    abstract void discard(T chunk);
+
+    /**
+     * Returns true if a buffer is free for the next read, called with the lock held.
+     */
+    abstract boolean hasBuffer();
+
+    /**
+     * Issues the reads the prefetch allows and delivers the completed reads the demand allows, one thread
+     * at a time; a call while another thread drains makes that thread go around once more.
+     */
+    final void drain() {
+        synchronized (this) {
+            if (draining) {
+                missed = true;
+                return;
+            }
+            draining = true;
+        }
+        while (true) {
+            T next = null;
+            Throwable error = null;
+            boolean complete = false;
+            Subscriber<? super T> target;
+            synchronized (this) {
+                missed = false;
+                target = subscriber;
+                if (!terminated) {
+                    if (invalidRequest != null || cancelled) {
+                        terminated = true;
+                        error = invalidRequest;
+                    } else {
+                        issueReads();
+                    }
+                }
+                PendingRead<T> head = reads.peek();
+                while (head != null && head.future.isDone()) {
+                    if (terminated || eof) {
+                        reads.poll();
+                        discard(head);
+                    } else if (head.future.isCompletedExceptionally()) {
+                        reads.poll();
+                        terminated = true;
+                        error = causeOf(head.future);
+                    } else if (requested > 0) {
+                        reads.poll();
+                        next = head.future.join();
+                        int bytes = readBytes(next);
+                        if (bytes < head.length) {
+                            eof = true;
+                        }
+                        if (bytes == 0) {
+                            discard(next);
+                            next = null;
+                        } else {
+                            requested--;
+                            break;
+                        }
+                    } else {
+                        break;
+                    }
+                    head = reads.peek();
+                }
+                if (next == null && error == null && !terminated && reads.isEmpty() && (eof || position >= to)) {
+                    terminated = true;
+                    complete = true;
+                }
+                if (next == null && error == null && !complete && !missed) {
+                    draining = false;
+                    return;
+                }
+            }
+            if (next != null) {
+                target.onNext(next);
+            } else if (error != null) {
+                target.onError(error);
+            } else if (complete) {
+                target.onComplete();
+            }
+        }
+    }
+
+    private void issueReads() {
+        while (!eof && position < to && reads.size() < prefetch && hasBuffer()) {
+            int length = nextLength(position, to);
+            CompletableFuture<T> future;
+            try {
+                future = read(position, length);
+            } catch (Throwable ex) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(ex);
+            }
+            reads.add(new PendingRead<>(future, length));
+            position += length;
+            // runs right away for a read that is already completed, the drain goes around once more
+            future.whenComplete((res, ex) -> drain());
+        }
+    }
+
+    private void discard(PendingRead<T> read) {
+        if (!read.future.isCompletedExceptionally()) {
+            discard(read.future.join());
+        }
+    }
+
+    private static Throwable causeOf(CompletableFuture<?> failed) {
+        try {
+            failed.join();
+            throw new IllegalStateException("future is not failed");
+        } catch (CompletionException ex) {
+            return ex.getCause();
+        }
+    }
+
+    /**
+     * Receives the chunks of a stream, see org.reactivestreams.Subscriber. The methods are never called concurrently.
+     */
+    public interface Subscriber<T> {
+
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T chunk);
+
+        void onError(Throwable ex);
+
+        void onComplete();
+    }
+
+    /**
+     * Demand of a subscriber, see org.reactivestreams.Subscription. Thread safe.
+     */
+    public interface Subscription {
+
+        /**
+         * Allows n more chunks to be delivered; n must be positive, otherwise the stream fails
+         * with an {@link IllegalArgumentException}.
+         */
+        void request(long n);
+
+        /**
+         * Stops the stream, the chunks not delivered yet are released.
+         */
+        void cancel();
+    }
+
+    private static final Subscription CANCELLED = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private static final class PendingRead<T> {
+        private final CompletableFuture<T> future;
+        private final int length;
+
+        PendingRead(CompletableFuture<T> future, int length) {
+            this.future = future;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A chunk of the file read into a buffer of the stream, see {@link AbstractFile#readStream(long, long, int, int)}.
+     */
+    public static final class Chunk implements AutoCloseable {
+        private final ChunkStream stream;
+        private final ByteBuffer buffer;
+        private final long position;
+        private final int readBytes;
+        private boolean closed;
+
+        Chunk(ChunkStream stream, ByteBuffer buffer, long position, int readBytes) {
+            this.stream = stream;
+            this.buffer = buffer;
+            this.position = position;
+            this.readBytes = readBytes;
+        }
+
+        /**
+         * Returns the bytes of the chunk, a view from position 0 to the number of bytes read;
+         * valid until the chunk is closed.
+         */
+        public ByteBuffer getBuffer() {
+            ByteBuffer view = buffer.duplicate();
+            view.position(0);
+            view.limit(readBytes);
+            return view;
+        }
+
+        /**
+         * Returns the file position of the first byte of the chunk.
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        public int getReadBytes() {
+            return readBytes;
+        }
+
+        /**
+         * Returns the buffer to the stream for the next reads.
+         */
+        @Override
+        public void close() {
+            synchronized (stream) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                stream.free.add(buffer);
+            }
+            stream.drain();
+        }
+    }
+
+    /**
+     * Reads into page aligned buffers of the stream, at most twice the prefetch of them, so they suit files
+     * opened with {@link OpenOption#DIRECT} when the range and the chunk size are aligned.
+     */
+    static final class ChunkStream extends ReadStream<Chunk> {
+        private final int chunkSize;
+        private final int maxBuffers;
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private int allocated;
+
+        ChunkStream(AbstractFile file, long from, long to, int chunkSize, int prefetch) {
+            super(file, from, to, prefetch);
+            this.chunkSize = chunkSize;
+            this.maxBuffers = prefetch * 2;
+        }
+
+        @Override
+        CompletableFuture<Chunk> read(long position, int length) {
+            ByteBuffer buffer = free.poll();
+            if (buffer == null) {
+                allocated++;
+                buffer = MemoryUtils.allocateAlignedByteBuffer(chunkSize, MemoryUtils.getPageSize());
+            }
+            ByteBuffer target = buffer;
+            target.clear();
+            return file.read(target.duplicate(), position, length)
+                    .thenApply(read -> new Chunk(this, target, position, read));
+        }
+
+        @Override
+        int nextLength(long position, long to) {
+            return (int) Math.min(chunkSize, to - position);
+        }
+
+        @Override
+        int readBytes(Chunk chunk) {
+            return chunk.readBytes;
+        }
+
+        @Override
+        void discard(Chunk chunk) {
+            chunk.close();
+        }
+
+        @Override
+        boolean hasBuffer() {
+            return !free.isEmpty() || allocated < maxBuffers;
+        }
+
+        /**
+         * Buffers allocated by the stream, for tests.
+         */
+        synchronized int getAllocated() {
+            return allocated;
+        }
+    }
+
+    /**
+     * Reads into the buffers of a buf ring, see {@link AbstractFile#readFixedBuffer(long, short)}.
+     */
+    static final class BufRingStream extends ReadStream<BufRingResult> {
+        private final short bufRingId;
+        private final int bufferLength;
+
+        BufRingStream(AbstractFile file, long from, long to, short bufRingId, int bufferLength, int prefetch) {
+            super(file, from, to, prefetch);
+            this.bufRingId = bufRingId;
+            this.bufferLength = bufferLength;
+        }
+
+        @Override
+        CompletableFuture<BufRingResult> read(long position, int length) {
+            return file.readFixedBuffer(position, bufRingId).thenApply(result -> {
+                // the buffer is read whole, the bytes past the range are not part of the chunk
+                if (result.getReadBytes() > length) {
+                    result.truncate(length);
+                }
+                return result;
+            });
+        }
+
+        @Override
+        int nextLength(long position, long to) {
+            return (int) Math.min(bufferLength, to - position);
+        }
+
+        @Override
+        int readBytes(BufRingResult chunk) {
+            return chunk.getReadBytes();
+        }
+
+        @Override
+        void discard(BufRingResult chunk) {
+            chunk.recycle();
+        }
+
+        @Override
+        boolean hasBuffer() {
+            return true;
+        }
+    }
+}
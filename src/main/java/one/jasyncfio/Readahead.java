@@ -0,0 +1,364 @@
+package one.jasyncfio;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sequential readahead of one file, see {@link AbstractFile#readahead(int, int)}.
+ * <p>
+ * Positional reads are matched against a few streams: a read starting about where a stream left off continues it,
+ * any other read replaces the least recently used stream. Once a stream has been continued, the next windows
+ * of the file ahead of it are read. Files opened with O_DIRECT have no page cache, so the windows are read into
+ * page aligned buffers of the readahead and the reads of the stream are copied from them. For other files
+ * the kernel is asked to fill the page cache with IORING_OP_FADVISE WILLNEED and the reads go to the kernel as usual.
+ * <p>
+ * A stream starts one window ahead, every window a read is served from doubles that up to the max windows,
+ * every window passed before any read used it halves it. The class is not thread safe,
+ * only the EventLoop thread touches it.
+ */
+class Readahead {
+    private static final int STREAMS = 4;
+    // reads in a row of a stream before it is read ahead
+    private static final int TRIGGER = 2;
+    private static final ResultProvider<Integer> IGNORED = new IgnoredResultProvider();
+
+    private final EventExecutor executor;
+    private final int windowSize;
+    private final int maxWindows;
+    private final Stream[] streams = new Stream[STREAMS];
+    private final ArrayDeque<Window> idle = new ArrayDeque<>();
+    private int allocated;
+    private long clock;
+    private long hits;
+    private boolean closed;
+
+    Readahead(EventExecutor executor, int windowSize, int maxWindows) {
+        this.executor = executor;
+        this.windowSize = windowSize;
+        this.maxWindows = maxWindows;
+        for (int i = 0; i < STREAMS; i++) {
+            streams[i] = new Stream();
+        }
+    }
+
+    void add(Command<?> read) {
+        read.readahead(null);
+        if (closed || read.getOp() != Native.IORING_OP_READ || (read.getFlags() & Native.IOSQE_BUFFER_SELECT) != 0) {
+            executor.admit(read);
+            return;
+        }
+        long offset = read.getOffset();
+        long end = offset + read.getLength();
+        int fd = read.getFd();
+        boolean fixedFile = (read.getFlags() & Native.IOSQE_FIXED_FILE) != 0;
+        PollableStatus pollableStatus = read.getPollableStatus();
+        boolean direct = pollableStatus == PollableStatus.POLLABLE;
+        Stream stream = streamOf(offset);
+        // a served read is completed and released, only the locals are used below
+        if (!direct || !stream.serve(read)) {
+            executor.admit(read);
+        }
+        stream.sequential++;
+        stream.next = Math.max(stream.next, end);
+        if (stream.sequential >= TRIGGER) {
+            stream.readAhead(fd, fixedFile, pollableStatus, direct);
+        }
+    }
+
+    /**
+     * Drops the windows, called on the EventLoop when the file is closed or its readahead replaced.
+     */
+    void close() {
+        closed = true;
+        for (Stream stream : streams) {
+            stream.restart(0);
+        }
+        for (Window window : idle) {
+            window.free();
+        }
+        idle.clear();
+    }
+
+    /**
+     * Reads served from windows read ahead, for tests.
+     */
+    long getHits() {
+        return hits;
+    }
+
+    private Stream streamOf(long offset) {
+        Stream lru = streams[0];
+        for (Stream stream : streams) {
+            if (stream.sequential > 0 && Math.abs(offset - stream.next) <= windowSize) {
+                stream.lastUsed = ++clock;
+                return stream;
+            }
+            if (stream.lastUsed < lru.lastUsed) {
+                lru = stream;
+            }
+        }
+        lru.restart(offset);
+        lru.lastUsed = ++clock;
+        return lru;
+    }
+
+    private Window borrow() {
+        Window window = idle.poll();
+        if (window == null && allocated < STREAMS * maxWindows) {
+            allocated++;
+            window = new Window();
+        }
+        return window;
+    }
+
+    private void recycle(Window window) {
+        if (closed) {
+            window.free();
+        } else {
+            idle.add(window);
+        }
+    }
+
+    private void startMonitoring(Command<?> command) {
+        if (executor.monitoringEnabled) {
+            executor.commandsStarts.put(command, Native.getCpuTimer());
+        }
+    }
+
+    private final class Stream {
+        // windows read ahead, in file order
+        private final ArrayDeque<Window> windows = new ArrayDeque<>();
+        // file position the stream is expected to read next
+        private long next;
+        private int sequential;
+        private long lastUsed;
+        private int depth = 1;
+        private long issuedEnd;
+        private boolean eof;
+
+        void restart(long offset) {
+            for (Window window : windows) {
+                window.drop();
+            }
+            windows.clear();
+            next = offset;
+            sequential = 0;
+            depth = 1;
+            issuedEnd = 0;
+            eof = false;
+        }
+
+        /**
+         * Serves the read from a window that holds its whole range, or leaves it to the kernel.
+         */
+        boolean serve(Command<?> read) {
+            long offset = read.getOffset();
+            long end = offset + read.getLength();
+            // the stream has passed these windows
+            while (!windows.isEmpty() && windows.peekFirst().position + windowSize <= offset) {
+                Window passed = windows.pollFirst();
+                if (!passed.used) {
+                    depth = Math.max(depth / 2, 1);
+                }
+                passed.drop();
+            }
+            for (Window window : windows) {
+                if (offset >= window.position && end <= window.position + windowSize) {
+                    if (!window.used) {
+                        window.used = true;
+                        depth = Math.min(depth * 2, maxWindows);
+                    }
+                    hits++;
+                    if (executor.monitoringEnabled) {
+                        executor.commandsStarts.remove(read);
+                    }
+                    if (window.loaded) {
+                        window.serve(read);
+                    } else {
+                        window.waiters.add(read);
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void readAhead(int fd, boolean fixedFile, PollableStatus pollableStatus, boolean direct) {
+            long start = next - next % windowSize;
+            long end = start + (long) depth * windowSize;
+            issuedEnd = Math.max(issuedEnd, start);
+            if (eof || issuedEnd >= end) {
+                return;
+            }
+            if (!direct) {
+                Command<Integer> fadvise = Command.fadvise(
+                        fd,
+                        issuedEnd,
+                        (int) (end - issuedEnd),
+                        Native.POSIX_FADV_WILLNEED,
+                        executor,
+                        IGNORED
+                );
+                if (fixedFile) {
+                    fadvise.fixedFile(fd);
+                }
+                startMonitoring(fadvise);
+                executor.admit(fadvise);
+                issuedEnd = end;
+                // nothing tells how much of the page cache is used, a stream that goes on reads further ahead
+                depth = Math.min(depth * 2, maxWindows);
+                return;
+            }
+            for (; issuedEnd < end; issuedEnd += windowSize) {
+                Window window = borrow();
+                if (window == null) {
+                    return;
+                }
+                window.load(this, issuedEnd);
+                windows.addLast(window);
+                Command<Integer> command = Command.read(
+                        fd,
+                        issuedEnd,
+                        windowSize,
+                        window.address,
+                        pollableStatus,
+                        executor,
+                        window
+                );
+                if (fixedFile) {
+                    command.fixedFile(fd);
+                }
+                startMonitoring(command);
+                executor.admit(command);
+            }
+        }
+    }
+
+    /**
+     * A window of the file read ahead into an aligned buffer and the reads of the stream waiting for it.
+     */
+    private final class Window implements ResultProvider<Integer> {
+        private final long memory;
+        private final long address;
+        private final List<Command<?>> waiters = new ArrayList<>(0);
+        private Stream stream;
+        private long position;
+        private int bytes;
+        private boolean loaded;
+        private boolean loading;
+        private boolean used;
+        // passed by the stream while its read was in the kernel, recycled when the read completes
+        private boolean dropped;
+
+        Window() {
+            long pageSize = MemoryUtils.getPageSize();
+            // O_DIRECT reads need an aligned buffer
+            this.memory = MemoryUtils.allocateMemory(windowSize + pageSize);
+            this.address = (memory + pageSize - 1) & -pageSize;
+        }
+
+        void load(Stream stream, long position) {
+            this.stream = stream;
+            this.position = position;
+            this.bytes = 0;
+            this.loaded = false;
+            this.loading = true;
+            this.used = false;
+            this.dropped = false;
+        }
+
+        void serve(Command<?> read) {
+            // a read past the end of the file gets what is left of its range, possibly nothing
+            int transferred = (int) Math.max(Math.min(position + bytes - read.getOffset(), read.getLength()), 0);
+            if (!read.isCancelled()) {
+                MemoryUtils.copyMemory(address + (read.getOffset() - position), read.getBufferAddress(), transferred);
+            }
+            read.complete(transferred);
+        }
+
+        void drop() {
+            if (loading) {
+                dropped = true;
+            } else {
+                recycle(this);
+            }
+        }
+
+        void free() {
+            MemoryUtils.freeMemory(memory);
+            allocated--;
+        }
+
+        @Override
+        public void onSuccess(int result) {
+            loading = false;
+            loaded = true;
+            bytes = result;
+            if (result < windowSize && !dropped) {
+                stream.eof = true;
+            }
+            for (Command<?> waiter : waiters) {
+                serve(waiter);
+            }
+            waiters.clear();
+            if (dropped) {
+                recycle(this);
+            }
+        }
+
+        @Override
+        public void onSuccess(Object object) {
+            throw new IllegalArgumentException();
+        }
+
+        @Override
+        public void onError(Throwable ex) {
+            loading = false;
+            if (!dropped) {
+                // stop reading ahead of a stream the device fails, its reads go to the kernel
+                stream.windows.remove(this);
+                stream.eof = true;
+            }
+            for (Command<?> waiter : waiters) {
+                startMonitoring(waiter);
+                executor.admit(waiter);
+            }
+            waiters.clear();
+            recycle(this);
+        }
+
+        @Override
+        public Integer getInner() {
+            return null;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    private static class IgnoredResultProvider implements ResultProvider<Integer> {
+
+        @Override
+        public void onSuccess(int result) {
+        }
+
+        @Override
+        public void onSuccess(Object object) {
+        }
+
+        @Override
+        public void onError(Throwable ex) {
+        }
+
+        @Override
+        public Integer getInner() {
+            return null;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package one.jasyncfio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Arena of buffers registered in every ring of an {@link EventExecutor} with IORING_REGISTER_BUFFERS.
+ * The arena is a single page aligned allocation split into equal buffers, buffer i is registered at index i,
+ * so the index of a {@link FixedBuffer} is valid in all rings of the executor.
+ * Buffers are leased and returned by user threads, a lock is cheap enough compared to the I/O done with them.
+ */
+class RegisteredBuffers {
+    private final ByteBuffer arena;
+    private final long arenaAddress;
+    private final int bufferSize;
+    private final FixedBuffer[] buffers;
+    private final int[] free;
+    private int freeSize;
+
+    RegisteredBuffers(int count, int bufferSize) {
+        this.arena = MemoryUtils.allocateAlignedByteBuffer(count * bufferSize, MemoryUtils.getPageSize());
+        this.arenaAddress = MemoryUtils.getDirectBufferAddress(arena);
+        this.bufferSize = bufferSize;
+        this.buffers = new FixedBuffer[count];
+        this.free = new int[count];
+        for (int i = 0; i < count; i++) {
+            ByteBuffer slice = arena.duplicate();
+            slice.position(i * bufferSize);
+            slice.limit((i + 1) * bufferSize);
+            buffers[i] = new FixedBuffer(this, i, slice.slice(), arenaAddress + (long) i * bufferSize);
+            free[i] = count - 1 - i;
+        }
+        freeSize = count;
+    }
+
+    /**
+     * @return free buffer or null if all buffers are leased
+     */
+    synchronized FixedBuffer lease() {
+        if (freeSize == 0) {
+            return null;
+        }
+        FixedBuffer buffer = buffers[free[--freeSize]];
+        buffer.leased = true;
+        return buffer;
+    }
+
+    synchronized void release(FixedBuffer buffer) {
+        if (!buffer.leased) {
+            throw new IllegalStateException("buffer is not leased");
+        }
+        buffer.leased = false;
+        free[freeSize++] = buffer.getIndex();
+    }
+
+    long getArenaAddress() {
+        return arenaAddress;
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    int size() {
+        return buffers.length;
+    }
+}
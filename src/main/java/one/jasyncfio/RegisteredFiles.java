@@ -0,0 +1,37 @@
+package one.jasyncfio;
+
+/**
+ * Allocator of the slots of the registered files table of an {@link EventExecutor}.
+ * The table itself is registered sparse in every ring of the executor, so a slot means the same file in all of them.
+ * Slots are only taken when a file is opened and returned when it is closed, so a lock is cheap enough here.
+ */
+class RegisteredFiles {
+    private final int[] free;
+    private int freeSize;
+
+    RegisteredFiles(int size) {
+        free = new int[size];
+        for (int i = 0; i < size; i++) {
+            free[i] = size - 1 - i;
+        }
+        freeSize = size;
+    }
+
+    /**
+     * @return free slot or -1 if the table is full
+     */
+    synchronized int allocate() {
+        if (freeSize == 0) {
+            return -1;
+        }
+        return free[--freeSize];
+    }
+
+    synchronized void release(int slot) {
+        free[freeSize++] = slot;
+    }
+
+    int size() {
+        return free.length;
+    }
+}
@@ -10,4 +10,18 @@ interface ResultProvider<T> {
     T getInner();
 
     void release();
+
+    /**
+     * Called on the EventLoop thread when the command gets its user_data and is queued to the ring.
+     */
+    default void onScheduled(Ring ring, long userData) {
+    }
+
+    /**
+     * Returns true if the caller gave up on the result before the command reached the ring,
+     * the command is then dropped instead of submitted.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
 }
@@ -1,7 +1,7 @@
 package one.jasyncfio;
 
 import com.tdunning.math.stats.TDigest;
-import one.jasyncfio.collections.IntObjectMap;
+import one.jasyncfio.collections.SlotTable;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -9,12 +9,26 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongConsumer;
 
 abstract class Ring {
+    /**
+     * user_data of the requests nobody waits for, link timeouts and cancellations,
+     * their result is carried by the completion of the request they target.
+     */
+    static final long NO_CALLBACK = -1L;
+    /**
+     * Upper half of the user_data of messages posted by other executors with IORING_OP_MSG_RING,
+     * the lower half carries the upper half of the message and res the lower half.
+     */
+    static final long MESSAGE = 0xFFFFFFFE00000000L;
+    private static final long MESSAGE_MASK = 0xFFFFFFFF00000000L;
+
     final Uring ring;
     final CompletionQueue completionQueue;
     final SubmissionQueue submissionQueue;
-    private final IntObjectMap<Command<?>> commands;
+    private final SlotTable<Command<?>> commands;
     private final CompletionCallback callback = this::handle;
 
     private final ConcurrentMap<Command<?>, Long> commandStarts;
@@ -23,6 +37,8 @@ abstract class Ring {
     private final boolean monitoringEnabled;
 
     private final Map<Short, IoUringBufRing> bufRings;
+    private int registeredRingIndex = -1;
+    private LongConsumer messageHandler;
 
     Ring(int entries,
          int flags,
@@ -31,7 +47,7 @@ abstract class Ring {
          int cqSize,
          int attachWqRingFd,
          List<BufRingDescriptor> bufRingDescriptorList,
-         IntObjectMap<Command<?>> commands,
+         SlotTable<Command<?>> commands,
          boolean monitoringEnabled,
          ConcurrentMap<Command<?>, Long> commandStarts,
          TDigest commandExecutionDelays) {
@@ -62,9 +78,22 @@ abstract class Ring {
     }
 
     private void handle(int res, int flags, long data) {
-        Command<?> command = commands.remove((int) data);
+        if (data == NO_CALLBACK) {
+            return;
+        }
+        if ((data & MESSAGE_MASK) == MESSAGE) {
+            messageHandler.accept((data << 32) | (res & 0xFFFFFFFFL));
+            return;
+        }
+        Command<?> command = commands.remove(data);
         if (command != null) {
-            if (res >= 0) {
+            // a completed command returns to the pool, another thread may borrow and register it right away
+            if (monitoringEnabled) {
+                commandExecutionDelays.add(Native.getCpuTimer() - commandStarts.remove(command));
+            }
+            if (res == -Native.ECANCELED && command.getTimeoutNanos() > 0) {
+                command.error(new TimeoutException(String.format("Operation timed out after %d ns", command.getTimeoutNanos())));
+            } else if (res >= 0) {
                 if (isIoringCqeFBufferSet(flags)) {
                     int bufferId = flags >> 16;
                     IoUringBufRing bufRing = bufRings.get((short) command.getBufIndex());
@@ -78,19 +107,177 @@ abstract class Ring {
                 command.error(new IOException(String.format("Error code: %d; message: %s", -res, Native.decodeErrno(res))));
             }
         }
-        if (monitoringEnabled) {
-            commandExecutionDelays.add(Native.getCpuTimer() - commandStarts.remove(command));
+    }
+
+    /**
+     * Registers a sparse table of count files, the slots are filled later by {@link Ring#updateRegisteredFile(int, int)}
+     * or by opening directly into them.
+     */
+    void registerFiles(int count) {
+        long fds = MemoryUtils.allocateMemory(4L * count);
+        try {
+            for (int i = 0; i < count; i++) {
+                MemoryUtils.putInt(fds + 4L * i, -1);
+            }
+            Native.ioUringRegister(ring.getRingFd(), Native.IORING_REGISTER_FILES, fds, count);
+        } finally {
+            MemoryUtils.freeMemory(fds);
+        }
+    }
+
+    /**
+     * Registers every buffer of the arena at its index, the kernel copies the iovecs and pins the pages
+     * until the ring is closed.
+     */
+    void registerBuffers(RegisteredBuffers buffers) {
+        int iovSize = 2 * MemoryUtils.addressSize();
+        long iovecs = MemoryUtils.allocateMemory((long) iovSize * buffers.size());
+        try {
+            for (int i = 0; i < buffers.size(); i++) {
+                long iov = iovecs + (long) iovSize * i;
+                MemoryUtils.putLong(iov, buffers.getArenaAddress() + (long) buffers.getBufferSize() * i);
+                MemoryUtils.putLong(iov + MemoryUtils.addressSize(), buffers.getBufferSize());
+            }
+            Native.ioUringRegister(ring.getRingFd(), Native.IORING_REGISTER_BUFFERS, iovecs, buffers.size());
+        } finally {
+            MemoryUtils.freeMemory(iovecs);
+        }
+    }
+
+    /**
+     * <pre>
+     * struct io_uring_files_update {
+     *   __u32 offset;
+     *   __u32 resv;
+     *   __aligned_u64 fds;
+     * };
+     * </pre>
+     *
+     * @param fd file descriptor to put into the slot, -1 to clear it
+     */
+    void updateRegisteredFile(int slot, int fd) {
+        long update = MemoryUtils.allocateMemory(20);
+        try {
+            MemoryUtils.putInt(update, slot);
+            MemoryUtils.putInt(update + 4, 0);
+            MemoryUtils.putLong(update + 8, update + 16);
+            MemoryUtils.putInt(update + 16, fd);
+            Native.ioUringRegister(ring.getRingFd(), Native.IORING_REGISTER_FILES_UPDATE, update, 1);
+        } finally {
+            MemoryUtils.freeMemory(update);
+        }
+    }
+
+    /**
+     * Registers the ring fd with the calling thread, so its io_uring_enter calls skip the fd lookup.
+     * Kernels before 5.18 don't support it, the ring keeps using the fd then.
+     * <pre>
+     * struct io_uring_rsrc_update {
+     *   __u32 offset;
+     *   __u32 resv;
+     *   __aligned_u64 data;
+     * };
+     * </pre>
+     */
+    void registerRingFd() {
+        long update = MemoryUtils.allocateMemory(16);
+        try {
+            // -1 lets the kernel pick a free index
+            MemoryUtils.putInt(update, -1);
+            MemoryUtils.putInt(update + 4, 0);
+            MemoryUtils.putLong(update + 8, ring.getRingFd());
+            Native.ioUringRegister(ring.getRingFd(), Native.IORING_REGISTER_RING_FDS, update, 1);
+            registeredRingIndex = MemoryUtils.getInt(update);
+            submissionQueue.useRegisteredRing(registeredRingIndex);
+        } catch (RuntimeException ignored) {
+        } finally {
+            MemoryUtils.freeMemory(update);
         }
     }
 
+    private void unregisterRingFd() {
+        long update = MemoryUtils.allocateMemory(16);
+        try {
+            MemoryUtils.putInt(update, registeredRingIndex);
+            MemoryUtils.putInt(update + 4, 0);
+            MemoryUtils.putLong(update + 8, 0);
+            Native.ioUringRegister(ring.getRingFd(), Native.IORING_UNREGISTER_RING_FDS, update, 1);
+        } finally {
+            MemoryUtils.freeMemory(update);
+        }
+    }
+
+    /**
+     * Handler of the messages posted into this ring by other executors, see {@link EventExecutor#sendMessage(long)}.
+     */
+    void onMessage(LongConsumer messageHandler) {
+        this.messageHandler = messageHandler;
+    }
+
+    /**
+     * Cancels the request with the given user_data, if it is still in the kernel it completes with -ECANCELED.
+     */
+    void cancel(long userData) {
+        submissionQueue.enqueueSqe(
+                Native.IORING_OP_ASYNC_CANCEL,
+                0,
+                0,
+                -1,
+                userData,
+                0,
+                0,
+                NO_CALLBACK,
+                0,
+                0
+        );
+    }
+
+    /**
+     * Cancels all requests of the file, requires kernel 5.19+, 6.0+ for a registered files slot.
+     * On older kernels the cancellation fails and the requests complete normally.
+     *
+     * @param fd        file descriptor or registered files slot
+     * @param fixedFile whether fd is a registered files slot
+     */
+    void cancelAll(int fd, boolean fixedFile) {
+        int cancelFlags = Native.IORING_ASYNC_CANCEL_FD | Native.IORING_ASYNC_CANCEL_ALL;
+        if (fixedFile) {
+            cancelFlags |= Native.IORING_ASYNC_CANCEL_FD_FIXED;
+        }
+        submissionQueue.enqueueSqe(
+                Native.IORING_OP_ASYNC_CANCEL,
+                0,
+                cancelFlags,
+                fd,
+                0,
+                0,
+                0,
+                NO_CALLBACK,
+                0,
+                0
+        );
+    }
+
     void close() {
         if (bufRings != null) {
             bufRings.values().forEach(IoUringBufRing::close);
         }
+        if (registeredRingIndex >= 0) {
+            // the registration holds a reference to the ring until the thread exits
+            unregisterRingFd();
+        }
         ring.close();
+        submissionQueue.close();
     }
 
-    abstract void park();
+    /**
+     * Submits the pending sqes and waits for completions.
+     *
+     * @param minComplete  number of completions to wait for
+     * @param minWaitNanos if positive, waits for minComplete completions at most this long, then for any completion
+     * @param timeoutNanos returns after this time even without completions, negative to wait until woken up
+     */
+    abstract void park(int minComplete, long minWaitNanos, long timeoutNanos);
 
     abstract void unpark();
 
@@ -98,6 +285,10 @@ abstract class Ring {
         return completionQueue.hasCompletions();
     }
 
+    int readyCompletions() {
+        return completionQueue.readyCount();
+    }
+
     int processCompletedTasks() {
         return completionQueue.processEvents(callback);
     }
@@ -107,6 +298,10 @@ abstract class Ring {
     }
 
     <T> void addOperation(Command<T> op, long opId) {
+        if (op.getTimeoutNanos() > 0) {
+            // the linked timeout must be submitted together with the request
+            submissionQueue.reserve(2);
+        }
         submissionQueue.enqueueSqe(
                 op.getOp(),
                 op.getFlags(),
@@ -119,10 +314,31 @@ abstract class Ring {
                 op.getBufIndex(),
                 op.getFileIndex()
         );
+        if (op.getTimeoutNanos() > 0) {
+            submissionQueue.enqueueLinkTimeout(op.getTimeoutNanos(), NO_CALLBACK);
+        }
     }
 
     void submitIo() {
-        submissionQueue.submit(0);
+        if (submissionQueue.hasTaskRun()) {
+            submissionQueue.getEvents();
+        } else {
+            submissionQueue.submit(0);
+        }
+    }
+
+    boolean hasTaskRun() {
+        return submissionQueue.hasTaskRun();
+    }
+
+    /**
+     * Enables a ring created with IORING_SETUP_R_DISABLED, with IORING_SETUP_SINGLE_ISSUER
+     * the thread enabling the ring becomes the only one allowed to submit to it.
+     */
+    void enable() {
+        if (submissionQueue.isDisabled()) {
+            Native.ioUringRegister(ring.getRingFd(), Native.IORING_REGISTER_ENABLE_RINGS, 0, 0);
+        }
     }
 
     boolean hasInKernel() {
@@ -0,0 +1,63 @@
+package one.jasyncfio;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task of the {@link TimerWheel}, completes when a one shot task has run, a periodic task only completes
+ * exceptionally if it throws or is cancelled.
+ */
+class ScheduledTask extends CompletableFuture<Void> implements ScheduledFuture<Void> {
+    private final Runnable task;
+    private final long periodNanos;
+    private volatile long deadline;
+
+    // wheel state, accessed only by the EventLoop thread
+    long remainingRounds;
+    ScheduledTask next;
+
+    ScheduledTask(Runnable task, long deadline, long periodNanos) {
+        this.task = task;
+        this.deadline = deadline;
+        this.periodNanos = periodNanos;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Runs the task.
+     *
+     * @return true if a periodic task has to be scheduled again
+     */
+    boolean runTask() {
+        if (isDone()) {
+            return false;
+        }
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            completeExceptionally(ex);
+            return false;
+        }
+        if (periodNanos == 0) {
+            complete(null);
+            return false;
+        }
+        deadline += periodNanos;
+        return !isDone();
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
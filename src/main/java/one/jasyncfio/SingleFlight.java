@@ -0,0 +1,192 @@
+package one.jasyncfio;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Single flight reads of one file, see {@link AbstractFile#deduplicateReads(boolean)}.
+ * <p>
+ * The first read of a range goes to the kernel, identical reads arriving while it is in flight attach to it
+ * instead of reading the same bytes again. When the read completes, its bytes are copied into the buffers of the
+ * attached reads, buf ring reads share the buffer through read only views. The class is not thread safe,
+ * only the EventLoop thread touches it.
+ */
+class SingleFlight {
+    private final EventExecutor executor;
+    // flights in the kernel by the file position they read
+    private final Map<Long, Flight> flights = new HashMap<>();
+
+    SingleFlight(EventExecutor executor) {
+        this.executor = executor;
+    }
+
+    void add(Command<?> read) {
+        Long position = read.getOffset();
+        Flight flight = flights.get(position);
+        if (flight != null && flight.matches(read)) {
+            if (executor.monitoringEnabled) {
+                // a follower never reaches the ring, only its flight is timed
+                executor.commandsStarts.remove(read);
+            }
+            flight.followers.add(read);
+            return;
+        }
+        flight = new Flight(position, read);
+        if (!flights.containsKey(position)) {
+            // a different read of the same position is not shared, it just does not start a flight
+            flights.put(position, flight);
+        } else {
+            flight.tracked = false;
+        }
+        Command<Integer> command;
+        if ((read.getFlags() & Native.IOSQE_BUFFER_SELECT) != 0) {
+            command = Command.readProvidedBuf(
+                    read.getFd(),
+                    read.getOffset(),
+                    (short) read.getBufIndex(),
+                    read.getPollableStatus(),
+                    executor,
+                    flight
+            );
+        } else {
+            command = Command.read(
+                    read.getFd(),
+                    read.getOffset(),
+                    read.getLength(),
+                    read.getBufferAddress(),
+                    read.getPollableStatus(),
+                    executor,
+                    flight
+            );
+        }
+        if ((read.getFlags() & Native.IOSQE_FIXED_FILE) != 0) {
+            command.fixedFile(read.getFd());
+        }
+        if (executor.monitoringEnabled) {
+            Long started = executor.commandsStarts.remove(read);
+            executor.commandsStarts.put(command, started != null ? started : Native.getCpuTimer());
+        }
+        // the flight can still be merged with the neighbouring reads
+        executor.admit(command.merger(read.getMerger()));
+    }
+
+    /**
+     * A read in the kernel and the identical reads waiting for it.
+     */
+    private class Flight implements ResultProvider<Integer> {
+        private final Long position;
+        private final Command<?> leader;
+        private final List<Command<?>> followers = new ArrayList<>(0);
+        private boolean tracked = true;
+
+        Flight(Long position, Command<?> leader) {
+            this.position = position;
+            this.leader = leader;
+        }
+
+        boolean matches(Command<?> read) {
+            return read.getLength() == leader.getLength()
+                    && read.getBufIndex() == leader.getBufIndex()
+                    && read.getFlags() == leader.getFlags();
+        }
+
+        @Override
+        public void onScheduled(Ring ring, long userData) {
+            // the read goes into the buffer of the leader, cancelling the leader cancels it in the kernel
+            leader.scheduled(ring, userData);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return leader.isCancelled();
+        }
+
+        @Override
+        public void onSuccess(int result) {
+            land();
+            if (leader.isCancelled()) {
+                leader.complete(result);
+                readmitFollowers();
+                return;
+            }
+            for (Command<?> follower : followers) {
+                if (result > 0) {
+                    MemoryUtils.copyMemory(leader.getBufferAddress(), follower.getBufferAddress(), result);
+                }
+                follower.complete(result);
+            }
+            leader.complete(result);
+        }
+
+        @Override
+        public void onSuccess(Object object) {
+            land();
+            BufRingResult result = (BufRingResult) object;
+            if (leader.isCancelled()) {
+                result.recycle();
+                leader.error(new CancellationException());
+                readmitFollowers();
+                return;
+            }
+            List<Command<?>> readers = new ArrayList<>(followers.size());
+            for (Command<?> follower : followers) {
+                if (follower.isCancelled()) {
+                    // a view nobody closes would keep the buffer out of the ring
+                    follower.error(new CancellationException());
+                } else {
+                    readers.add(follower);
+                }
+            }
+            if (readers.isEmpty()) {
+                leader.complete(result);
+                return;
+            }
+            BufRingResult[] views = result.share(readers.size() + 1);
+            for (int i = 0; i < readers.size(); i++) {
+                readers.get(i).complete(views[i + 1]);
+            }
+            leader.complete(views[0]);
+        }
+
+        @Override
+        public void onError(Throwable ex) {
+            land();
+            if (leader.isCancelled()) {
+                leader.error(ex);
+                readmitFollowers();
+                return;
+            }
+            for (Command<?> follower : followers) {
+                follower.error(ex);
+            }
+            leader.error(ex);
+        }
+
+        @Override
+        public Integer getInner() {
+            return null;
+        }
+
+        @Override
+        public void release() {
+        }
+
+        /**
+         * The buffer of a cancelled leader may be reused already, its followers start a flight of their own.
+         */
+        private void readmitFollowers() {
+            for (Command<?> follower : followers) {
+                executor.admit(follower);
+            }
+        }
+
+        private void land() {
+            if (tracked) {
+                flights.remove(position);
+            }
+        }
+    }
+}
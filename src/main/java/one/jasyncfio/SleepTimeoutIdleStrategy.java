@@ -0,0 +1,40 @@
+package one.jasyncfio;
+
+class SleepTimeoutIdleStrategy implements IdleStrategy {
+    private final long sleepTimeoutNanos;
+
+    private long idleStart = -1;
+
+    SleepTimeoutIdleStrategy(long sleepTimeoutNanos) {
+        if (sleepTimeoutNanos < 0) {
+            throw new IllegalArgumentException("sleepTimeout < 0");
+        }
+        this.sleepTimeoutNanos = sleepTimeoutNanos;
+    }
+
+    @Override
+    public Phase idle() {
+        if (sleepTimeoutNanos == 0) {
+            return Phase.SLEEP;
+        }
+        long now = System.nanoTime();
+        if (idleStart == -1) {
+            idleStart = now;
+        }
+        if (now - idleStart >= sleepTimeoutNanos) {
+            idleStart = -1;
+            return Phase.SLEEP;
+        }
+        return Phase.SPIN;
+    }
+
+    @Override
+    public long parkNanos() {
+        return 0;
+    }
+
+    @Override
+    public void reset() {
+        idleStart = -1;
+    }
+}
@@ -1,7 +1,7 @@
 package one.jasyncfio;
 
 import com.tdunning.math.stats.TDigest;
-import one.jasyncfio.collections.IntObjectMap;
+import one.jasyncfio.collections.SlotTable;
 
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
@@ -17,7 +17,7 @@ class SleepableRing extends Ring {
                   int attachWqRingFd,
                   List<BufRingDescriptor> bufRingDescriptorList,
                   int eventFd,
-                  IntObjectMap<Command<?>> commands,
+                  SlotTable<Command<?>> commands,
                   boolean monitoringEnabled,
                   ConcurrentMap<Command<?>, Long> commandStarts,
                   TDigest commandExecutionDelays) {
@@ -38,8 +38,16 @@ class SleepableRing extends Ring {
     }
 
     @Override
-    void park() {
-        submissionQueue.submitAndWait();
+    void park(int minComplete, long minWaitNanos, long timeoutNanos) {
+        if (minComplete <= 1 && timeoutNanos < 0) {
+            submissionQueue.submitAndWait();
+        } else if (minWaitNanos <= 0 || submissionQueue.hasFeature(Native.IORING_FEAT_MIN_TIMEOUT)) {
+            submissionQueue.submitAndWait(minComplete, timeoutNanos, minWaitNanos);
+        } else {
+            // before IORING_FEAT_MIN_TIMEOUT the batching wait is a plain timeout, an idle loop wakes up every minWaitNanos
+            long timeout = timeoutNanos < 0 ? minWaitNanos : Math.min(timeoutNanos, minWaitNanos);
+            submissionQueue.submitAndWait(minComplete, timeout, 0);
+        }
     }
 
     @Override
@@ -21,6 +21,30 @@ class SubmissionQueue {
 
     private static final int SQE_FILE_INDEX = 44;
 
+    /**
+     * <pre>
+     * struct __kernel_timespec {
+     *   int64_t tv_sec;
+     *   long long tv_nsec;
+     * };
+     * </pre>
+     */
+    private static final int TIMESPEC_SIZE = 16;
+
+    /**
+     * <pre>
+     * struct io_uring_getevents_arg {
+     *   __u64 sigmask;
+     *   __u32 sigmask_sz;
+     *   __u32 min_wait_usec;
+     *   __u64 ts;
+     * };
+     * </pre>
+     */
+    private static final int GETEVENTS_ARG_SIZE = 24;
+    private static final int GETEVENTS_ARG_MIN_WAIT_USEC = 12;
+    private static final int GETEVENTS_ARG_TS = 16;
+
     private final long kHead;
     private final long kTail;
     private final long kRingEntries;
@@ -38,8 +62,16 @@ class SubmissionQueue {
     private int head;
     private int tail;
     private final int ringFd;
+    // io_uring_enter takes the index of the registered ring fd instead of the fd, see useRegisteredRing
+    private int enterRingFd;
+    private int enterFlags;
 
     private final long ringFlags;
+    // one timespec per sqe, the kernel reads it during the submission, before the sqe can be reused
+    private final long timespecs;
+    // io_uring_getevents_arg followed by the timespec of the wait timeout
+    private final long getEventsArg;
+    private final int features;
 
     public SubmissionQueue(long kHead,
                            long kTail,
@@ -52,7 +84,8 @@ class SubmissionQueue {
                            int ringSize,
                            long kRingPointer,
                            int ringFd,
-                           long ringFlags
+                           long ringFlags,
+                           int features
     ) {
         this.kHead = kHead;
         this.kTail = kTail;
@@ -64,7 +97,9 @@ class SubmissionQueue {
         this.ringSize = ringSize;
         this.kRingPointer = kRingPointer;
         this.ringFd = ringFd;
+        this.enterRingFd = ringFd;
         this.ringFlags = ringFlags;
+        this.features = features;
 
         this.ringEntries = MemoryUtils.getIntVolatile(kRingEntries);
         this.ringMask = MemoryUtils.getIntVolatile(kRingMask);
@@ -73,6 +108,10 @@ class SubmissionQueue {
 
         MemoryUtils.setMemory(submissionArrayQueueAddress, ringEntries * SQE_SIZE, (byte) 0);
 
+        this.timespecs = MemoryUtils.allocateMemory((long) ringEntries * TIMESPEC_SIZE);
+        this.getEventsArg = MemoryUtils.allocateMemory(GETEVENTS_ARG_SIZE + TIMESPEC_SIZE);
+        MemoryUtils.setMemory(getEventsArg, GETEVENTS_ARG_SIZE + TIMESPEC_SIZE, (byte) 0);
+
         long address = kArray;
         for (int i = 0; i < ringEntries; i++, address += Integer.BYTES) {
             MemoryUtils.putInt(address, i);
@@ -102,17 +141,78 @@ class SubmissionQueue {
         return (ringFlags & Native.IORING_SETUP_IOPOLL) == Native.IORING_SETUP_IOPOLL;
     }
 
+    /**
+     * Enters the kernel to post the completions it is holding back, rings created with
+     * IORING_SETUP_DEFER_TASKRUN or IORING_SETUP_COOP_TASKRUN only post them on io_uring_enter with GETEVENTS.
+     */
+    public int getEvents() {
+        return submit(tail - head, 0, IORING_ENTER_GETEVENTS);
+    }
+
+    /**
+     * Whether the kernel has completions to post, only set for rings created with IORING_SETUP_TASKRUN_FLAG.
+     */
+    public boolean hasTaskRun() {
+        return (getFlags() & Native.IORING_SQ_TASKRUN) == Native.IORING_SQ_TASKRUN;
+    }
+
+    /**
+     * Enters the ring by the index of its registered fd, only valid in the thread that registered it.
+     */
+    void useRegisteredRing(int index) {
+        enterRingFd = index;
+        enterFlags = Native.IORING_ENTER_REGISTERED_RING;
+    }
+
+    boolean isDisabled() {
+        return (ringFlags & Native.IORING_SETUP_R_DISABLED) == Native.IORING_SETUP_R_DISABLED;
+    }
+
     public int submitAndWait() {
         int submit = tail - head;
         return submit(Math.max(submit, 0), 1, Native.IORING_ENTER_GETEVENTS);
     }
 
+    /**
+     * Submits the pending sqes and waits for minComplete completions with IORING_ENTER_EXT_ARG.
+     *
+     * @param timeoutNanos returns after this time even without completions, negative to wait until they arrive
+     * @param minWaitNanos if positive, wait for minComplete completions at most this long, then return as soon as
+     *                     there is one, requires IORING_FEAT_MIN_TIMEOUT
+     * @return number of submitted sqes
+     */
+    public int submitAndWait(int minComplete, long timeoutNanos, long minWaitNanos) {
+        int flags = IORING_ENTER_GETEVENTS | enterFlags;
+        if ((ringFlags & IORING_SETUP_SQPOLL) == IORING_SETUP_SQPOLL
+                && (getFlags() & IORING_SQ_NEED_WAKEUP) == IORING_SQ_NEED_WAKEUP) {
+            flags |= IORING_ENTER_SQ_WAKEUP;
+        }
+        long timespec = getEventsArg + GETEVENTS_ARG_SIZE;
+        if (timeoutNanos >= 0) {
+            MemoryUtils.putLong(timespec, timeoutNanos / 1_000_000_000L);
+            MemoryUtils.putLong(timespec + 8, timeoutNanos % 1_000_000_000L);
+            MemoryUtils.putLong(getEventsArg + GETEVENTS_ARG_TS, timespec);
+        } else {
+            MemoryUtils.putLong(getEventsArg + GETEVENTS_ARG_TS, 0);
+        }
+        MemoryUtils.putInt(getEventsArg + GETEVENTS_ARG_MIN_WAIT_USEC, (int) Math.min(minWaitNanos / 1000, Integer.MAX_VALUE));
+        MemoryUtils.putIntOrdered(kTail, tail);
+        int ret = Native.ioUringEnterExtArg(enterRingFd, tail - head, minComplete, flags, getEventsArg);
+        head = MemoryUtils.getIntVolatile(kHead);
+        return ret;
+    }
+
+    boolean hasFeature(int feature) {
+        return (features & feature) == feature;
+    }
+
     public boolean enqueueSqe(byte op, int flags, int rwFlags, int fd,
                               long bufferAddress, int length, long offset, long data, int bufIndex, int fileIndex) {
         int pending = tail - head;
         boolean submit = pending == ringEntries;
         if (submit) {
-            int submitted = submit();
+            // hand the queued sqes to the kernel without waiting for their completions
+            int submitted = submit(0);
             if (submitted == 0) {
                 throw new RuntimeException("Submission ring is full");
             }
@@ -122,6 +222,35 @@ class SubmissionQueue {
         return submit;
     }
 
+    /**
+     * Makes sure the next count sqes fit into the ring, so linked sqes are submitted together.
+     */
+    void reserve(int count) {
+        if (ringEntries - (tail - head) < count) {
+            // hand the queued sqes to the kernel without waiting for their completions
+            int submitted = submit(0);
+            if (submitted == 0) {
+                throw new RuntimeException("Submission ring is full");
+            }
+        }
+    }
+
+    /**
+     * Enqueues IORING_OP_LINK_TIMEOUT for the previous sqe, which must have the IOSQE_IO_LINK flag.
+     */
+    void enqueueLinkTimeout(long timeoutNanos, long data) {
+        int index = tail & ringMask;
+        long timespec = timespecs + (long) index * TIMESPEC_SIZE;
+        MemoryUtils.putLong(timespec, timeoutNanos / 1_000_000_000L);
+        MemoryUtils.putLong(timespec + 8, timeoutNanos % 1_000_000_000L);
+        enqueueSqe(IORING_OP_LINK_TIMEOUT, 0, 0, -1, timespec, 1, 0, data, 0, 0);
+    }
+
+    void close() {
+        MemoryUtils.freeMemory(timespecs);
+        MemoryUtils.freeMemory(getEventsArg);
+    }
+
     private void setData(long sqe, byte op, int flags, int rwFlags, int fd, long bufferAddress, int length,
                          long offset, long userData, int bufIndex, int fileIndex
     ) {
@@ -149,7 +278,7 @@ class SubmissionQueue {
             }
         }
         if (needEnter) {
-            ret = Native.ioUringEnter(ringFd, toSubmit, minComplete, flags);
+            ret = Native.ioUringEnter(enterRingFd, toSubmit, minComplete, flags | enterFlags);
         } else {
             ret = toSubmit;
         }
@@ -0,0 +1,99 @@
+package one.jasyncfio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Group commit of the dataSync calls of one file, see {@link AbstractFile#dataSync()}.
+ * <p>
+ * At most one fdatasync of the file is in the kernel. Syncs arriving while it runs can't join it, it may have
+ * started before their writes completed, they wait together for the next generation, which starts as soon as
+ * the running one completes. Every caller gets the result of the first sync issued after its call, so a burst
+ * of commits costs two syncs instead of one each. The class is not thread safe, only the EventLoop thread
+ * touches it.
+ */
+class SyncGroup implements ResultProvider<Integer> {
+    private final EventExecutor executor;
+    // syncs the running generation completes
+    private List<Command<?>> running = new ArrayList<>();
+    // syncs waiting for the next generation
+    private List<Command<?>> next = new ArrayList<>();
+    private boolean syncing;
+    private long syncs;
+
+    SyncGroup(EventExecutor executor) {
+        this.executor = executor;
+    }
+
+    void add(Command<?> sync) {
+        if (executor.monitoringEnabled) {
+            executor.commandsStarts.remove(sync);
+        }
+        next.add(sync);
+        if (!syncing) {
+            start();
+        }
+    }
+
+    private void start() {
+        List<Command<?>> generation = next;
+        next = running;
+        running = generation;
+        syncing = true;
+        syncs++;
+        Command<?> first = generation.get(0);
+        Command<Integer> command = Command.dataSync(first.getFd(), executor, this);
+        if ((first.getFlags() & Native.IOSQE_FIXED_FILE) != 0) {
+            command.fixedFile(first.getFd());
+        }
+        if (executor.monitoringEnabled) {
+            executor.commandsStarts.put(command, Native.getCpuTimer());
+        }
+        executor.admit(command);
+    }
+
+    /**
+     * Syncs issued to the kernel, for tests.
+     */
+    long getSyncCount() {
+        return syncs;
+    }
+
+    @Override
+    public void onSuccess(int result) {
+        for (Command<?> sync : running) {
+            sync.complete(result);
+        }
+        finish();
+    }
+
+    @Override
+    public void onSuccess(Object object) {
+        throw new IllegalArgumentException();
+    }
+
+    @Override
+    public void onError(Throwable ex) {
+        for (Command<?> sync : running) {
+            sync.error(ex);
+        }
+        finish();
+    }
+
+    @Override
+    public Integer getInner() {
+        return null;
+    }
+
+    @Override
+    public void release() {
+    }
+
+    private void finish() {
+        running.clear();
+        syncing = false;
+        if (!next.isEmpty()) {
+            start();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package one.jasyncfio;
+
+/**
+ * Hashed timer wheel of the EventLoop. Time is split into ticks, a task goes into the bucket of the first tick
+ * after its deadline and carries the number of full rotations left, so adding a task is O(1) and every tick
+ * only visits the tasks of one bucket. Tasks never run before their deadline, but up to a tick late.
+ * <p>
+ * Cancelled tasks are dropped when the wheel reaches their bucket. The class is not thread safe,
+ * only the EventLoop thread touches it.
+ */
+class TimerWheel {
+    private final ScheduledTask[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final long startTime;
+    // the next tick to process
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param wheelSize number of buckets, must be power of 2
+     * @param tickNanos tick duration
+     * @param now       current {@link System#nanoTime()}
+     */
+    TimerWheel(int wheelSize, long tickNanos, long now) {
+        if (wheelSize <= 0 || (wheelSize & (wheelSize - 1)) != 0) {
+            throw new IllegalArgumentException("wheelSize must be positive and power of 2");
+        }
+        this.buckets = new ScheduledTask[wheelSize];
+        this.mask = wheelSize - 1;
+        this.tickNanos = tickNanos;
+        this.startTime = now;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(ScheduledTask task) {
+        // round up, the task must not run before its deadline
+        long deadlineTick = Math.max(ceilDiv(task.getDeadline() - startTime, tickNanos), currentTick);
+        task.remainingRounds = (deadlineTick - currentTick) / buckets.length;
+        int index = (int) (deadlineTick & mask);
+        task.next = buckets[index];
+        buckets[index] = task;
+        size++;
+    }
+
+    /**
+     * Runs the tasks of all ticks up to now and schedules the periodic ones again.
+     *
+     * @return true if any task has run
+     */
+    boolean expire(long now) {
+        long nowTick = Math.floorDiv(now - startTime, tickNanos);
+        boolean run = false;
+        while (currentTick <= nowTick && size > 0) {
+            int index = (int) (currentTick & mask);
+            ScheduledTask task = buckets[index];
+            buckets[index] = null;
+            // tasks added while this bucket runs go to the next ticks
+            currentTick++;
+            while (task != null) {
+                ScheduledTask next = task.next;
+                task.next = null;
+                if (task.isDone()) {
+                    size--;
+                } else if (task.remainingRounds > 0) {
+                    task.remainingRounds--;
+                    task.next = buckets[index];
+                    buckets[index] = task;
+                } else {
+                    size--;
+                    run = true;
+                    if (task.runTask()) {
+                        add(task);
+                    }
+                }
+                task = next;
+            }
+        }
+        if (size == 0 && currentTick <= nowTick) {
+            currentTick = nowTick + 1;
+        }
+        return run;
+    }
+
+    /**
+     * Time until the next tick that has tasks, the EventLoop must not sleep longer.
+     *
+     * @return nanos, 0 if the tick has come, -1 if the wheel is empty
+     */
+    long nanosToNextTick(long now) {
+        if (size == 0) {
+            return -1;
+        }
+        long tick = currentTick;
+        for (int i = 0; i < buckets.length; i++, tick++) {
+            if (buckets[(int) (tick & mask)] != null) {
+                break;
+            }
+        }
+        return Math.max(startTime + tick * tickNanos - now, 0);
+    }
+
+    /**
+     * Cancels all tasks, called when the EventLoop stops.
+     */
+    void cancelAll() {
+        for (int i = 0; i < buckets.length; i++) {
+            ScheduledTask task = buckets[i];
+            buckets[i] = null;
+            while (task != null) {
+                ScheduledTask next = task.next;
+                task.next = null;
+                task.cancel(false);
+                task = next;
+            }
+        }
+        size = 0;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+}
@@ -24,6 +24,28 @@ class UringConstants {
 
     static native int ioRingSetupAttachWq();
 
+    static native int ioRingSetupRDisabled();
+
+    static native int ioRingSetupSubmitAll();
+
+    static native int ioRingSetupCoopTaskrun();
+
+    static native int ioRingSetupTaskrunFlag();
+
+    static native int ioRingSetupSingleIssuer();
+
+    static native int ioRingSetupDeferTaskrun();
+
+    static native int ioRingSqTaskrun();
+
+    static native int ioRingRegisterEnableRings();
+
+    static native int ioRingRegisterRingFds();
+
+    static native int ioRingUnregisterRingFds();
+
+    static native int ioRingEnterRegisteredRing();
+
     static native byte ioRingOpRead();
 
     static native byte ioRingOpWrite();
@@ -64,6 +86,14 @@ class UringConstants {
 
     static native byte ioRingOpTimeoutRemove();
 
+    static native byte ioRingOpAsyncCancel();
+
+    static native byte ioRingOpLinkTimeout();
+
+    static native byte ioRingOpMsgRing();
+
+    static native int ioRingMsgData();
+
     static native byte ioRingOpSendMsg();
 
     static native byte ioRingOpRecvMsg();
@@ -76,6 +106,8 @@ class UringConstants {
 
     static native byte ioRingOpSendZc();
 
+    static native byte ioRingOpFadvise();
+
     static native int ioRingRegisterBuffers();
 
     static native int ioRingUnregisterBuffers();
@@ -84,6 +116,8 @@ class UringConstants {
 
     static native int ioRingUnregisterFiles();
 
+    static native int ioRingRegisterFilesUpdate();
+
     static native int ioRingRegisterProbe();
 
     public static native int ioRingRegisterPbufRing();
@@ -92,7 +126,25 @@ class UringConstants {
 
     static native int iosqeBufferSelect();
 
+    static native int iosqeFixedFile();
+
     static native int ioRingCqeFBuffer();
 
+    static native int iosqeIoLink();
+
+    static native int iosqeIoHardlink();
+
+    static native int ioRingAsyncCancelAll();
+
+    static native int ioRingAsyncCancelFd();
+
+    static native int ioRingAsyncCancelFdFixed();
+
+    static native int eCanceled();
+
+    static native int eTime();
+
+    static native int ioRingFeatMinTimeout();
+
     static native int ioRingUnregisterPbufRing();
 }
@@ -0,0 +1,121 @@
+package one.jasyncfio.collections;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size table of values addressed by a {@code long} key, intended for objects in flight in the kernel.
+ * The lower 32 bits of the key are the slot index, the upper bits hold the generation of the slot,
+ * which is incremented every time the slot is freed, so a key that has already been removed
+ * never matches a new value placed in the same slot. Free slots are linked into a free list,
+ * so both {@link #add(Object)} and {@link #remove(long)} are O(1) and never hash or probe.
+ * The table only grows when all slots are taken.
+ * <p>
+ * Keys never have the sign bit set. The class is not thread safe.
+ *
+ * @param <V> the value type stored in the table.
+ */
+public class SlotTable<V> {
+    private static final int GENERATION_MASK = Integer.MAX_VALUE;
+
+    private V[] values;
+    private int[] generations;
+    private int[] nextFree;
+    private int freeHead;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public SlotTable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        values = (V[]) new Object[capacity];
+        generations = new int[capacity];
+        nextFree = new int[capacity];
+        linkFree(0, capacity);
+        freeHead = 0;
+    }
+
+    /**
+     * Places the value into a free slot.
+     *
+     * @return key of the slot
+     */
+    public long add(V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        if (freeHead == -1) {
+            grow();
+        }
+        int slot = freeHead;
+        freeHead = nextFree[slot];
+        values[slot] = value;
+        size++;
+        return ((long) generations[slot] << 32) | slot;
+    }
+
+    /**
+     * Frees the slot addressed by the key.
+     *
+     * @return value of the slot or null if the key is stale or unknown
+     */
+    public V remove(long key) {
+        int slot = (int) key;
+        if (slot < 0 || slot >= values.length) {
+            return null;
+        }
+        V value = values[slot];
+        if (value == null || generations[slot] != (int) (key >>> 32)) {
+            return null;
+        }
+        values[slot] = null;
+        generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+        nextFree[slot] = freeHead;
+        freeHead = slot;
+        size--;
+        return value;
+    }
+
+    /**
+     * Returns the value of the slot addressed by the key or null if the key is stale or unknown.
+     */
+    public V get(long key) {
+        int slot = (int) key;
+        if (slot < 0 || slot >= values.length || generations[slot] != (int) (key >>> 32)) {
+            return null;
+        }
+        return values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void grow() {
+        int oldCapacity = values.length;
+        int newCapacity = oldCapacity << 1;
+        if (newCapacity < 0) {
+            throw new IllegalStateException("SlotTable is full");
+        }
+        values = Arrays.copyOf(values, newCapacity);
+        generations = Arrays.copyOf(generations, newCapacity);
+        nextFree = Arrays.copyOf(nextFree, newCapacity);
+        linkFree(oldCapacity, newCapacity);
+        freeHead = oldCapacity;
+    }
+
+    private void linkFree(int from, int to) {
+        for (int i = from; i < to - 1; i++) {
+            nextFree[i] = i + 1;
+        }
+        nextFree[to - 1] = -1;
+    }
+}
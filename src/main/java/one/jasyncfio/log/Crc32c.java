@@ -0,0 +1,45 @@
+package one.jasyncfio.log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * CRC-32C (Castagnoli) of the log records, java.util.zip.CRC32C is not available on Java 8.
+ * Table driven, one byte at a time; the checksum is computed on the caller's thread while the record is copied.
+ */
+final class Crc32c {
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+            TABLE[i] = crc;
+        }
+    }
+
+    private Crc32c() {
+    }
+
+    /**
+     * @return the checksum of the bytes of the buffer between offset and offset + length, the buffer position
+     * is not changed
+     */
+    static int compute(int crc, ByteBuffer buffer, int offset, int length) {
+        crc = ~crc;
+        for (int i = offset; i < offset + length; i++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ buffer.get(i)) & 0xFF];
+        }
+        return ~crc;
+    }
+
+    static int compute(int crc, long value) {
+        crc = ~crc;
+        for (int i = 0; i < 8; i++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ (int) (value >>> (i * 8))) & 0xFF];
+        }
+        return ~crc;
+    }
+}
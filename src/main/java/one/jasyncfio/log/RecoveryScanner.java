@@ -0,0 +1,223 @@
+package one.jasyncfio.log;
+
+import one.jasyncfio.AsyncFile;
+import one.jasyncfio.EventExecutor;
+import one.jasyncfio.OpenOption;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Finds the end of the log when it is opened and replays its records.
+ * <p>
+ * Segments are scanned a group at a time, the segments of a group in parallel. Each segment is read with
+ * {@link AsyncFile#readMany(long[], int[], ByteBuffer[])}, all chunks of it in flight at once, and its records
+ * are validated as soon as it is read. The records of a group are then replayed in LSN order. The log ends
+ * at the first segment that is not sealed, at its first invalid record; the segments after it only hold records
+ * written after a record that never made it to the device, which were never committed, so they are removed.
+ */
+class RecoveryScanner {
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final EventExecutor executor;
+    private final int segmentSize;
+    private final long[] indexes;
+    private final ByteBuffer[] buffers;
+    private final BiConsumer<Long, ByteBuffer> replay;
+
+    RecoveryScanner(Path directory, EventExecutor executor, int segmentSize, int parallelism, long[] indexes,
+                    BiConsumer<Long, ByteBuffer> replay) {
+        this.directory = directory;
+        this.executor = executor;
+        this.segmentSize = segmentSize;
+        this.indexes = indexes;
+        this.buffers = new ByteBuffer[Math.min(parallelism, Math.max(indexes.length, 1))];
+        this.replay = replay;
+    }
+
+    /**
+     * @return the end of the log
+     */
+    CompletableFuture<End> scan() {
+        if (indexes.length == 0) {
+            return CompletableFuture.completedFuture(new End(0, 0, 0, 0));
+        }
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(segmentSize);
+        }
+        return scanGroup(0);
+    }
+
+    private CompletableFuture<End> scanGroup(int first) {
+        int size = Math.min(buffers.length, indexes.length - first);
+        List<CompletableFuture<Scan>> scans = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            scans.add(scanSegment(indexes[first + i], buffers[i]));
+        }
+        return CompletableFuture.allOf(scans.toArray(new CompletableFuture<?>[0])).thenCompose(v -> {
+            for (int i = 0; i < size; i++) {
+                Scan scan = scans.get(i).join();
+                if (first + i > 0 && indexes[first + i] != indexes[first + i - 1] + 1) {
+                    // a missing segment ends the log after the sealed one before it
+                    End end = sealedEnd(indexes[first + i - 1]);
+                    return remove(scans, i, first + size).thenCompose(res -> closeAll(scans)).thenApply(res -> end);
+                }
+                scan.replay();
+                if (!scan.sealed) {
+                    End end = scan.end();
+                    return remove(scans, i + 1, first + size).thenCompose(res -> closeAll(scans)).thenApply(res -> end);
+                }
+            }
+            return closeAll(scans).thenCompose(res -> {
+                if (first + size == indexes.length) {
+                    return CompletableFuture.completedFuture(sealedEnd(indexes[indexes.length - 1]));
+                }
+                return scanGroup(first + size);
+            });
+        });
+    }
+
+    private End sealedEnd(long lastSealed) {
+        long index = lastSealed + 1;
+        return new End(index, index * segmentSize, 0, 0);
+    }
+
+    private CompletableFuture<Scan> scanSegment(long index, ByteBuffer buffer) {
+        return AsyncFile.open(directory.resolve(Segment.fileName(index)), executor, OpenOption.READ_ONLY)
+                .thenCompose(file -> {
+                    int chunks = (segmentSize + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                    long[] positions = new long[chunks];
+                    int[] lengths = new int[chunks];
+                    ByteBuffer[] targets = new ByteBuffer[chunks];
+                    for (int c = 0; c < chunks; c++) {
+                        positions[c] = (long) c * CHUNK_SIZE;
+                        lengths[c] = Math.min(CHUNK_SIZE, segmentSize - c * CHUNK_SIZE);
+                        ByteBuffer target = buffer.duplicate();
+                        target.position(c * CHUNK_SIZE);
+                        target.limit(c * CHUNK_SIZE + lengths[c]);
+                        targets[c] = target.slice();
+                    }
+                    return file.readMany(positions, lengths, targets).thenApply(read -> {
+                        int size = 0;
+                        for (int c = 0; c < chunks; c++) {
+                            size += read[c];
+                            if (read[c] < lengths[c]) {
+                                break;
+                            }
+                        }
+                        Scan scan = new Scan(file, index, buffer, size);
+                        scan.validate();
+                        return scan;
+                    });
+                });
+    }
+
+    /**
+     * Removes the scanned segments from the given one on and the segments not scanned yet, they are past
+     * the end of the log.
+     */
+    private CompletableFuture<Void> remove(List<CompletableFuture<Scan>> scans, int scannedFrom, int notScannedFrom) {
+        List<CompletableFuture<Integer>> removed = new ArrayList<>();
+        for (int i = scannedFrom; i < scans.size(); i++) {
+            removed.add(scans.get(i).join().file.remove());
+        }
+        for (int i = notScannedFrom; i < indexes.length; i++) {
+            removed.add(AsyncFile.open(directory.resolve(Segment.fileName(indexes[i])), executor, OpenOption.READ_ONLY)
+                    .thenCompose(file -> file.remove().thenCompose(res -> file.close())));
+        }
+        return CompletableFuture.allOf(removed.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private static CompletableFuture<Void> closeAll(List<CompletableFuture<Scan>> scans) {
+        CompletableFuture<?>[] closed = new CompletableFuture<?>[scans.size()];
+        for (int i = 0; i < closed.length; i++) {
+            closed[i] = scans.get(i).join().file.close();
+        }
+        return CompletableFuture.allOf(closed);
+    }
+
+    /**
+     * The position the log goes on from.
+     */
+    static final class End {
+        final long index;
+        final long lsn;
+        // bytes after the end that are not zero, a torn record, overwritten before the log goes on
+        final int dirtyOffset;
+        final int dirtyLength;
+
+        End(long index, long lsn, int dirtyOffset, int dirtyLength) {
+            this.index = index;
+            this.lsn = lsn;
+            this.dirtyOffset = dirtyOffset;
+            this.dirtyLength = dirtyLength;
+        }
+    }
+
+    private final class Scan {
+        private final AsyncFile file;
+        private final long index;
+        private final ByteBuffer buffer;
+        private final int size;
+        // offsets of the valid records
+        private int[] records = new int[64];
+        private int count;
+        private int end;
+        private boolean sealed;
+
+        Scan(AsyncFile file, long index, ByteBuffer buffer, int size) {
+            this.file = file;
+            this.index = index;
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        void validate() {
+            long baseLsn = index * segmentSize;
+            int offset = 0;
+            while (offset + Segment.HEADER_SIZE <= size) {
+                int length = buffer.getInt(offset);
+                int crc = buffer.getInt(offset + 4);
+                if (length == Segment.SEAL) {
+                    sealed = crc == Segment.checksum(baseLsn + offset, Segment.SEAL, buffer, 0);
+                    break;
+                }
+                if (length < 0 || length > size - offset - Segment.HEADER_SIZE
+                        || crc != Segment.checksum(baseLsn + offset, length, buffer, offset + Segment.HEADER_SIZE)) {
+                    break;
+                }
+                if (count == records.length) {
+                    records = Arrays.copyOf(records, count * 2);
+                }
+                records[count++] = offset;
+                offset += Segment.HEADER_SIZE + length;
+            }
+            end = offset;
+        }
+
+        void replay() {
+            long baseLsn = index * segmentSize;
+            for (int i = 0; i < count; i++) {
+                int offset = records[i];
+                ByteBuffer record = buffer.duplicate();
+                record.position(offset + Segment.HEADER_SIZE);
+                record.limit(offset + Segment.HEADER_SIZE + buffer.getInt(offset));
+                replay.accept(baseLsn + offset, record.slice().asReadOnlyBuffer());
+            }
+        }
+
+        End end() {
+            int dirty = size;
+            while (dirty > end && buffer.get(dirty - 1) == 0) {
+                dirty--;
+            }
+            return new End(index, index * segmentSize + end, end, dirty - end);
+        }
+    }
+}
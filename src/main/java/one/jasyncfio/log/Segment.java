@@ -0,0 +1,71 @@
+package one.jasyncfio.log;
+
+import one.jasyncfio.AsyncFile;
+import one.jasyncfio.EventExecutor;
+import one.jasyncfio.OpenOption;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A segment file of the log. Segment n holds the records with LSNs from n * segmentSize to (n + 1) * segmentSize,
+ * at file position LSN - n * segmentSize. Records are framed by an 8 byte header, the length of the record
+ * and the CRC-32C of its LSN, length and bytes; a header with length {@link Segment#SEAL} ends a segment
+ * the log went on from. The first record whose checksum does not match is the end of the log.
+ */
+final class Segment {
+    static final int HEADER_SIZE = 8;
+    static final int SEAL = -1;
+    private static final String SUFFIX = ".wal";
+
+    final long index;
+    final long baseLsn;
+    final CompletableFuture<AsyncFile> file;
+
+    Segment(long index, long baseLsn, CompletableFuture<AsyncFile> file) {
+        this.index = index;
+        this.baseLsn = baseLsn;
+        this.file = file;
+    }
+
+    /**
+     * Creates the segment file if it does not exist and preallocates it, so appends do not allocate blocks.
+     */
+    static Segment open(Path directory, long index, int segmentSize, EventExecutor executor) {
+        CompletableFuture<AsyncFile> file = AsyncFile.open(
+                directory.resolve(fileName(index)),
+                executor,
+                OpenOption.READ_WRITE,
+                OpenOption.CREATE
+        ).thenCompose(opened -> opened.preAllocate(segmentSize, 0).thenApply(res -> opened));
+        return new Segment(index, index * segmentSize, file);
+    }
+
+    static String fileName(long index) {
+        return String.format("%016x%s", index, SUFFIX);
+    }
+
+    /**
+     * @return the index of the segment file, or -1 if the name is not a segment name
+     */
+    static long indexOf(String fileName) {
+        if (fileName.length() != 16 + SUFFIX.length() || !fileName.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(0, 16), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static int checksum(long lsn, int length, ByteBuffer buffer, int offset) {
+        int crc = Crc32c.compute(Crc32c.compute(0, lsn), length);
+        return length > 0 ? Crc32c.compute(crc, buffer, offset, length) : crc;
+    }
+
+    CompletableFuture<Integer> close() {
+        return file.thenCompose(AsyncFile::close);
+    }
+}
@@ -0,0 +1,497 @@
+package one.jasyncfio.log;
+
+import one.jasyncfio.AsyncFile;
+import one.jasyncfio.EventExecutor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Write-ahead log on top of {@link AsyncFile}, all I/O runs on one {@link EventExecutor}.
+ * <p>
+ * The log is a directory of preallocated segment files. A record is identified by its log sequence number (LSN),
+ * the position of its frame in the log. {@link WriteAheadLog#append(ByteBuffer)} frames the record with its length
+ * and CRC-32C and copies it into a batch buffer, a full batch is written while the next one fills, so the writes
+ * of the log are pipelined and the appending thread never waits for the device.
+ * <p>
+ * {@link WriteAheadLog#commit(long)} makes the records up to an LSN durable. The tail batch is written and the segment
+ * synced as one linked write and fdatasync chain, see {@link EventExecutor#chain()}. At most one sync is in flight,
+ * commits arriving meanwhile wait for the next one, which covers all of them, so a burst of commits from many
+ * threads costs a single sync.
+ * <p>
+ * A record that does not fit in the current segment goes to the next one, opened and preallocated in advance.
+ * The current segment is sealed with a seal record and synced, the commits of the records in the next segment
+ * wait for the seal. When the log is opened, the segments are scanned, the records are replayed and the log goes on
+ * after the last valid record; a torn record at the end is erased.
+ * <p>
+ * The log is thread safe. A failed write or sync fails the log, the appends and commits after it fail too.
+ */
+public class WriteAheadLog {
+    private static final int POOLED_BATCHES = 4;
+
+    private final Path directory;
+    private final EventExecutor executor;
+    private final int segmentSize;
+    private final int batchSize;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    // writes, syncs and seals in flight
+    private final Set<CompletableFuture<?>> writes = new HashSet<>();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(Comparator.comparingLong(waiter -> waiter.lsn));
+    private Segment current;
+    private Segment next;
+    private ByteBuffer batch;
+    // segment position of the first byte of the batch
+    private int batchStart;
+    private long durableLsn;
+    private boolean syncing;
+    private Throwable failure;
+    private boolean closed;
+
+    private WriteAheadLog(Path directory, EventExecutor executor, int segmentSize, int batchSize, Segment current,
+                          long lsn) {
+        this.directory = directory;
+        this.executor = executor;
+        this.segmentSize = segmentSize;
+        this.batchSize = batchSize;
+        this.current = current;
+        this.next = Segment.open(directory, current.index + 1, segmentSize, executor);
+        this.batch = borrow();
+        this.batchStart = (int) (lsn - current.baseLsn);
+        this.durableLsn = lsn;
+    }
+
+    public static Builder builder(Path directory, EventExecutor executor) {
+        return new Builder(directory, executor);
+    }
+
+    /**
+     * Appends a record. The bytes are copied and the buffer position advanced to its limit.
+     *
+     * @param record the remaining bytes of the buffer are the record, any buffer
+     * @return the LSN of the record; the record is durable once a {@link WriteAheadLog#commit(long)}
+     * of it completes
+     */
+    public synchronized long append(ByteBuffer record) {
+        if (failure != null) {
+            throw new IllegalStateException("log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("log is closed");
+        }
+        int length = record.remaining();
+        // room for the seal after the record
+        if (length > segmentSize - 2 * Segment.HEADER_SIZE) {
+            throw new IllegalArgumentException("record must be at most " + (segmentSize - 2 * Segment.HEADER_SIZE) + " bytes");
+        }
+        int frame = Segment.HEADER_SIZE + length;
+        if (batchStart + batch.position() + frame + Segment.HEADER_SIZE > segmentSize) {
+            roll();
+        }
+        long lsn = current.baseLsn + batchStart + batch.position();
+        if (frame > batch.remaining()) {
+            writeBatch();
+        }
+        if (frame > batch.capacity()) {
+            // a record larger than a batch is written by itself
+            ByteBuffer large = ByteBuffer.allocateDirect(frame);
+            put(large, lsn, record);
+            batchStart += frame;
+            write(current, large, batchStart - frame, false);
+        } else {
+            put(batch, lsn, record);
+        }
+        return lsn;
+    }
+
+    /**
+     * Makes the records up to the given LSN durable.
+     *
+     * @param lsn an LSN returned by {@link WriteAheadLog#append(ByteBuffer)}
+     * @return the durable LSN, every record with a smaller LSN is durable; it is greater than the given one
+     */
+    public synchronized CompletableFuture<Long> commit(long lsn) {
+        if (lsn < 0 || lsn >= getNextLsn()) {
+            throw new IllegalArgumentException("lsn " + lsn + " is not appended");
+        }
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        if (failure != null) {
+            future.completeExceptionally(failure);
+            return future;
+        }
+        if (lsn < durableLsn) {
+            future.complete(durableLsn);
+            return future;
+        }
+        waiters.add(new Waiter(lsn, future));
+        if (!syncing) {
+            startSync();
+        }
+        return future;
+    }
+
+    /**
+     * Makes all the records appended so far durable.
+     *
+     * @return the durable LSN, see {@link WriteAheadLog#commit(long)}
+     */
+    public synchronized CompletableFuture<Long> commit() {
+        long nextLsn = getNextLsn();
+        if (nextLsn == durableLsn) {
+            return CompletableFuture.completedFuture(durableLsn);
+        }
+        if (nextLsn == current.baseLsn) {
+            // nothing is appended to the current segment, the sealed ones are synced by their seals
+            return commitSealed();
+        }
+        return commit(nextLsn - 1);
+    }
+
+    /**
+     * Commits the appended records, the appends after it fail. The segment files are closed once the writes
+     * in flight complete.
+     *
+     * @return see {@link WriteAheadLog#commit()}
+     */
+    public CompletableFuture<Long> close() {
+        CompletableFuture<Long> committed;
+        CompletableFuture<?>[] inFlight;
+        synchronized (this) {
+            committed = commit();
+            if (closed) {
+                return committed;
+            }
+            closed = true;
+            inFlight = writes.toArray(new CompletableFuture<?>[0]);
+        }
+        Segment last = current;
+        Segment following = next;
+        return committed.thenCompose(lsn -> CompletableFuture.allOf(inFlight)
+                .thenCompose(v -> CompletableFuture.allOf(last.close(), following.close()))
+                .thenApply(v -> lsn));
+    }
+
+    /**
+     * Returns the durable LSN, every record with a smaller LSN is durable.
+     */
+    public synchronized long getDurableLsn() {
+        return durableLsn;
+    }
+
+    /**
+     * Returns the LSN the next record appended to the current segment gets.
+     */
+    public synchronized long getNextLsn() {
+        return current.baseLsn + batchStart + batch.position();
+    }
+
+    /**
+     * Returns the directory of the segment files.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private static void put(ByteBuffer buffer, long lsn, ByteBuffer record) {
+        int start = buffer.position();
+        int length = record.remaining();
+        buffer.position(start + Segment.HEADER_SIZE);
+        buffer.put(record);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, Segment.checksum(lsn, length, buffer, start + Segment.HEADER_SIZE));
+    }
+
+    /**
+     * Seals the current segment and goes on with the next one. The seal and the records of the segment
+     * are synced once the writes to the segment complete, then the segment is closed.
+     */
+    private void roll() {
+        if (batch.remaining() < Segment.HEADER_SIZE) {
+            writeBatch();
+        }
+        int start = batch.position();
+        batch.putInt(start, Segment.SEAL);
+        batch.putInt(start + 4, Segment.checksum(current.baseLsn + batchStart + start, Segment.SEAL, batch, 0));
+        batch.position(start + Segment.HEADER_SIZE);
+        Segment sealed = current;
+        ByteBuffer tail = batch;
+        int tailStart = batchStart;
+        CompletableFuture<Integer> seal = afterWrites().thenCompose(v -> sealed.file)
+                .thenCompose(file -> executor.chain()
+                        .write(file, slice(tail), tailStart, tail.position())
+                        .dataSync(file)
+                        .submit())
+                .thenCompose(res -> sealed.close());
+        track(seal, tail);
+        current = next;
+        next = Segment.open(directory, current.index + 1, segmentSize, executor);
+        batch = borrow();
+        batchStart = 0;
+    }
+
+    private void writeBatch() {
+        if (batch.position() == 0) {
+            return;
+        }
+        ByteBuffer full = batch;
+        int start = batchStart;
+        batch = borrow();
+        // a write completing right away recycles the buffer before write returns
+        batchStart += full.position();
+        write(current, full, start, true);
+    }
+
+    private void write(Segment segment, ByteBuffer buffer, int position, boolean pooled) {
+        CompletableFuture<Integer> write = segment.file.thenCompose(file -> write(file, slice(buffer), position));
+        track(write, pooled ? buffer : null);
+    }
+
+    private static CompletableFuture<Integer> write(AsyncFile file, ByteBuffer slice, long position) {
+        int length = slice.remaining();
+        return file.write(slice, position, length).thenCompose(written -> {
+            if (written == length) {
+                return CompletableFuture.completedFuture(written);
+            }
+            if (written == 0) {
+                throw new CompletionException(new IOException("no bytes written at position " + position));
+            }
+            // the rest of a short write, the buffer position is advanced by the bytes written
+            return write(file, slice, position + written);
+        });
+    }
+
+    /**
+     * Issues the next sync, it writes the tail batch and syncs the current segment once the writes before it
+     * complete, the LSNs appended so far are durable when it completes.
+     */
+    private void startSync() {
+        syncing = true;
+        long target = getNextLsn();
+        Segment segment = current;
+        ByteBuffer tail = null;
+        int tailStart = batchStart;
+        if (batch.position() > 0) {
+            tail = batch;
+            batch = borrow();
+            batchStart += tail.position();
+        }
+        ByteBuffer written = tail;
+        CompletableFuture<Integer> sync = afterWrites().thenCompose(v -> segment.file).thenCompose(file -> {
+            if (written == null) {
+                return file.dataSync();
+            }
+            return executor.chain()
+                    .write(file, slice(written), tailStart, written.position())
+                    .dataSync(file)
+                    .submit();
+        });
+        writes.add(sync);
+        sync.whenComplete((res, ex) -> synced(sync, written, target, ex));
+    }
+
+    /**
+     * Syncs the segments sealed before, for a commit with no records appended to the current segment.
+     */
+    private CompletableFuture<Long> commitSealed() {
+        if (failure != null) {
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            future.completeExceptionally(failure);
+            return future;
+        }
+        long target = getNextLsn();
+        return afterWrites().thenApply(v -> {
+            synchronized (this) {
+                durableLsn = Math.max(durableLsn, target);
+                return durableLsn;
+            }
+        });
+    }
+
+    private synchronized void synced(CompletableFuture<Integer> sync, ByteBuffer tail, long target, Throwable ex) {
+        syncing = false;
+        writes.remove(sync);
+        if (tail != null) {
+            recycle(tail);
+        }
+        if (ex != null) {
+            fail(ex);
+            return;
+        }
+        durableLsn = Math.max(durableLsn, target);
+        while (!waiters.isEmpty() && waiters.peek().lsn < durableLsn) {
+            waiters.poll().future.complete(durableLsn);
+        }
+        if (!waiters.isEmpty() && failure == null) {
+            startSync();
+        }
+    }
+
+    private CompletableFuture<Void> afterWrites() {
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void track(CompletableFuture<Integer> write, ByteBuffer pooled) {
+        writes.add(write);
+        write.whenComplete((res, ex) -> completed(write, pooled, ex));
+    }
+
+    private synchronized void completed(CompletableFuture<Integer> write, ByteBuffer pooled, Throwable ex) {
+        writes.remove(write);
+        if (pooled != null) {
+            recycle(pooled);
+        }
+        if (ex != null) {
+            fail(ex);
+        }
+    }
+
+    private void fail(Throwable ex) {
+        if (failure != null) {
+            return;
+        }
+        failure = ex;
+        Iterator<Waiter> iterator = waiters.iterator();
+        while (iterator.hasNext()) {
+            iterator.next().future.completeExceptionally(ex);
+            iterator.remove();
+        }
+    }
+
+    private ByteBuffer borrow() {
+        ByteBuffer buffer = free.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(batchSize);
+    }
+
+    private void recycle(ByteBuffer buffer) {
+        buffer.clear();
+        if (free.size() < POOLED_BATCHES) {
+            free.add(buffer);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.flip();
+        return slice;
+    }
+
+    private static final class Waiter {
+        private final long lsn;
+        private final CompletableFuture<Long> future;
+
+        Waiter(long lsn, CompletableFuture<Long> future) {
+            this.lsn = lsn;
+            this.future = future;
+        }
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private final EventExecutor executor;
+        private int segmentSize = 64 * 1024 * 1024;
+        private int batchSize = 256 * 1024;
+        private int recoveryParallelism = 4;
+
+        private Builder(Path directory, EventExecutor executor) {
+            this.directory = directory;
+            this.executor = executor;
+        }
+
+        /**
+         * Size of the segment files, preallocated when a segment is created; a record is at most
+         * the segment size minus 16 bytes. Must not change once the log is created.
+         * <p>
+         * Default: 64MiB
+         */
+        public Builder segmentSize(int segmentSize) {
+            if (segmentSize <= 2 * Segment.HEADER_SIZE) {
+                throw new IllegalArgumentException("segmentSize must be greater than " + 2 * Segment.HEADER_SIZE);
+            }
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Size of the batch buffers, records are written a batch at a time, larger records by themselves.
+         * <p>
+         * Default: 256KiB
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 2 * Segment.HEADER_SIZE) {
+                throw new IllegalArgumentException("batchSize must be at least " + 2 * Segment.HEADER_SIZE);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Number of segments read at once when the log is opened, each one takes a buffer of the segment size.
+         * <p>
+         * Default: 4
+         */
+        public Builder recoveryParallelism(int recoveryParallelism) {
+            if (recoveryParallelism <= 0) {
+                throw new IllegalArgumentException("recoveryParallelism must be positive");
+            }
+            this.recoveryParallelism = recoveryParallelism;
+            return this;
+        }
+
+        /**
+         * Opens the log in the directory, it is created if the directory has no segment files.
+         *
+         * @param replay gets the LSN and the bytes of every record of the log, in LSN order, on the EventLoop thread;
+         *               the buffer is read-only and valid only during the call
+         * @return the log, appends go on after the last record
+         */
+        public CompletableFuture<WriteAheadLog> open(BiConsumer<Long, ByteBuffer> replay) {
+            long[] indexes;
+            try (Stream<Path> files = Files.list(directory)) {
+                indexes = files.mapToLong(file -> Segment.indexOf(file.getFileName().toString()))
+                        .filter(index -> index >= 0)
+                        .sorted()
+                        .toArray();
+            } catch (IOException e) {
+                CompletableFuture<WriteAheadLog> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                return future;
+            }
+            RecoveryScanner scanner = new RecoveryScanner(
+                    directory,
+                    executor,
+                    segmentSize,
+                    recoveryParallelism,
+                    indexes,
+                    replay
+            );
+            return scanner.scan().thenCompose(end -> {
+                Segment segment = Segment.open(directory, end.index, segmentSize, executor);
+                CompletableFuture<AsyncFile> opened = end.dirtyLength == 0 ? segment.file : segment.file.thenCompose(file -> {
+                    // a later record of the same length as the torn one would make the bytes after it valid again
+                    ByteBuffer zeros = ByteBuffer.allocateDirect(end.dirtyLength);
+                    return write(file, zeros, end.dirtyOffset).thenCompose(res -> file.dataSync()).thenApply(res -> file);
+                });
+                return opened.thenApply(file -> new WriteAheadLog(directory, executor, segmentSize, batchSize, segment, end.lsn));
+            });
+        }
+
+        /**
+         * Opens the log and skips its records, see {@link Builder#open(BiConsumer)}.
+         */
+        public CompletableFuture<WriteAheadLog> open() {
+            return open((lsn, record) -> {
+            });
+        }
+    }
+}
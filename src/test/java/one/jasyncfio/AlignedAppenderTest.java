@@ -0,0 +1,150 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AlignedAppenderTest {
+    private static final int PAGE = (int) MemoryUtils.getPageSize();
+
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(16)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void smallAppends() throws Exception {
+        Path path = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(path, executor, OpenOption.READ_WRITE, OpenOption.DIRECT).get(1000, TimeUnit.MILLISECONDS);
+        AlignedAppender appender = AlignedAppender.open(file, 0, 4 * PAGE, 2).get(1000, TimeUnit.MILLISECONDS);
+        byte[] expected = new byte[1000 * 37];
+        List<CompletableFuture<Long>> positions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            byte[] record = new byte[37];
+            Arrays.fill(record, (byte) i);
+            System.arraycopy(record, 0, expected, i * 37, 37);
+            positions.add(appender.append(ByteBuffer.wrap(record)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 37L, positions.get(i).get(1000, TimeUnit.MILLISECONDS));
+        }
+        assertEquals(expected.length, appender.sync().get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(expected.length, appender.getPosition());
+        byte[] content = Files.readAllBytes(path);
+        // the tail is padded to the page size
+        assertEquals((expected.length + PAGE - 1) / PAGE * PAGE, content.length);
+        assertArrayEquals(expected, Arrays.copyOf(content, expected.length));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void flushAfterEveryAppend() throws Exception {
+        Path path = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(path, executor, OpenOption.READ_WRITE, OpenOption.DIRECT).get(1000, TimeUnit.MILLISECONDS);
+        AlignedAppender appender = AlignedAppender.open(file, 0, PAGE, 3).get(1000, TimeUnit.MILLISECONDS);
+        byte[] expected = new byte[300 * 100];
+        List<CompletableFuture<Long>> flushes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            byte[] record = new byte[100];
+            Arrays.fill(record, (byte) (i + 1));
+            System.arraycopy(record, 0, expected, i * 100, 100);
+            appender.append(ByteBuffer.wrap(record));
+            // flushes of the same tail block are not waited for, they must land in order
+            flushes.add(appender.flush());
+        }
+        for (int i = 0; i < 300; i++) {
+            // a flush waiting for a buffer covers the appends after it too
+            assertTrue(flushes.get(i).get(1000, TimeUnit.MILLISECONDS) >= (i + 1) * 100L);
+        }
+        byte[] content = Files.readAllBytes(path);
+        assertArrayEquals(expected, Arrays.copyOf(content, expected.length));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void largeAppendsWaitForBuffers() throws Exception {
+        Path path = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(path, executor, OpenOption.READ_WRITE, OpenOption.DIRECT).get(1000, TimeUnit.MILLISECONDS);
+        AlignedAppender appender = AlignedAppender.open(file, 0, PAGE, 2).get(1000, TimeUnit.MILLISECONDS);
+        byte[] expected = new byte[16 * PAGE + 123];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) (i * 31);
+        }
+        ByteBuffer first = ByteBuffer.wrap(expected, 0, 10 * PAGE + 5);
+        ByteBuffer second = ByteBuffer.wrap(expected, 10 * PAGE + 5, expected.length - 10 * PAGE - 5);
+        CompletableFuture<Long> firstAppend = appender.append(first);
+        CompletableFuture<Long> secondAppend = appender.append(second);
+        assertEquals(0, firstAppend.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(10L * PAGE + 5, secondAppend.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(0, first.remaining());
+        assertEquals(0, second.remaining());
+        assertEquals(expected.length, appender.close().get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(ExecutionException.class, () -> appender.append(ByteBuffer.allocate(1)).get(1000, TimeUnit.MILLISECONDS));
+        assertArrayEquals(expected, Arrays.copyOf(Files.readAllBytes(path), expected.length));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void appendAfterUnalignedTail() throws Exception {
+        byte[] existing = new byte[PAGE + 500];
+        Arrays.fill(existing, (byte) 7);
+        Path path = Files.write(Files.createTempFile(tmpDir, "test-", " file"), existing);
+        AsyncFile file = AsyncFile.open(path, executor, OpenOption.READ_WRITE, OpenOption.DIRECT).get(1000, TimeUnit.MILLISECONDS);
+        AlignedAppender appender = AlignedAppender.open(file, existing.length, 2 * PAGE, 2).get(1000, TimeUnit.MILLISECONDS);
+        byte[] record = new byte[PAGE];
+        Arrays.fill(record, (byte) 9);
+        assertEquals(existing.length, appender.append(ByteBuffer.wrap(record)).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(existing.length + PAGE, appender.sync().get(1000, TimeUnit.MILLISECONDS));
+        byte[] content = Files.readAllBytes(path);
+        for (int i = 0; i < existing.length + PAGE; i++) {
+            assertEquals(i < existing.length ? 7 : 9, content[i]);
+        }
+        assertThrows(ExecutionException.class,
+                () -> AlignedAppender.open(file, 10L * PAGE + 1, PAGE, 2).get(1000, TimeUnit.MILLISECONDS));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void failedWrite() throws Exception {
+        Path path = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(path, executor, OpenOption.READ_ONLY, OpenOption.DIRECT).get(1000, TimeUnit.MILLISECONDS);
+        AlignedAppender appender = AlignedAppender.open(file, 0, PAGE, 2).get(1000, TimeUnit.MILLISECONDS);
+        appender.append(ByteBuffer.wrap(new byte[10])).get(1000, TimeUnit.MILLISECONDS);
+        assertThrows(ExecutionException.class, () -> appender.flush().get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(ExecutionException.class, () -> appender.append(ByteBuffer.allocate(1)).get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(ExecutionException.class, () -> appender.sync().get(1000, TimeUnit.MILLISECONDS));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void invalidArguments() throws Exception {
+        AsyncFile file = AsyncFile.open(Files.createTempFile(tmpDir, "test-", " file"), executor, OpenOption.READ_WRITE)
+                .get(1000, TimeUnit.MILLISECONDS);
+        assertThrows(IllegalArgumentException.class, () -> AlignedAppender.open(file, -1, PAGE, 2));
+        assertThrows(IllegalArgumentException.class, () -> AlignedAppender.open(file, 0, PAGE + 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> AlignedAppender.open(file, 0, PAGE, 1));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+}
@@ -321,6 +321,26 @@ public class AsyncFileTest {
         CommonFileTests.open_newFile(prepareFile());
     }
 
+    @Test
+    void read_handler() throws Exception {
+        CommonFileTests.read_handler(prepareFile(OpenOption.READ_WRITE));
+    }
+
+    @Test
+    void write_handler() throws Exception {
+        CommonFileTests.write_handler(prepareFile(OpenOption.READ_WRITE));
+    }
+
+    @Test
+    void readv_handler() throws Exception {
+        CommonFileTests.readv_handler(prepareFile(OpenOption.READ_WRITE));
+    }
+
+    @Test
+    void dataSync_handler_closedFile() throws Exception {
+        CommonFileTests.dataSync_handler_closedFile(prepareFile());
+    }
+
     @Test
     @Disabled("undetectable CI failures, probably because of alignment")
     void read_aligned() throws Exception {
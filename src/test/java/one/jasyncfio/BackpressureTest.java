@@ -0,0 +1,93 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BackpressureTest {
+
+    @TempDir
+    private Path tmpDir;
+
+    @Test
+    void overflowQueued() throws Exception {
+        EventExecutor executor = EventExecutor.builder()
+                .maxInFlight(1)
+                .build();
+        try {
+            Path fifo = tmpDir.resolve("fifo");
+            assertEquals(0, new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor());
+            AsyncFile file = AsyncFile.open(fifo, executor, OpenOption.READ_WRITE).get(1000, TimeUnit.MILLISECONDS);
+            List<CompletableFuture<Integer>> reads = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                reads.add(file.read(ByteBuffer.allocateDirect(4), 0, 4));
+            }
+            // one read waits in the kernel, the others in the executor
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (executor.getInFlightCount() != 3 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(3, executor.getInFlightCount());
+            assertFalse(executor.hasCapacity());
+            assertNull(file.tryRead(ByteBuffer.allocateDirect(4), 0, 4));
+            try (FileOutputStream out = new FileOutputStream(fifo.toFile())) {
+                out.write(new byte[12]);
+            }
+            for (CompletableFuture<Integer> read : reads) {
+                assertEquals(4, read.get(1000, TimeUnit.MILLISECONDS));
+            }
+            file.close().get(1000, TimeUnit.MILLISECONDS);
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    void moreCommandsThanEntries() throws Exception {
+        readConcurrently(EventExecutor.builder()
+                .entries(2)
+                .build());
+    }
+
+    @Test
+    void limitAboveEntries() throws Exception {
+        // the submission queue fills up before the limit is reached
+        readConcurrently(EventExecutor.builder()
+                .entries(2)
+                .maxInFlight(64)
+                .build());
+    }
+
+    private void readConcurrently(EventExecutor executor) throws Exception {
+        try {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            String expected = CommonFileTests.prepareString(100);
+            CommonFileTests.writeStringToFile(expected, tempFile);
+            AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+            List<CompletableFuture<Integer>> reads = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                reads.add(file.read(ByteBuffer.allocateDirect(16), i, 16));
+            }
+            for (CompletableFuture<Integer> read : reads) {
+                assertEquals(16, read.get(1000, TimeUnit.MILLISECONDS));
+            }
+            assertTrue(file.tryRead(ByteBuffer.allocateDirect(16), 0, 16).get(1000, TimeUnit.MILLISECONDS) > 0);
+            file.close().get(1000, TimeUnit.MILLISECONDS);
+        } finally {
+            executor.close();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockCacheTest {
+    private static final int BLOCK = 4096;
+
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(16)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void hitsAndMisses() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, 16 * BLOCK), executor, OpenOption.READ_ONLY, OpenOption.DIRECT)
+                .get(1000, TimeUnit.MILLISECONDS);
+        BlockCache cache = new BlockCache(8, BLOCK);
+        try (CachedBlock block = cache.read(file, 3L * BLOCK + 100).get(1000, TimeUnit.MILLISECONDS)) {
+            assertEquals(3L * BLOCK, block.getPosition());
+            assertEquals(BLOCK, block.getBuffer().remaining());
+            assertEquals((byte) 3, block.getBuffer().get(0));
+            assertEquals((byte) 3, block.getBuffer().get(BLOCK - 1));
+            assertTrue(block.getBuffer().isReadOnly());
+        }
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        try (CachedBlock block = cache.tryRead(file, 3L * BLOCK)) {
+            assertNotNull(block);
+            assertEquals((byte) 3, block.getBuffer().get(0));
+        }
+        try (CachedBlock block = cache.read(file, 4L * BLOCK - 1).get(1000, TimeUnit.MILLISECONDS)) {
+            assertEquals((byte) 3, block.getBuffer().get(0));
+        }
+        assertNull(cache.tryRead(file, 4L * BLOCK));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(0, cache.getEvictionCount());
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void lastBlock() throws Exception {
+        byte[] content = new byte[BLOCK * 2 + BLOCK / 2];
+        content[content.length - 1] = 42;
+        Path path = Files.write(Files.createTempFile(tmpDir, "test-", " file"), content);
+        AsyncFile file = AsyncFile.open(path, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        BlockCache cache = new BlockCache(4, BLOCK);
+        try (CachedBlock block = cache.read(file, 2L * BLOCK).get(1000, TimeUnit.MILLISECONDS)) {
+            assertEquals(BLOCK / 2, block.getBuffer().remaining());
+            assertEquals((byte) 42, block.getBuffer().get(BLOCK / 2 - 1));
+        }
+        try (CachedBlock block = cache.read(file, 3L * BLOCK).get(1000, TimeUnit.MILLISECONDS)) {
+            assertEquals(0, block.getBuffer().remaining());
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void concurrentReadersOfLoadingBlock() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, 4 * BLOCK), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        BlockCache cache = new BlockCache(4, BLOCK);
+        CompletableFuture<CachedBlock> first = cache.read(file, BLOCK);
+        CompletableFuture<CachedBlock> second = cache.read(file, BLOCK);
+        CachedBlock firstBlock = first.get(1000, TimeUnit.MILLISECONDS);
+        CachedBlock secondBlock = second.get(1000, TimeUnit.MILLISECONDS);
+        assertEquals((byte) 1, firstBlock.getBuffer().get(0));
+        assertEquals((byte) 1, secondBlock.getBuffer().get(0));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        firstBlock.close();
+        secondBlock.close();
+        assertThrows(IllegalStateException.class, secondBlock::close);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void evictionAndPinning() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, 4 * BLOCK), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        BlockCache cache = new BlockCache(2, BLOCK);
+        CachedBlock zero = cache.read(file, 0).get(1000, TimeUnit.MILLISECONDS);
+        CachedBlock one = cache.read(file, BLOCK).get(1000, TimeUnit.MILLISECONDS);
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> cache.read(file, 2L * BLOCK).get(1000, TimeUnit.MILLISECONDS));
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+        zero.close();
+        try (CachedBlock two = cache.read(file, 2L * BLOCK).get(1000, TimeUnit.MILLISECONDS)) {
+            assertEquals((byte) 2, two.getBuffer().get(0));
+        }
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.tryRead(file, 0));
+        // the pinned block was not evicted
+        assertEquals((byte) 1, one.getBuffer().get(0));
+        one.close();
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void scanResistance() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, 64 * BLOCK), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        BlockCache cache = new BlockCache(4, BLOCK);
+        for (int i = 0; i < 5; i++) {
+            for (int hot = 0; hot < 2; hot++) {
+                cache.read(file, (long) hot * BLOCK).get(1000, TimeUnit.MILLISECONDS).close();
+            }
+        }
+        for (int scan = 8; scan < 64; scan++) {
+            try (CachedBlock block = cache.read(file, (long) scan * BLOCK).get(1000, TimeUnit.MILLISECONDS)) {
+                assertEquals((byte) scan, block.getBuffer().get(0));
+            }
+        }
+        for (int hot = 0; hot < 2; hot++) {
+            try (CachedBlock block = cache.tryRead(file, (long) hot * BLOCK)) {
+                assertNotNull(block);
+                assertEquals((byte) hot, block.getBuffer().get(0));
+            }
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void invalidate() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, 4 * BLOCK), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        AsyncFile other = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, 4 * BLOCK), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        BlockCache cache = new BlockCache(2, BLOCK);
+        cache.read(file, 0).get(1000, TimeUnit.MILLISECONDS).close();
+        CachedBlock leased = cache.read(other, 0).get(1000, TimeUnit.MILLISECONDS);
+        cache.invalidate(file);
+        cache.invalidate(other);
+        assertNull(cache.tryRead(file, 0));
+        assertNull(cache.tryRead(other, 0));
+        // the lease stays readable until it is closed, then its frame is reused
+        assertEquals((byte) 0, leased.getBuffer().get(0));
+        leased.close();
+        CachedBlock two = cache.read(file, 2L * BLOCK).get(1000, TimeUnit.MILLISECONDS);
+        CachedBlock three = cache.read(other, 3L * BLOCK).get(1000, TimeUnit.MILLISECONDS);
+        assertEquals((byte) 2, two.getBuffer().get(0));
+        assertEquals((byte) 3, three.getBuffer().get(0));
+        two.close();
+        three.close();
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+        other.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void closeDropsBlocks() throws Exception {
+        Path path = CommonFileTests.blocksFile(tmpDir, BLOCK, 4 * BLOCK);
+        BlockCache cache = new BlockCache(1, BLOCK);
+        AsyncFile file = AsyncFile.open(path, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        cache.read(file, 0).get(1000, TimeUnit.MILLISECONDS).close();
+        assertTrue(file.getCacheId() >= 0);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(-1, file.getCacheId());
+        // the frame is free, the file opened again does not see the blocks of the closed one
+        AsyncFile reopened = AsyncFile.open(path, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        assertNull(cache.tryRead(reopened, 0));
+        CachedBlock block = cache.read(reopened, BLOCK).get(1000, TimeUnit.MILLISECONDS);
+        assertEquals((byte) 1, block.getBuffer().get(0));
+        block.close();
+        assertEquals(1, cache.getEvictionCount());
+        reopened.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void failedRead() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, 4 * BLOCK), executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        BlockCache cache = new BlockCache(1, BLOCK);
+        assertThrows(ExecutionException.class, () -> cache.read(file, 0).get(1000, TimeUnit.MILLISECONDS));
+        assertNull(cache.tryRead(file, 0));
+        // the frame was given back
+        assertThrows(ExecutionException.class, () -> cache.read(file, BLOCK).get(1000, TimeUnit.MILLISECONDS));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new BlockCache(0, BLOCK));
+        assertThrows(IllegalArgumentException.class, () -> new BlockCache(1, 256));
+        assertThrows(IllegalArgumentException.class, () -> new BlockCache(1, 3000));
+    }
+}
@@ -0,0 +1,124 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CancellationTest {
+    private EventExecutor executor;
+
+    @TempDir
+    private Path tmpDir;
+
+    @BeforeEach
+    public void before() {
+        executor = EventExecutor.initDefault();
+    }
+
+    @AfterEach
+    public void after() {
+        executor.close();
+    }
+
+    @Test
+    void read_timeout() throws Exception {
+        AsyncFile fifo = openFifo();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        ExecutionException ex = assertThrows(ExecutionException.class, () ->
+                fifo.read(buffer, 0, 16, 10, TimeUnit.MILLISECONDS).get(1000, TimeUnit.MILLISECONDS));
+        assertTrue(ex.getCause() instanceof TimeoutException);
+        assertEquals(0, buffer.position());
+        fifo.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void read_beforeTimeout() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        String expected = CommonFileTests.prepareString(10);
+        CommonFileTests.writeStringToFile(expected, tempFile);
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length());
+        assertEquals(expected.length(),
+                file.read(buffer, 0, expected.length(), 1, TimeUnit.SECONDS).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(expected.length(), buffer.position());
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void write_beforeTimeout() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        assertEquals(16, file.write(buffer, 0, 16, 1, TimeUnit.SECONDS).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(16, Files.size(tempFile));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void cancel() throws Exception {
+        AsyncFile fifo = openFifo();
+        CompletableFuture<Integer> read = fifo.read(ByteBuffer.allocateDirect(16), 0, 16);
+        assertTrue(read.cancel(true));
+        assertTrue(read.isCancelled());
+        // the request leaves the kernel, nothing is in flight anymore
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (executor.getInFlightCount() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, executor.getInFlightCount());
+        fifo.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void cancel_beforeSubmission() throws Exception {
+        executor.close();
+        executor = EventExecutor.builder()
+                .maxInFlight(1)
+                .build();
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        AsyncFile fifo = openFifo();
+        CompletableFuture<Integer> stuck = fifo.read(ByteBuffer.allocateDirect(16), 0, 16);
+        // waits in the overflow queue behind the stuck read
+        CompletableFuture<Integer> write = file.write(ByteBuffer.allocateDirect(16), 0, 16);
+        assertTrue(write.cancel(true));
+        assertTrue(stuck.cancel(true));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (executor.getInFlightCount() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, executor.getInFlightCount());
+        // the write is dropped, not submitted
+        assertEquals(0, Files.size(tempFile));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+        fifo.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void close_cancelsInFlight() throws Exception {
+        AsyncFile fifo = openFifo();
+        CompletableFuture<Integer> read = fifo.read(ByteBuffer.allocateDirect(16), 0, 16);
+        assertEquals(0, fifo.close().get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(ExecutionException.class, () -> read.get(1000, TimeUnit.MILLISECONDS));
+    }
+
+    private AsyncFile openFifo() throws Exception {
+        Path fifo = tmpDir.resolve("fifo");
+        assertEquals(0, new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor());
+        // opening for read and write does not wait for the other side
+        return AsyncFile.open(fifo, executor, OpenOption.READ_WRITE).get(1000, TimeUnit.MILLISECONDS);
+    }
+}
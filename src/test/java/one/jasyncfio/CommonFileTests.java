@@ -12,6 +12,7 @@ import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -340,6 +341,68 @@ public class CommonFileTests {
     }
 
 
+    private static final IoCompletionHandler<CompletableFuture<Integer>> FUTURE_HANDLER =
+            new IoCompletionHandler<CompletableFuture<Integer>>() {
+                @Override
+                public void completed(int result, CompletableFuture<Integer> attachment) {
+                    attachment.complete(result);
+                }
+
+                @Override
+                public void failed(Throwable exc, CompletableFuture<Integer> attachment) {
+                    attachment.completeExceptionally(exc);
+                }
+            };
+
+    static void read_handler(Pair<Path, AbstractFile> testFile) throws Exception {
+        String expected = prepareString(100);
+        writeStringToFile(expected, testFile.e1);
+        ByteBuffer byteBuffer = ByteBuffer.allocateDirect(1024);
+        for (int i = 0; i < 100; i++) {
+            byteBuffer.clear();
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            testFile.e2.read(byteBuffer, i, result, FUTURE_HANDLER);
+            assertEquals(1024, result.get(1000, TimeUnit.MILLISECONDS));
+            assertEquals(1024, byteBuffer.position());
+            byteBuffer.flip();
+            assertEquals(expected.substring(i, i + 1024), StandardCharsets.UTF_8.decode(byteBuffer).toString());
+        }
+    }
+
+    static void write_handler(Pair<Path, AbstractFile> testFile) throws Exception {
+        String expected = prepareString(100).substring(0, 1024);
+        ByteBuffer byteBuffer = ByteBuffer.allocateDirect(1024);
+        byteBuffer.put(expected.getBytes(StandardCharsets.UTF_8)).flip();
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        testFile.e2.write(byteBuffer, 0, result, FUTURE_HANDLER);
+        assertEquals(1024, result.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(1024, byteBuffer.position());
+        assertEquals(expected, new String(Files.readAllBytes(testFile.e1)));
+    }
+
+    static void readv_handler(Pair<Path, AbstractFile> testFile) throws Exception {
+        String expected = prepareString(100);
+        writeStringToFile(expected, testFile.e1);
+        ByteBuffer[] buffers = new ByteBuffer[]{ByteBuffer.allocateDirect(10), ByteBuffer.allocateDirect(20)};
+        IovecArray iovecArray = new IovecArray(buffers);
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        testFile.e2.read(iovecArray, 0, result, FUTURE_HANDLER);
+        assertEquals(30, result.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(10, buffers[0].position());
+        assertEquals(20, buffers[1].position());
+        buffers[0].flip();
+        buffers[1].flip();
+        assertEquals(expected.substring(0, 10), StandardCharsets.UTF_8.decode(buffers[0]).toString());
+        assertEquals(expected.substring(10, 30), StandardCharsets.UTF_8.decode(buffers[1]).toString());
+    }
+
+    static void dataSync_handler_closedFile(Pair<Path, AbstractFile> testFile) throws Exception {
+        testFile.e2.close().get(1000, TimeUnit.MILLISECONDS);
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        testFile.e2.dataSync(result, FUTURE_HANDLER);
+        assertThrows(ExecutionException.class, () -> result.get(1000, TimeUnit.MILLISECONDS));
+    }
+
     static String prepareString(int iters) {
         StringBuilder sb = new StringBuilder();
         String s = "String number ";
@@ -353,6 +416,25 @@ public class CommonFileTests {
         Files.write(f, stringToWrite.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Creates a file of size bytes in the directory, every byte holds the index of its block, so a read shows
+     * which block it came from.
+     */
+    static Path blocksFile(Path dir, int blockSize, int size) throws IOException {
+        return blocksFile(dir, size, i -> i / blockSize);
+    }
+
+    /**
+     * Creates a file of size bytes in the directory, the byte at position i is byteAt(i).
+     */
+    static Path blocksFile(Path dir, int size, IntUnaryOperator byteAt) throws IOException {
+        byte[] content = new byte[size];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) byteAt.applyAsInt(i);
+        }
+        return Files.write(Files.createTempFile(dir, "test-", " file"), content);
+    }
+
 
     private static void initTestFile(Path tempFile, int testSize) throws IOException {
         byte[] bytes = new byte[testSize];
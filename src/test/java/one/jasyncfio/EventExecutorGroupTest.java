@@ -0,0 +1,102 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EventExecutorGroupTest {
+    private EventExecutorGroup group;
+
+    @TempDir
+    private Path tmpDir;
+
+    @BeforeEach
+    public void before() {
+        group = EventExecutorGroup.builder()
+                .executors(4)
+                .build();
+    }
+
+    @AfterEach
+    public void after() {
+        group.close();
+    }
+
+    @Test
+    void roundRobin() {
+        Set<EventExecutor> selected = new HashSet<>();
+        for (int i = 0; i < group.size(); i++) {
+            selected.add(group.executorFor("/tmp/file"));
+        }
+        assertEquals(group.size(), selected.size());
+    }
+
+    @Test
+    void hashOfPath() {
+        EventExecutorGroup hashGroup = EventExecutorGroup.builder()
+                .executors(4)
+                .noThreadAffinity()
+                .placementStrategy(PlacementStrategy.hashOfPath())
+                .build();
+        try {
+            EventExecutor executor = hashGroup.executorFor("/tmp/file");
+            for (int i = 0; i < 10; i++) {
+                assertSame(executor, hashGroup.executorFor("/tmp/file"));
+            }
+        } finally {
+            hashGroup.close();
+        }
+    }
+
+    @Test
+    void leastInFlight() {
+        EventExecutorGroup leastGroup = EventExecutorGroup.builder()
+                .executors(2)
+                .placementStrategy(PlacementStrategy.leastInFlight())
+                .build();
+        try {
+            // nothing is in flight, so the first executor wins
+            assertSame(leastGroup.executors().get(0), leastGroup.executorFor("/tmp/file"));
+        } finally {
+            leastGroup.close();
+        }
+    }
+
+    @Test
+    void readWrite() throws Exception {
+        for (int i = 0; i < group.size() * 2; i++) {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            String expected = CommonFileTests.prepareString(10);
+            CommonFileTests.writeStringToFile(expected, tempFile);
+            AsyncFile file = group.open(tempFile, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length());
+            assertEquals(expected.length(), file.read(buffer, 0L).get(1000, TimeUnit.MILLISECONDS));
+            buffer.flip();
+            assertEquals(expected, StandardCharsets.UTF_8.decode(buffer).toString());
+            assertEquals(0, file.close().get(1000, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void defaultSize() {
+        EventExecutorGroup defaultGroup = EventExecutorGroup.initDefault();
+        try {
+            assertTrue(defaultGroup.size() > 0);
+        } finally {
+            defaultGroup.close();
+        }
+    }
+}
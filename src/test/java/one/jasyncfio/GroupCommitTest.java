@@ -0,0 +1,102 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GroupCommitTest {
+    private static final int COMMITS = 200;
+
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(16)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void burstSharesTwoSyncs() throws Exception {
+        AsyncFile file = AsyncFile.open(Files.createTempFile(tmpDir, "test-", " file"), executor, OpenOption.WRITE_ONLY)
+                .get(1000, TimeUnit.MILLISECONDS);
+        IoBatch batch = executor.batch();
+        List<CompletableFuture<Integer>> commits = new ArrayList<>();
+        for (int i = 0; i < COMMITS; i++) {
+            commits.add(batch.dataSync(file));
+        }
+        batch.commit();
+        for (CompletableFuture<Integer> commit : commits) {
+            assertEquals(0, commit.get(1000, TimeUnit.MILLISECONDS));
+        }
+        // the first one starts a sync, the others wait for the next one
+        assertEquals(2, file.getSyncGroup().getSyncCount());
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void concurrentCommits() throws Exception {
+        Path path = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(path, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        List<Thread> threads = new ArrayList<>();
+        List<CompletableFuture<Integer>> commits = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < COMMITS / 4; i++) {
+                    ByteBuffer record = ByteBuffer.allocateDirect(8);
+                    record.putLong(0, i);
+                    CompletableFuture<Integer> commit = file.write(record, (long) (i * 4 + offset) * 8)
+                            .thenCompose(written -> file.dataSync());
+                    synchronized (commits) {
+                        commits.add(commit);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (CompletableFuture<Integer> commit : commits) {
+            assertEquals(0, commit.get(1000, TimeUnit.MILLISECONDS));
+        }
+        assertEquals(COMMITS, commits.size());
+        assertTrue(file.getSyncGroup().getSyncCount() <= COMMITS);
+        assertEquals(COMMITS * 8, Files.size(path));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void failedSync() throws Exception {
+        // a closed fd may be reused by the time the sync runs, character devices reject fdatasync with EINVAL
+        AsyncFile file = AsyncFile.open("/dev/null", executor, OpenOption.WRITE_ONLY)
+                .get(1000, TimeUnit.MILLISECONDS);
+        IoBatch batch = executor.batch();
+        CompletableFuture<Integer> first = batch.dataSync(file);
+        CompletableFuture<Integer> second = batch.dataSync(file);
+        batch.commit();
+        assertThrows(ExecutionException.class, () -> first.get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(1000, TimeUnit.MILLISECONDS));
+        // the group goes on after a failure
+        assertThrows(ExecutionException.class, () -> file.dataSync().get(1000, TimeUnit.MILLISECONDS));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+}
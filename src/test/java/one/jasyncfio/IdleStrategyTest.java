@@ -0,0 +1,124 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdleStrategyTest {
+
+    @TempDir
+    private Path tmpDir;
+
+    @Test
+    void backoffPhases() {
+        IdleStrategy strategy = IdleStrategy.backoff(2, 1, 10, 40);
+        assertEquals(IdleStrategy.Phase.SPIN, strategy.idle());
+        assertEquals(IdleStrategy.Phase.SPIN, strategy.idle());
+        assertEquals(IdleStrategy.Phase.YIELD, strategy.idle());
+        assertEquals(IdleStrategy.Phase.YIELD, strategy.idle());
+        assertEquals(IdleStrategy.Phase.PARK, strategy.idle());
+        assertEquals(10, strategy.parkNanos());
+        assertEquals(IdleStrategy.Phase.PARK, strategy.idle());
+        assertEquals(20, strategy.parkNanos());
+        assertEquals(IdleStrategy.Phase.PARK, strategy.idle());
+        assertEquals(40, strategy.parkNanos());
+        assertEquals(IdleStrategy.Phase.SLEEP, strategy.idle());
+        strategy.reset();
+        assertEquals(IdleStrategy.Phase.SPIN, strategy.idle());
+    }
+
+    @Test
+    void sleepTimeout() {
+        assertEquals(IdleStrategy.Phase.SLEEP, IdleStrategy.sleepTimeout(0, TimeUnit.MILLISECONDS).idle());
+        IdleStrategy strategy = IdleStrategy.sleepTimeout(1, TimeUnit.HOURS);
+        assertEquals(IdleStrategy.Phase.SPIN, strategy.idle());
+    }
+
+    @Test
+    void adaptiveSleepsWhenIdle() throws Exception {
+        IdleStrategy strategy = IdleStrategy.adaptive(1000, 2000);
+        assertEquals(IdleStrategy.Phase.SPIN, strategy.idle());
+        Thread.sleep(1);
+        assertEquals(IdleStrategy.Phase.SLEEP, strategy.idle());
+    }
+
+    @Test
+    void busySpin() throws Exception {
+        readWithStrategy(IdleStrategy::busySpin);
+    }
+
+    @Test
+    void backoff() throws Exception {
+        readWithStrategy(IdleStrategy::backoff);
+    }
+
+    @Test
+    void adaptive() throws Exception {
+        readWithStrategy(IdleStrategy::adaptive);
+    }
+
+    @Test
+    void sleepImmediately() throws Exception {
+        readWithStrategy(() -> IdleStrategy.sleepTimeout(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void completionEndsPark() throws Exception {
+        long park = TimeUnit.SECONDS.toNanos(10);
+        EventExecutor executor = EventExecutor.builder()
+                .idleStrategy(() -> IdleStrategy.backoff(0, 0, park, park))
+                .build();
+        try {
+            Path fifo = tmpDir.resolve("fifo");
+            assertEquals(0, new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor());
+            AsyncFile file = AsyncFile.open(fifo, executor, OpenOption.READ_WRITE).get(1000, TimeUnit.MILLISECONDS);
+            CompletableFuture<Integer> read = file.read(ByteBuffer.allocateDirect(16), 0, 16);
+            // the EventLoop parks with the read in the kernel, no task wakes it up
+            Thread.sleep(50);
+            Files.write(fifo, new byte[16]);
+            assertEquals(16, read.get(1000, TimeUnit.MILLISECONDS));
+            assertEquals(0, file.close().get(1000, TimeUnit.MILLISECONDS));
+        } finally {
+            executor.close();
+        }
+    }
+
+    private void readWithStrategy(Supplier<IdleStrategy> idleStrategy) throws Exception {
+        EventExecutor executor = EventExecutor.builder()
+                .idleStrategy(idleStrategy)
+                .build();
+        try {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            String expected = CommonFileTests.prepareString(10);
+            CommonFileTests.writeStringToFile(expected, tempFile);
+            AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 10; i++) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length());
+                assertEquals(expected.length(), file.read(buffer, 0L).get(1000, TimeUnit.MILLISECONDS));
+                buffer.flip();
+                assertEquals(expected, StandardCharsets.UTF_8.decode(buffer).toString());
+                Thread.sleep(2);
+            }
+            assertEquals(0, file.close().get(1000, TimeUnit.MILLISECONDS));
+            long[] idleTimes = executor.getIdleTimes().get(1000, TimeUnit.MILLISECONDS);
+            assertEquals(IdleStrategy.Phase.values().length, idleTimes.length);
+            long total = 0;
+            for (long idleTime : idleTimes) {
+                total += idleTime;
+            }
+            assertTrue(total > 0);
+        } finally {
+            executor.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IoBatchTest {
+    private static final int BLOCK = 512;
+    private static final int BLOCKS = 256;
+
+    // the batch is larger than the submission queue
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(32)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void randomReads() throws Exception {
+        Path tempFile = CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS);
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        IoBatch batch = executor.batch();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < BLOCKS; i++) {
+            int block = (i * 37) % BLOCKS;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK);
+            buffers.add(buffer);
+            results.add(batch.read(file, buffer, (long) block * BLOCK, BLOCK));
+        }
+        assertEquals(BLOCKS, batch.size());
+        assertFalse(results.get(0).isDone());
+        batch.commit();
+        for (int i = 0; i < BLOCKS; i++) {
+            assertEquals(BLOCK, results.get(i).get(1000, TimeUnit.MILLISECONDS));
+            ByteBuffer buffer = buffers.get(i);
+            buffer.flip();
+            for (int j = 0; j < BLOCK; j++) {
+                assertEquals((byte) ((i * 37) % BLOCKS), buffer.get(j));
+            }
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void writesAndFailures() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        IoBatch batch = executor.batch();
+        CompletableFuture<Integer> first = batch.write(file, block(1), 0, BLOCK);
+        // EBADF, the file is write only, the other operations are not affected
+        CompletableFuture<Integer> failed = batch.read(file, ByteBuffer.allocateDirect(BLOCK), 0, BLOCK);
+        CompletableFuture<Integer> second = batch.write(file, block(2), BLOCK, BLOCK);
+        batch.commit();
+        assertEquals(BLOCK, first.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(BLOCK, second.get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(ExecutionException.class, () -> failed.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(2 * BLOCK, Files.size(tempFile));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void commitTwice() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        IoBatch batch = executor.batch();
+        CompletableFuture<Integer> sync = batch.dataSync(file);
+        batch.commit();
+        assertEquals(0, sync.get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalStateException.class, batch::commit);
+        assertThrows(IllegalStateException.class, () -> batch.dataSync(file));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void otherExecutor() throws Exception {
+        EventExecutor other = EventExecutor.initDefault();
+        try {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            AsyncFile file = AsyncFile.open(tempFile, other, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+            assertThrows(IllegalArgumentException.class, () -> executor.batch().dataSync(file));
+            file.close().get(1000, TimeUnit.MILLISECONDS);
+        } finally {
+            other.close();
+        }
+    }
+
+    private static ByteBuffer block(int value) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK);
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) value);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
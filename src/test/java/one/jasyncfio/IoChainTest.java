@@ -0,0 +1,173 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IoChainTest {
+    private EventExecutor executor;
+
+    @TempDir
+    private Path tmpDir;
+
+    @BeforeEach
+    public void before() {
+        executor = EventExecutor.initDefault();
+    }
+
+    @AfterEach
+    public void after() {
+        executor.close();
+    }
+
+    @Test
+    void writeWriteDataSync() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        ByteBuffer first = utf8("first ");
+        ByteBuffer second = utf8("second");
+        int result = executor.chain()
+                .write(file, first, 0, first.remaining())
+                .write(file, second, first.remaining(), second.remaining())
+                .dataSync(file)
+                .submit()
+                .get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(0, result);
+        assertEquals(0, first.remaining());
+        assertEquals(0, second.remaining());
+        assertEquals("first second", new String(Files.readAllBytes(tempFile), StandardCharsets.UTF_8));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void writeRead() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.READ_WRITE).get(1000, TimeUnit.MILLISECONDS);
+        ByteBuffer written = utf8("chained");
+        ByteBuffer read = ByteBuffer.allocateDirect(written.remaining());
+        List<CompletableFuture<Integer>> results = executor.chain()
+                .write(file, written, 0, written.remaining())
+                .read(file, read, 0, read.remaining())
+                .submitEach();
+        assertEquals(2, results.size());
+        assertEquals(7, results.get(0).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(7, results.get(1).get(1000, TimeUnit.MILLISECONDS));
+        read.flip();
+        assertEquals("chained", StandardCharsets.UTF_8.decode(read).toString());
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void failedLinkCancelsRest() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        ByteBuffer data = utf8("data");
+        List<CompletableFuture<Integer>> results = executor.chain()
+                .read(file, ByteBuffer.allocateDirect(4), 0, 4)
+                .write(file, data, 0, data.remaining())
+                .submitEach();
+        assertThrows(ExecutionException.class, () -> results.get(0).get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(ExecutionException.class, () -> results.get(1).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(0, Files.size(tempFile));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void submit_firstError() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        ByteBuffer data = utf8("data");
+        CompletableFuture<Integer> result = executor.chain()
+                .read(file, ByteBuffer.allocateDirect(4), 0, 4)
+                .write(file, data, 0, data.remaining())
+                .submit();
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(1000, TimeUnit.MILLISECONDS));
+        assertTrue(ex.getCause() instanceof IOException);
+        // the read failed with EBADF, the write was only cancelled
+        assertTrue(ex.getCause().getMessage().contains("Error code: 9;"), ex.getCause().getMessage());
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void hardLinks() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        ByteBuffer data = utf8("data");
+        List<CompletableFuture<Integer>> results = executor.chain()
+                .hardLinks()
+                .read(file, ByteBuffer.allocateDirect(4), 0, 4)
+                .write(file, data, 0, data.remaining())
+                .submitEach();
+        assertThrows(ExecutionException.class, () -> results.get(0).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(4, results.get(1).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(4, Files.size(tempFile));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void otherExecutor() throws Exception {
+        EventExecutor other = EventExecutor.initDefault();
+        try {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            AsyncFile file = AsyncFile.open(tempFile, other, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+            assertThrows(IllegalArgumentException.class, () -> executor.chain().dataSync(file));
+            file.close().get(1000, TimeUnit.MILLISECONDS);
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    void submitTwice() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        IoChain chain = executor.chain().dataSync(file);
+        assertEquals(0, chain.submit().get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalStateException.class, chain::submit);
+        assertThrows(IllegalStateException.class, () -> executor.chain().submit());
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void pollExecutor() throws Exception {
+        EventExecutor pollExecutor = EventExecutor.builder()
+                .ioRingSetupIoPoll()
+                .build();
+        try {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            AsyncFile file = AsyncFile.open(tempFile, pollExecutor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+            ByteBuffer data = utf8("data");
+            assertEquals(0, pollExecutor.chain()
+                    .write(file, data, 0, data.remaining())
+                    .dataSync(file)
+                    .submit()
+                    .get(1000, TimeUnit.MILLISECONDS));
+            assertEquals(4, Files.size(tempFile));
+            file.close().get(1000, TimeUnit.MILLISECONDS);
+        } finally {
+            pollExecutor.close();
+        }
+    }
+
+    private static ByteBuffer utf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+}
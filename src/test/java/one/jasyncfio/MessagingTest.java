@@ -0,0 +1,98 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MessagingTest {
+    private static final long[] MESSAGES = {0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 0xFFFFFFFE00000000L, 0x123456789ABCDEFL};
+
+    private final List<Long> received = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch allReceived = new CountDownLatch(MESSAGES.length);
+    private final EventExecutor sender = EventExecutor.builder()
+            .idleStrategy(() -> IdleStrategy.sleepTimeout(0, TimeUnit.MILLISECONDS))
+            .build();
+    private final EventExecutor receiver = EventExecutor.builder()
+            .idleStrategy(() -> IdleStrategy.sleepTimeout(0, TimeUnit.MILLISECONDS))
+            .messageHandler(message -> {
+                received.add(message);
+                allReceived.countDown();
+            })
+            .build();
+
+    @AfterEach
+    void after() {
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    void sendMessageFromExecutor() throws Exception {
+        sender.post(() -> {
+            for (long message : MESSAGES) {
+                receiver.sendMessage(message);
+            }
+        });
+        assertTrue(allReceived.await(1000, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < MESSAGES.length; i++) {
+            assertEquals(MESSAGES[i], received.get(i));
+        }
+    }
+
+    @Test
+    void sendMessageFromThread() throws Exception {
+        for (long message : MESSAGES) {
+            receiver.sendMessage(message);
+        }
+        assertTrue(allReceived.await(1000, TimeUnit.MILLISECONDS));
+        assertEquals(MESSAGES.length, received.size());
+    }
+
+    @Test
+    void postFromExecutor() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            CompletableFuture<Boolean> inReceiverLoop = new CompletableFuture<>();
+            // let the receiver fall asleep in io_uring_enter
+            Thread.sleep(1);
+            sender.post(() -> receiver.post(() -> inReceiverLoop.complete(receiver.inEventLoop())));
+            assertTrue(inReceiverLoop.get(1000, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void sendMessageWithMonitoring() throws Exception {
+        EventExecutor monitored = EventExecutor.builder()
+                .monitoring()
+                .build();
+        try {
+            monitored.post(() -> {
+                for (long message : MESSAGES) {
+                    receiver.sendMessage(message);
+                }
+            });
+            assertTrue(allReceived.await(1000, TimeUnit.MILLISECONDS));
+            // the loop is still alive and has recorded the message commands
+            double[] latencies = monitored.getCommandExecutionLatencies(new double[]{0.5})
+                    .get(1000, TimeUnit.MILLISECONDS);
+            assertEquals(1, latencies.length);
+            assertTrue(latencies[0] >= 0);
+        } finally {
+            monitored.close();
+        }
+    }
+
+    @Test
+    void noMessageHandler() {
+        assertThrows(IllegalStateException.class, () -> sender.sendMessage(1));
+    }
+}
@@ -0,0 +1,67 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParkTest {
+    private final Uring ring = Native.setupIoUring(4, 0, 0, 0, 0, 0);
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        ring.getSubmissionQueue().close();
+        ring.close();
+    }
+
+    @Test
+    void boundedWait() {
+        long start = System.nanoTime();
+        ring.getSubmissionQueue().submitAndWait(1, TimeUnit.MILLISECONDS.toNanos(5), 0);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertFalse(ring.getCompletionQueue().hasCompletions());
+    }
+
+    @Test
+    void minWait() {
+        SubmissionQueue submissionQueue = ring.getSubmissionQueue();
+        if (!submissionQueue.hasFeature(Native.IORING_FEAT_MIN_TIMEOUT)) {
+            // before kernel 6.12
+            return;
+        }
+        submissionQueue.enqueueSqe(Native.IORING_OP_NOP, 0, 0, -1, 0, 0, 0, 1, 0, 0);
+        // one completion out of four, the wait ends after min_wait instead of blocking
+        submissionQueue.submitAndWait(4, -1, TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(ring.getCompletionQueue().hasCompletions());
+    }
+
+    @Test
+    void sleepBatching() throws Exception {
+        EventExecutor executor = EventExecutor.builder()
+                .idleStrategy(() -> IdleStrategy.sleepTimeout(0, TimeUnit.MILLISECONDS))
+                .sleepBatching(8, 1, TimeUnit.MILLISECONDS)
+                .build();
+        try {
+            for (int i = 0; i < 10; i++) {
+                CompletableFuture<Boolean> task = new CompletableFuture<>();
+                executor.post(() -> task.complete(executor.inEventLoop()));
+                assertTrue(task.get(1000, TimeUnit.MILLISECONDS));
+            }
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            CommonFileTests.read_1(new CommonFileTests.Pair<>(tempFile,
+                    AsyncFile.open(tempFile, executor, OpenOption.READ_WRITE).get(1000, TimeUnit.MILLISECONDS)));
+        } finally {
+            executor.close();
+        }
+    }
+}
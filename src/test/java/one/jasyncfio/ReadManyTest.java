@@ -0,0 +1,131 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadManyTest {
+    private static final int BLOCK = 512;
+    private static final int BLOCKS = 128;
+
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(32)
+            .addBufRing(4, BLOCK, (short) 0)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void readMany() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        long[] positions = new long[BLOCKS + 1];
+        int[] lengths = new int[BLOCKS + 1];
+        ByteBuffer[] targets = new ByteBuffer[BLOCKS + 1];
+        for (int i = 0; i < BLOCKS; i++) {
+            positions[i] = (long) ((i * 37) % BLOCKS) * BLOCK;
+            lengths[i] = BLOCK;
+            targets[i] = ByteBuffer.allocateDirect(BLOCK);
+        }
+        // past the end of the file
+        positions[BLOCKS] = (long) BLOCKS * BLOCK;
+        lengths[BLOCKS] = BLOCK;
+        targets[BLOCKS] = ByteBuffer.allocateDirect(BLOCK);
+        int[] result = file.readMany(positions, lengths, targets).get(1000, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < BLOCKS; i++) {
+            assertEquals(BLOCK, result[i]);
+            assertEquals(BLOCK, targets[i].position());
+            assertEquals((byte) ((i * 37) % BLOCKS), targets[i].get(BLOCK - 1));
+        }
+        assertEquals(0, result[BLOCKS]);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void readMany_error() throws Exception {
+        Path tempFile = CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS);
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        CompletableFuture<int[]> result = file.readMany(new long[]{0, BLOCK}, new int[]{BLOCK, BLOCK},
+                new ByteBuffer[]{ByteBuffer.allocateDirect(BLOCK), ByteBuffer.allocateDirect(BLOCK)});
+        assertThrows(ExecutionException.class, () -> result.get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalArgumentException.class,
+                () -> file.readMany(new long[]{0}, new int[]{BLOCK, BLOCK}, new ByteBuffer[]{ByteBuffer.allocateDirect(BLOCK)}));
+        CompletableFuture<int[]> tooSmall = file.readMany(new long[]{0}, new int[]{BLOCK}, new ByteBuffer[]{ByteBuffer.allocateDirect(1)});
+        assertThrows(ExecutionException.class, () -> tooSmall.get(1000, TimeUnit.MILLISECONDS));
+        assertArrayEquals(new int[0], file.readMany(new long[0], new int[0], new ByteBuffer[0]).get(1000, TimeUnit.MILLISECONDS));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void readMany_handler() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        long[] positions = new long[BLOCKS];
+        int[] lengths = new int[BLOCKS];
+        ByteBuffer[] targets = new ByteBuffer[BLOCKS];
+        Integer[] attachments = new Integer[BLOCKS];
+        for (int i = 0; i < BLOCKS; i++) {
+            positions[i] = (long) (BLOCKS - 1 - i) * BLOCK;
+            lengths[i] = BLOCK;
+            targets[i] = ByteBuffer.allocateDirect(BLOCK);
+            attachments[i] = i;
+        }
+        AtomicIntegerArray results = new AtomicIntegerArray(BLOCKS);
+        CountDownLatch done = new CountDownLatch(BLOCKS);
+        file.readMany(positions, lengths, targets, attachments, new IoCompletionHandler<Integer>() {
+            @Override
+            public void completed(int result, Integer index) {
+                results.set(index, result);
+                done.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, Integer index) {
+                results.set(index, -1);
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(1000, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < BLOCKS; i++) {
+            assertEquals(BLOCK, results.get(i));
+            assertEquals((byte) (BLOCKS - 1 - i), targets[i].get(0));
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void readManyFixedBuffer() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        // five reads, four buffers, one read fails with ENOBUFS and the taken buffers go back to the ring
+        CompletableFuture<BufRingResult[]> noBuffers = file.readManyFixedBuffer(new long[]{0, 1, 2, 3, 4}, (short) 0);
+        assertThrows(ExecutionException.class, () -> noBuffers.get(1000, TimeUnit.MILLISECONDS));
+        for (int round = 0; round < 3; round++) {
+            long[] positions = {3L * BLOCK, 7L * BLOCK, 11L * BLOCK, 2L * BLOCK};
+            BufRingResult[] results = file.readManyFixedBuffer(positions, (short) 0).get(1000, TimeUnit.MILLISECONDS);
+            assertEquals(positions.length, results.length);
+            for (int i = 0; i < positions.length; i++) {
+                assertEquals(BLOCK, results[i].getReadBytes());
+                assertEquals((byte) (positions[i] / BLOCK), results[i].getBuffer().get(0));
+                results[i].close();
+            }
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,126 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReadMergeTest {
+    private static final int BLOCK = 4096;
+    private static final int BLOCKS = 64;
+
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(16)
+            .registeredFiles(2)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void contiguousReads() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        file.mergeReads(16 * BLOCK);
+        readBlocks(file);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void contiguousReads_registeredFile() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY, OpenOption.REGISTERED).get(1000, TimeUnit.MILLISECONDS);
+        file.mergeReads(16 * BLOCK);
+        readBlocks(file);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void overlappingAndPastEnd() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        file.mergeReads(Integer.MAX_VALUE);
+        long end = (long) BLOCKS * BLOCK;
+        IoBatch batch = executor.batch();
+        ByteBuffer whole = ByteBuffer.allocateDirect(2 * BLOCK);
+        ByteBuffer middle = ByteBuffer.allocateDirect(BLOCK);
+        ByteBuffer tail = ByteBuffer.allocateDirect(BLOCK);
+        ByteBuffer pastEnd = ByteBuffer.allocateDirect(BLOCK);
+        CompletableFuture<Integer> wholeRead = batch.read(file, whole, end - 2 * BLOCK, 2 * BLOCK);
+        CompletableFuture<Integer> middleRead = batch.read(file, middle, end - BLOCK - BLOCK / 2, BLOCK);
+        CompletableFuture<Integer> tailRead = batch.read(file, tail, end - BLOCK / 2, BLOCK);
+        CompletableFuture<Integer> pastEndRead = batch.read(file, pastEnd, end, BLOCK);
+        batch.commit();
+        assertEquals(2 * BLOCK, wholeRead.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(BLOCK, middleRead.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(BLOCK / 2, tailRead.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(0, pastEndRead.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(2 * BLOCK, whole.position());
+        assertEquals(BLOCK / 2, tail.position());
+        assertEquals((byte) (BLOCKS - 2), whole.get(0));
+        assertEquals((byte) (BLOCKS - 1), whole.get(2 * BLOCK - 1));
+        assertEquals((byte) (BLOCKS - 2), middle.get(BLOCK / 2 - 1));
+        assertEquals((byte) (BLOCKS - 1), middle.get(BLOCK / 2));
+        assertEquals((byte) (BLOCKS - 1), tail.get(0));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void failedMergedRead() throws Exception {
+        Path tempFile = CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS);
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        file.mergeReads(16 * BLOCK);
+        IoBatch batch = executor.batch();
+        CompletableFuture<Integer> first = batch.read(file, ByteBuffer.allocateDirect(BLOCK), 0, BLOCK);
+        CompletableFuture<Integer> second = batch.read(file, ByteBuffer.allocateDirect(BLOCK), BLOCK, BLOCK);
+        batch.commit();
+        assertThrows(ExecutionException.class, () -> first.get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(1000, TimeUnit.MILLISECONDS));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void disabled() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        assertThrows(IllegalArgumentException.class, () -> file.mergeReads(-1));
+        file.mergeReads(16 * BLOCK);
+        file.mergeReads(0);
+        readBlocks(file);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    private void readBlocks(AsyncFile file) throws Exception {
+        IoBatch batch = executor.batch();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = BLOCKS - 1; i >= 0; i--) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK);
+            buffers.add(buffer);
+            results.add(batch.read(file, buffer, (long) i * BLOCK, BLOCK));
+        }
+        batch.commit();
+        // plain reads are merged too, when they reach the loop in the same pass
+        ByteBuffer single = ByteBuffer.allocateDirect(BLOCK);
+        assertEquals(BLOCK, file.read(single, 3L * BLOCK, BLOCK).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals((byte) 3, single.get(0));
+        for (int i = 0; i < BLOCKS; i++) {
+            assertEquals(BLOCK, results.get(i).get(1000, TimeUnit.MILLISECONDS));
+            ByteBuffer buffer = buffers.get(i);
+            assertEquals(BLOCK, buffer.position());
+            assertEquals((byte) (BLOCKS - 1 - i), buffer.get(0));
+            assertEquals((byte) (BLOCKS - 1 - i), buffer.get(BLOCK - 1));
+        }
+    }
+}
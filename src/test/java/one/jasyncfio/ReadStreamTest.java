@@ -0,0 +1,223 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadStreamTest {
+    private static final int BLOCK = 4096;
+    private static final int BLOCKS = 64;
+
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(32)
+            .addBufRing(8, BLOCK, (short) 0)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void streamsRangeInOrder() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCKS * BLOCK, ReadStreamTest::blockByte), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        ReadStream<ReadStream.Chunk> stream = file.readStream(100, (long) BLOCKS * BLOCK - 100, BLOCK, 4);
+        Collector<ReadStream.Chunk> collector = new Collector<ReadStream.Chunk>(1) {
+            @Override
+            public void onNext(ReadStream.Chunk chunk) {
+                assertEquals(100 + read, chunk.getPosition());
+                ByteBuffer bytes = chunk.getBuffer();
+                for (int i = 0; i < bytes.remaining(); i++) {
+                    assertEquals(blockByte(chunk.getPosition() + i), bytes.get(i));
+                }
+                read += chunk.getReadBytes();
+                super.onNext(chunk);
+            }
+        };
+        stream.subscribe(collector);
+        collector.done.get(1000, TimeUnit.MILLISECONDS);
+        assertEquals((long) BLOCKS * BLOCK - 200, collector.read);
+        // closed chunks are reused
+        assertTrue(((ReadStream.ChunkStream) stream).getAllocated() <= 8);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void completesAtEndOfFile() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCKS * BLOCK, ReadStreamTest::blockByte), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        Collector<ReadStream.Chunk> collector = new Collector<>(Long.MAX_VALUE);
+        file.readStream(0, Long.MAX_VALUE, 3 * BLOCK, 4).subscribe(collector);
+        collector.done.get(1000, TimeUnit.MILLISECONDS);
+        long read = 0;
+        for (ReadStream.Chunk chunk : collector.chunks) {
+            read += chunk.getReadBytes();
+        }
+        assertEquals((long) BLOCKS * BLOCK, read);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void honorsDemand() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCKS * BLOCK, ReadStreamTest::blockByte), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        List<ReadStream.Chunk> chunks = new ArrayList<>();
+        ReadStream.Subscription[] subscription = new ReadStream.Subscription[1];
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        file.readStream(0, (long) BLOCKS * BLOCK, BLOCK, 4).subscribe(new ReadStream.Subscriber<ReadStream.Chunk>() {
+            @Override
+            public void onSubscribe(ReadStream.Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNext(ReadStream.Chunk chunk) {
+                synchronized (chunks) {
+                    chunks.add(chunk);
+                    if (chunks.size() > 2) {
+                        chunk.close();
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Throwable ex) {
+                done.completeExceptionally(ex);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        subscription[0].request(2);
+        Thread.sleep(100);
+        synchronized (chunks) {
+            assertEquals(2, chunks.size());
+            chunks.forEach(ReadStream.Chunk::close);
+        }
+        subscription[0].request(Long.MAX_VALUE);
+        subscription[0].request(Long.MAX_VALUE);
+        done.get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(BLOCKS, chunks.size());
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void cancelAndInvalidRequest() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCKS * BLOCK, ReadStreamTest::blockByte), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        Collector<ReadStream.Chunk> invalid = new Collector<>(0);
+        file.readStream(0, BLOCK, BLOCK, 1).subscribe(invalid);
+        CompletableFuture<Void> failed = invalid.done;
+        assertThrows(Exception.class, () -> failed.get(1000, TimeUnit.MILLISECONDS));
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+
+        ReadStream<ReadStream.Chunk> stream = file.readStream(0, (long) BLOCKS * BLOCK, BLOCK, 4);
+        Collector<ReadStream.Chunk> cancelling = new Collector<ReadStream.Chunk>(1) {
+            @Override
+            public void onNext(ReadStream.Chunk chunk) {
+                super.onNext(chunk);
+                subscription.cancel();
+            }
+        };
+        stream.subscribe(cancelling);
+        Thread.sleep(100);
+        assertEquals(1, cancelling.chunks.size());
+        assertTrue(!cancelling.done.isDone());
+        // a second subscriber is rejected
+        Collector<ReadStream.Chunk> second = new Collector<>(1);
+        stream.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+
+        assertThrows(IllegalArgumentException.class, () -> file.readStream(-1, 10, BLOCK, 1));
+        assertThrows(IllegalArgumentException.class, () -> file.readStream(10, 5, BLOCK, 1));
+        assertThrows(IllegalArgumentException.class, () -> file.readStream(0, 10, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> file.readStream(0, 10, BLOCK, 0));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void bufRingStream() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCKS * BLOCK, ReadStreamTest::blockByte), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        Collector<BufRingResult> collector = new Collector<BufRingResult>(1) {
+            @Override
+            public void onNext(BufRingResult chunk) {
+                ByteBuffer bytes = chunk.getBuffer();
+                assertEquals(blockByte(read), bytes.get(0));
+                read += chunk.getReadBytes();
+                try {
+                    chunk.close();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                subscription.request(1);
+            }
+        };
+        file.readStreamFixedBuffer(0, (long) BLOCKS * BLOCK - 10, (short) 0, 4).subscribe(collector);
+        collector.done.get(1000, TimeUnit.MILLISECONDS);
+        assertEquals((long) BLOCKS * BLOCK - 10, collector.read);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    private static byte blockByte(long position) {
+        return (byte) (position / BLOCK + position % 7);
+    }
+
+    /**
+     * Requests the given number of chunks up front and one more after each one, closes the chunks it keeps.
+     */
+    private static class Collector<T extends AutoCloseable> implements ReadStream.Subscriber<T> {
+        final List<T> chunks = new ArrayList<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final long initial;
+        ReadStream.Subscription subscription;
+        volatile Throwable error;
+        long read;
+
+        Collector(long initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        public void onSubscribe(ReadStream.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initial);
+        }
+
+        @Override
+        public void onNext(T chunk) {
+            chunks.add(chunk);
+            try {
+                chunk.close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            if (initial != Long.MAX_VALUE) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable ex) {
+            error = ex;
+            done.completeExceptionally(ex);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadaheadTest {
+    private static final int BLOCK = 4096;
+    private static final int BLOCKS = 64;
+
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(16)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void sequentialDirect() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCKS * BLOCK), executor, OpenOption.READ_ONLY, OpenOption.DIRECT)
+                .get(1000, TimeUnit.MILLISECONDS);
+        file.readahead(4 * BLOCK, 4);
+        ByteBuffer buffer = file.allocateAlignedBuffer(BLOCK, BLOCK);
+        for (int i = 0; i < BLOCKS; i++) {
+            buffer.clear();
+            assertEquals(BLOCK, file.read(buffer, (long) i * BLOCK, BLOCK).get(1000, TimeUnit.MILLISECONDS));
+            assertEquals((byte) i, buffer.get(0));
+            assertEquals((byte) i, buffer.get(BLOCK - 1));
+        }
+        // the first two reads detect the stream, the rest is read ahead
+        assertTrue(file.getReadahead().getHits() >= BLOCKS - 8);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void interleavedStreams() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCKS * BLOCK), executor, OpenOption.READ_ONLY, OpenOption.DIRECT)
+                .get(1000, TimeUnit.MILLISECONDS);
+        file.readahead(2 * BLOCK, 8);
+        ByteBuffer first = file.allocateAlignedBuffer(BLOCK, BLOCK);
+        ByteBuffer second = file.allocateAlignedBuffer(BLOCK, BLOCK);
+        for (int i = 0; i < BLOCKS / 2; i++) {
+            first.clear();
+            second.clear();
+            CompletableFuture<Integer> firstRead = file.read(first, (long) i * BLOCK, BLOCK);
+            CompletableFuture<Integer> secondRead = file.read(second, (long) (BLOCKS / 2 + i) * BLOCK, BLOCK);
+            assertEquals(BLOCK, firstRead.get(1000, TimeUnit.MILLISECONDS));
+            assertEquals(BLOCK, secondRead.get(1000, TimeUnit.MILLISECONDS));
+            assertEquals((byte) i, first.get(BLOCK - 1));
+            assertEquals((byte) (BLOCKS / 2 + i), second.get(BLOCK - 1));
+        }
+        assertTrue(file.getReadahead().getHits() >= BLOCKS - 16);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void endOfFile() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, 10 * BLOCK + BLOCK / 2), executor, OpenOption.READ_ONLY, OpenOption.DIRECT)
+                .get(1000, TimeUnit.MILLISECONDS);
+        file.readahead(4 * BLOCK, 4);
+        ByteBuffer buffer = file.allocateAlignedBuffer(BLOCK, BLOCK);
+        for (int i = 0; i < 10; i++) {
+            buffer.clear();
+            assertEquals(BLOCK, file.read(buffer, (long) i * BLOCK, BLOCK).get(1000, TimeUnit.MILLISECONDS));
+        }
+        buffer.clear();
+        assertEquals(BLOCK / 2, file.read(buffer, 10L * BLOCK, BLOCK).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals((byte) 10, buffer.get(BLOCK / 2 - 1));
+        buffer.clear();
+        assertEquals(0, file.read(buffer, 11L * BLOCK, BLOCK).get(1000, TimeUnit.MILLISECONDS));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void randomAndBuffered() throws Exception {
+        Path path = CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCKS * BLOCK);
+        AsyncFile direct = AsyncFile.open(path, executor, OpenOption.READ_ONLY, OpenOption.DIRECT)
+                .get(1000, TimeUnit.MILLISECONDS);
+        AsyncFile buffered = AsyncFile.open(path, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        direct.readahead(2 * BLOCK, 4);
+        buffered.readahead(2 * BLOCK, 4);
+        ByteBuffer buffer = direct.allocateAlignedBuffer(BLOCK, BLOCK);
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            // mostly short runs, with jumps in between
+            int block = i % 4 == 0 ? random.nextInt(BLOCKS) : (i * 7) % BLOCKS;
+            for (AsyncFile file : new AsyncFile[]{direct, buffered}) {
+                buffer.clear();
+                assertEquals(BLOCK, file.read(buffer, (long) block * BLOCK, BLOCK).get(1000, TimeUnit.MILLISECONDS));
+                assertEquals((byte) block, buffer.get(0));
+            }
+        }
+        direct.close().get(1000, TimeUnit.MILLISECONDS);
+        buffered.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void invalidArguments() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        assertThrows(IllegalArgumentException.class, () -> file.readahead(1000, 4));
+        assertThrows(IllegalArgumentException.class, () -> file.readahead(BLOCK, 0));
+        file.readahead(BLOCK, 1);
+        file.readahead(0, 1);
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,141 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RegisteredBufferTest {
+    private static final int BUFFER_SIZE = 4096;
+
+    private EventExecutor executor;
+
+    @TempDir
+    private Path tmpDir;
+
+    @BeforeEach
+    public void before() {
+        executor = EventExecutor.builder()
+                .registeredBuffers(2, BUFFER_SIZE)
+                .build();
+    }
+
+    @AfterEach
+    public void after() {
+        executor.close();
+    }
+
+    @Test
+    void read() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        String expected = CommonFileTests.prepareString(100);
+        CommonFileTests.writeStringToFile(expected, tempFile);
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        try (FixedBuffer buffer = executor.leaseBuffer()) {
+            assertEquals(expected.length(), file.read(buffer, 0, expected.length()).get(1000, TimeUnit.MILLISECONDS));
+            assertEquals(expected.length(), buffer.getBuffer().position());
+            buffer.getBuffer().flip();
+            assertEquals(expected, StandardCharsets.UTF_8.decode(buffer.getBuffer()).toString());
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void write() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        String expected = CommonFileTests.prepareString(100);
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        try (FixedBuffer buffer = executor.leaseBuffer()) {
+            buffer.getBuffer().put(expected.getBytes(StandardCharsets.UTF_8));
+            buffer.getBuffer().flip();
+            assertEquals(expected.length(), file.write(buffer, 0).get(1000, TimeUnit.MILLISECONDS));
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(expected, new String(Files.readAllBytes(tempFile), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void lengthGreaterThanBuffer() throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        try (FixedBuffer buffer = executor.leaseBuffer()) {
+            assertThrows(ExecutionException.class, () ->
+                    file.read(buffer, 0, BUFFER_SIZE + 1).get(1000, TimeUnit.MILLISECONDS));
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void lease() {
+        FixedBuffer first = executor.leaseBuffer();
+        FixedBuffer second = executor.leaseBuffer();
+        assertNotSame(first, second);
+        assertEquals(BUFFER_SIZE, first.getBuffer().capacity());
+        assertEquals(0, MemoryUtils.getDirectBufferAddress(first.getBuffer()) % MemoryUtils.getPageSize());
+        assertThrows(IllegalStateException.class, executor::leaseBuffer);
+        first.close();
+        assertThrows(IllegalStateException.class, first::close);
+        // the returned buffer is leased again
+        assertEquals(first.getIndex(), executor.leaseBuffer().getIndex());
+        second.close();
+    }
+
+    @Test
+    void otherExecutor() throws Exception {
+        EventExecutor other = EventExecutor.builder()
+                .registeredBuffers(1, BUFFER_SIZE)
+                .build();
+        try {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+            try (FixedBuffer buffer = other.leaseBuffer()) {
+                assertThrows(ExecutionException.class, () ->
+                        file.read(buffer, 0).get(1000, TimeUnit.MILLISECONDS));
+            }
+            file.close().get(1000, TimeUnit.MILLISECONDS);
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    void notEnabled() {
+        EventExecutor notRegistered = EventExecutor.initDefault();
+        try {
+            assertThrows(IllegalStateException.class, notRegistered::leaseBuffer);
+        } finally {
+            notRegistered.close();
+        }
+    }
+
+    @Test
+    void pollExecutor() throws Exception {
+        EventExecutor pollExecutor = EventExecutor.builder()
+                .registeredBuffers(1, BUFFER_SIZE)
+                .ioRingSetupIoPoll()
+                .build();
+        try {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            String expected = CommonFileTests.prepareString(100);
+            CommonFileTests.writeStringToFile(expected, tempFile);
+            AsyncFile file = AsyncFile.open(tempFile, pollExecutor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+            try (FixedBuffer buffer = pollExecutor.leaseBuffer()) {
+                assertTrue(file.read(buffer, 0).get(1000, TimeUnit.MILLISECONDS) > 0);
+            }
+            file.close().get(1000, TimeUnit.MILLISECONDS);
+        } finally {
+            pollExecutor.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RegisteredFileTest {
+    private EventExecutor executor;
+
+    @TempDir
+    private Path tmpDir;
+
+    @BeforeEach
+    public void before() {
+        executor = EventExecutor.builder()
+                .registeredFiles(2)
+                .build();
+    }
+
+    @AfterEach
+    public void after() {
+        executor.close();
+    }
+
+    @Test
+    void read_1() throws Exception {
+        CommonFileTests.Pair<Path, AbstractFile> file = prepareFile(OpenOption.READ_WRITE, OpenOption.REGISTERED);
+        assertEquals(-1, file.e2.getRawFd());
+        assertTrue(file.e2.getFileSlot() >= 0);
+        CommonFileTests.read_1(file);
+    }
+
+    @Test
+    void write() throws Exception {
+        CommonFileTests.write(prepareFile(OpenOption.READ_WRITE, OpenOption.REGISTERED));
+    }
+
+    @Test
+    void writev() throws Exception {
+        CommonFileTests.writev(prepareFile(OpenOption.READ_WRITE, OpenOption.REGISTERED));
+    }
+
+    @Test
+    void read_handler() throws Exception {
+        CommonFileTests.read_handler(prepareFile(OpenOption.READ_WRITE, OpenOption.REGISTERED));
+    }
+
+    @Test
+    void dataSync() throws Exception {
+        CommonFileTests.dataSync(prepareFile(OpenOption.READ_WRITE, OpenOption.REGISTERED));
+    }
+
+    @Test
+    void close() throws Exception {
+        CommonFileTests.close(prepareFile(OpenOption.READ_WRITE, OpenOption.REGISTERED));
+    }
+
+    @Test
+    void noFreeSlots() throws Exception {
+        AbstractFile first = prepareFile(OpenOption.REGISTERED).e2;
+        prepareFile(OpenOption.REGISTERED);
+        assertThrows(ExecutionException.class, () -> prepareFile(OpenOption.REGISTERED));
+        first.close().get(1000, TimeUnit.MILLISECONDS);
+        // the slot of the closed file is reused
+        assertEquals(first.getFileSlot(), prepareFile(OpenOption.REGISTERED).e2.getFileSlot());
+    }
+
+    @Test
+    void notEnabled() throws Exception {
+        EventExecutor notRegistered = EventExecutor.initDefault();
+        try {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            assertThrows(ExecutionException.class, () ->
+                    AsyncFile.open(tempFile, notRegistered, OpenOption.REGISTERED).get(1000, TimeUnit.MILLISECONDS));
+        } finally {
+            notRegistered.close();
+        }
+    }
+
+    @Test
+    void pollExecutor() throws Exception {
+        EventExecutor pollExecutor = EventExecutor.builder()
+                .registeredFiles(2)
+                .ioRingSetupIoPoll()
+                .build();
+        try {
+            Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+            AsyncFile file = AsyncFile.open(tempFile, pollExecutor, OpenOption.READ_WRITE, OpenOption.REGISTERED)
+                    .get(1000, TimeUnit.MILLISECONDS);
+            assertTrue(file.getRawFd() > 0);
+            CommonFileTests.read_1(new CommonFileTests.Pair<>(tempFile, file));
+            assertEquals(0, file.close().get(1000, TimeUnit.MILLISECONDS));
+        } finally {
+            pollExecutor.close();
+        }
+    }
+
+    private CommonFileTests.Pair<Path, AbstractFile> prepareFile(OpenOption... openOptions) throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, openOptions).get(1000, TimeUnit.MILLISECONDS);
+        return new CommonFileTests.Pair<>(tempFile, file);
+    }
+}
@@ -0,0 +1,107 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SchedulingTest {
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final EventExecutor executor = EventExecutor.initDefault();
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void schedule() throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<Long> ranAt = new CompletableFuture<>();
+        ScheduledFuture<?> future = executor.schedule(() -> {
+            assertTrue(executor.inEventLoop());
+            ranAt.complete(System.nanoTime());
+        }, 20, TimeUnit.MILLISECONDS);
+        assertTrue(ranAt.get(1000, TimeUnit.MILLISECONDS) - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        future.get(1000, TimeUnit.MILLISECONDS);
+        assertTrue(future.isDone());
+    }
+
+    @Test
+    void scheduleAtFixedRate() throws Exception {
+        CountDownLatch runs = new CountDownLatch(5);
+        ScheduledFuture<?> future = executor.scheduleAtFixedRate(runs::countDown, 0, 2, TimeUnit.MILLISECONDS);
+        assertTrue(runs.await(1000, TimeUnit.MILLISECONDS));
+        assertFalse(future.isDone());
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    void cancel() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledFuture<?> future = executor.schedule(runs::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+        assertTrue(future.cancel(false));
+        executor.schedule(() -> {
+        }, 30, TimeUnit.MILLISECONDS).get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void cancelledOnClose() {
+        ScheduledFuture<?> future = executor.schedule(() -> {
+        }, 1, TimeUnit.HOURS);
+        executor.close();
+        assertThrows(CancellationException.class, () -> future.get(1000, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void wheelRotations() {
+        TimerWheel wheel = new TimerWheel(8, TICK, 0);
+        List<Integer> order = new ArrayList<>();
+        wheel.add(new ScheduledTask(() -> order.add(20), 20 * TICK, 0));
+        wheel.add(new ScheduledTask(() -> order.add(4), 4 * TICK, 0));
+        wheel.add(new ScheduledTask(() -> order.add(12), 12 * TICK, 0));
+        // 4, 12 and 20 share a bucket
+        assertEquals(4 * TICK, wheel.nanosToNextTick(0));
+        assertFalse(wheel.expire(4 * TICK - 1));
+        assertTrue(wheel.expire(4 * TICK));
+        assertFalse(wheel.expire(12 * TICK - 1));
+        assertTrue(wheel.expire(20 * TICK));
+        assertEquals(3, order.size());
+        assertEquals(4, order.get(0));
+        assertEquals(12, order.get(1));
+        assertEquals(20, order.get(2));
+        assertTrue(wheel.isEmpty());
+        assertEquals(-1, wheel.nanosToNextTick(20 * TICK));
+    }
+
+    @Test
+    void wheelPeriodic() {
+        TimerWheel wheel = new TimerWheel(8, TICK, 0);
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledTask task = new ScheduledTask(runs::incrementAndGet, TICK, 3 * TICK);
+        wheel.add(task);
+        // the loop was late, the missed runs catch up
+        wheel.expire(10 * TICK);
+        assertEquals(4, runs.get());
+        assertEquals(13 * TICK, task.getDeadline());
+        task.cancel(false);
+        wheel.expire(20 * TICK);
+        assertEquals(4, runs.get());
+        assertTrue(wheel.isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SetupFlagsTest {
+
+    @TempDir
+    private Path tmpDir;
+
+    @Test
+    void deferTaskrun() throws Exception {
+        readWrite(EventExecutor.builder()
+                .ioRingSetupDeferTaskrun()
+                .registeredFiles(4)
+                .build());
+    }
+
+    @Test
+    void coopTaskrun() throws Exception {
+        readWrite(EventExecutor.builder()
+                .ioRingSetupCoopTaskrun()
+                .ioRingSetupSubmitAll()
+                .registeredFiles(4)
+                .build());
+    }
+
+    @Test
+    void singleIssuerPollExecutor() throws Exception {
+        readWrite(EventExecutor.builder()
+                .ioRingSetupSingleIssuer()
+                .ioRingSetupIoPoll()
+                .registeredFiles(4)
+                .build());
+    }
+
+    @Test
+    void withoutDefaultFlags() throws Exception {
+        readWrite(EventExecutor.builder()
+                .defaultSetupFlags(false)
+                .registeredFiles(4)
+                .build());
+    }
+
+    @Test
+    void withoutRegisteredRing() throws Exception {
+        readWrite(EventExecutor.builder()
+                .registeredRing(false)
+                .registeredFiles(4)
+                .build());
+    }
+
+    @Test
+    void registeredRingPollExecutor() throws Exception {
+        readWrite(EventExecutor.builder()
+                .registeredRing(true)
+                .ioRingSetupIoPoll()
+                .registeredFiles(4)
+                .build());
+    }
+
+    @Test
+    void deferTaskrunWithSqPoll() {
+        assertThrows(IllegalArgumentException.class, () -> EventExecutor.builder()
+                .ioRingSetupDeferTaskrun()
+                .ioRingSetupSqPoll(1000)
+                .build());
+    }
+
+    private void readWrite(EventExecutor executor) throws Exception {
+        try {
+            CommonFileTests.write(prepareFile(executor));
+            CommonFileTests.read_1(prepareFile(executor));
+            CommonFileTests.close(prepareFile(executor));
+        } finally {
+            executor.close();
+        }
+    }
+
+    private CommonFileTests.Pair<Path, AbstractFile> prepareFile(EventExecutor executor) throws Exception {
+        Path tempFile = Files.createTempFile(tmpDir, "test-", " file");
+        AsyncFile file = AsyncFile.open(tempFile, executor, OpenOption.READ_WRITE, OpenOption.REGISTERED)
+                .get(1000, TimeUnit.MILLISECONDS);
+        return new CommonFileTests.Pair<>(tempFile, file);
+    }
+}
@@ -0,0 +1,155 @@
+package one.jasyncfio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+    private static final int BLOCK = 1024;
+    private static final int BLOCKS = 16;
+    private static final int READERS = 32;
+
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(16)
+            .addBufRing(2, BLOCK, (short) 0)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void identicalReads() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        file.deduplicateReads(true);
+        for (int round = 0; round < 3; round++) {
+            IoBatch batch = executor.batch();
+            List<ByteBuffer> buffers = new ArrayList<>();
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < READERS; i++) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK);
+                buffers.add(buffer);
+                // the same hot block, and once in a while a read of the same position with another length
+                int length = i % 8 == 7 ? BLOCK / 2 : BLOCK;
+                results.add(batch.read(file, buffer, 5L * BLOCK, length));
+            }
+            batch.commit();
+            for (int i = 0; i < READERS; i++) {
+                int length = i % 8 == 7 ? BLOCK / 2 : BLOCK;
+                assertEquals(length, results.get(i).get(1000, TimeUnit.MILLISECONDS));
+                assertEquals(length, buffers.get(i).position());
+                assertEquals((byte) 5, buffers.get(i).get(0));
+                assertEquals((byte) 5, buffers.get(i).get(length - 1));
+            }
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void identicalReads_merged() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        file.deduplicateReads(true);
+        file.mergeReads(BLOCKS * BLOCK);
+        long[] positions = new long[READERS];
+        int[] lengths = new int[READERS];
+        ByteBuffer[] targets = new ByteBuffer[READERS];
+        for (int i = 0; i < READERS; i++) {
+            positions[i] = (long) (i % BLOCKS) * BLOCK;
+            lengths[i] = BLOCK;
+            targets[i] = ByteBuffer.allocateDirect(BLOCK);
+        }
+        int[] results = file.readMany(positions, lengths, targets).get(1000, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < READERS; i++) {
+            assertEquals(BLOCK, results[i]);
+            assertEquals((byte) (i % BLOCKS), targets[i].get(BLOCK - 1));
+        }
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void sharedBufRingBuffer() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        file.deduplicateReads(true);
+        // two buffers in the ring, eight readers of the same block share one of them
+        long[] positions = new long[8];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = 3L * BLOCK;
+        }
+        BufRingResult[] results = file.readManyFixedBuffer(positions, (short) 0).get(1000, TimeUnit.MILLISECONDS);
+        for (BufRingResult result : results) {
+            assertEquals(BLOCK, result.getReadBytes());
+            assertEquals((byte) 3, result.getBuffer().get(0));
+            assertTrue(result.getBuffer().isReadOnly());
+            assertThrows(ReadOnlyBufferException.class, () -> result.getBuffer().put(0, (byte) 0));
+        }
+        // the shared buffer is still taken, only one is left
+        BufRingResult other = file.readFixedBuffer(4L * BLOCK, (short) 0).get(1000, TimeUnit.MILLISECONDS);
+        assertThrows(ExecutionException.class, () -> file.readFixedBuffer(5L * BLOCK, (short) 0).get(1000, TimeUnit.MILLISECONDS));
+        for (BufRingResult result : results) {
+            result.close();
+        }
+        BufRingResult last = file.readFixedBuffer(5L * BLOCK, (short) 0).get(1000, TimeUnit.MILLISECONDS);
+        assertEquals((byte) 5, last.getBuffer().get(0));
+        last.close();
+        other.close();
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void cancelledBufRingReaders() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.READ_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        file.deduplicateReads(true);
+        for (int cancelledLeader = 0; cancelledLeader < 2; cancelledLeader++) {
+            boolean leader = cancelledLeader == 1;
+            CompletableFuture<CompletableFuture<BufRingResult>> last = new CompletableFuture<>();
+            // issued and cancelled in one pass of the EventLoop, the first read leads the flight
+            executor.execute(() -> {
+                CompletableFuture<BufRingResult> first = file.readFixedBuffer(3L * BLOCK, (short) 0);
+                CompletableFuture<BufRingResult> second = file.readFixedBuffer(3L * BLOCK, (short) 0);
+                CompletableFuture<BufRingResult> third = file.readFixedBuffer(3L * BLOCK, (short) 0);
+                (leader ? first : third).cancel(true);
+                second.cancel(true);
+                last.complete(leader ? third : first);
+            });
+            BufRingResult result = last.get(1000, TimeUnit.MILLISECONDS).get(1000, TimeUnit.MILLISECONDS);
+            assertEquals((byte) 3, result.getBuffer().get(0));
+            result.close();
+        }
+        // both buffers are back in the ring
+        BufRingResult first = file.readFixedBuffer(4L * BLOCK, (short) 0).get(1000, TimeUnit.MILLISECONDS);
+        BufRingResult second = file.readFixedBuffer(5L * BLOCK, (short) 0).get(1000, TimeUnit.MILLISECONDS);
+        first.close();
+        second.close();
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void failedRead() throws Exception {
+        AsyncFile file = AsyncFile.open(CommonFileTests.blocksFile(tmpDir, BLOCK, BLOCK * BLOCKS), executor, OpenOption.WRITE_ONLY).get(1000, TimeUnit.MILLISECONDS);
+        file.deduplicateReads(true);
+        IoBatch batch = executor.batch();
+        CompletableFuture<Integer> first = batch.read(file, ByteBuffer.allocateDirect(BLOCK), 0, BLOCK);
+        CompletableFuture<Integer> second = batch.read(file, ByteBuffer.allocateDirect(BLOCK), 0, BLOCK);
+        batch.commit();
+        assertThrows(ExecutionException.class, () -> first.get(1000, TimeUnit.MILLISECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(1000, TimeUnit.MILLISECONDS));
+        file.close().get(1000, TimeUnit.MILLISECONDS);
+    }
+}
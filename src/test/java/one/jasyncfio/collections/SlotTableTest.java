@@ -0,0 +1,66 @@
+package one.jasyncfio.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlotTableTest {
+
+    @Test
+    void addRemove() {
+        SlotTable<String> table = new SlotTable<>(4);
+        long a = table.add("a");
+        long b = table.add("b");
+        assertEquals(2, table.size());
+        assertEquals("a", table.get(a));
+        assertEquals("a", table.remove(a));
+        assertNull(table.remove(a));
+        assertEquals("b", table.remove(b));
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void staleKey() {
+        SlotTable<String> table = new SlotTable<>(1);
+        long a = table.add("a");
+        table.remove(a);
+        long b = table.add("b");
+        // same slot, new generation
+        assertEquals((int) a, (int) b);
+        assertNull(table.remove(a));
+        assertNull(table.get(a));
+        assertEquals("b", table.remove(b));
+    }
+
+    @Test
+    void grow() {
+        SlotTable<Integer> table = new SlotTable<>(2);
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            long key = table.add(i);
+            assertTrue(key >= 0);
+            keys.add(key);
+        }
+        assertEquals(100, keys.size());
+        assertEquals(128, table.capacity());
+        int sum = 0;
+        for (long key : keys) {
+            sum += table.remove(key);
+        }
+        assertEquals(4950, sum);
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void unknownKey() {
+        SlotTable<String> table = new SlotTable<>(2);
+        assertNull(table.remove(-1));
+        assertNull(table.remove(5));
+        assertNull(table.remove(0));
+    }
+}
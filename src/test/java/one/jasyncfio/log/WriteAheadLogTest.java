@@ -0,0 +1,211 @@
+package one.jasyncfio.log;
+
+import one.jasyncfio.EventExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteAheadLogTest {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    private final EventExecutor executor = EventExecutor.builder()
+            .entries(64)
+            .build();
+
+    @TempDir
+    private Path tmpDir;
+
+    @AfterEach
+    void after() {
+        executor.close();
+    }
+
+    @Test
+    void crc32c() {
+        ByteBuffer bytes = ByteBuffer.wrap("123456789".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(0xE3069283, Crc32c.compute(0, bytes, 0, bytes.capacity()));
+    }
+
+    @Test
+    void appendAndCommit() throws Exception {
+        WriteAheadLog log = open().get(1000, TimeUnit.MILLISECONDS);
+        long first = log.append(record(0, 100));
+        long second = log.append(record(1, 100));
+        assertEquals(0, first);
+        assertEquals(108, second);
+        assertEquals(216, log.getNextLsn());
+        assertEquals(216, log.commit(second).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(216, log.getDurableLsn());
+        // committed before
+        assertEquals(216, log.commit(first).get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(216, log.close().get(1000, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void concurrentCommits() throws Exception {
+        WriteAheadLog log = open().get(1000, TimeUnit.MILLISECONDS);
+        List<CompletableFuture<Long>> commits = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    long lsn = log.append(record(thread * 100 + i, 32));
+                    CompletableFuture<Long> commit = log.commit(lsn);
+                    synchronized (commits) {
+                        commits.add(commit.thenApply(durable -> {
+                            assertTrue(durable > lsn);
+                            return durable;
+                        }));
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (CompletableFuture<Long> commit : commits) {
+            commit.get(1000, TimeUnit.MILLISECONDS);
+        }
+        log.close().get(1000, TimeUnit.MILLISECONDS);
+        Map<Long, Integer> replayed = replay();
+        assertEquals(400, replayed.size());
+    }
+
+    @Test
+    void rollsAndReplays() throws Exception {
+        WriteAheadLog log = open().get(1000, TimeUnit.MILLISECONDS);
+        Map<Long, Integer> appended = new LinkedHashMap<>();
+        // about five segments, with records larger than a batch
+        for (int i = 0; i < 300; i++) {
+            int size = i % 50 == 0 ? 6000 : 1000;
+            appended.put(log.append(record(i, size)), i);
+        }
+        long end = log.commit().get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(log.getNextLsn(), end);
+        log.close().get(1000, TimeUnit.MILLISECONDS);
+        assertTrue(segments() >= 5);
+
+        assertEquals(appended, replay());
+        WriteAheadLog reopened = open().get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(end, reopened.getNextLsn());
+        long lsn = reopened.append(record(300, 10));
+        assertEquals(end, lsn);
+        reopened.close().get(1000, TimeUnit.MILLISECONDS);
+        appended.put(lsn, 300);
+        assertEquals(appended, replay());
+    }
+
+    @Test
+    void tornTailIsErased() throws Exception {
+        WriteAheadLog log = open().get(1000, TimeUnit.MILLISECONDS);
+        log.append(record(0, 100));
+        long torn = log.append(record(1, 100));
+        long after = log.append(record(2, 100));
+        log.close().get(1000, TimeUnit.MILLISECONDS);
+        // a segment of the log past a torn record
+        try (RandomAccessFile file = new RandomAccessFile(tmpDir.resolve(Segment.fileName(1)).toFile(), "rw")) {
+            file.setLength(SEGMENT_SIZE);
+            file.seek(0);
+            file.writeInt(1);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(tmpDir.resolve(Segment.fileName(0)).toFile(), "rw")) {
+            file.seek(torn + Segment.HEADER_SIZE + 10);
+            file.write(0x55);
+        }
+
+        Map<Long, Integer> replayed = replay();
+        assertEquals(1, replayed.size());
+        assertFalse(Files.exists(tmpDir.resolve(Segment.fileName(1))) && segmentHasData(1));
+        WriteAheadLog reopened = open().get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(torn, reopened.getNextLsn());
+        // same length as the torn record, the record after it must not come back
+        reopened.append(record(3, 100));
+        reopened.close().get(1000, TimeUnit.MILLISECONDS);
+        replayed = replay();
+        assertEquals(2, replayed.size());
+        assertEquals(3, replayed.get(torn));
+        assertFalse(replayed.containsKey(after));
+    }
+
+    @Test
+    void invalidArguments() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> WriteAheadLog.builder(tmpDir, executor).segmentSize(16));
+        assertThrows(IllegalArgumentException.class, () -> WriteAheadLog.builder(tmpDir, executor).batchSize(0));
+        assertThrows(IllegalArgumentException.class, () -> WriteAheadLog.builder(tmpDir, executor).recoveryParallelism(0));
+        WriteAheadLog log = open().get(1000, TimeUnit.MILLISECONDS);
+        assertThrows(IllegalArgumentException.class, () -> log.append(ByteBuffer.allocate(SEGMENT_SIZE)));
+        assertThrows(IllegalArgumentException.class, () -> log.commit(0));
+        log.close().get(1000, TimeUnit.MILLISECONDS);
+        assertThrows(IllegalStateException.class, () -> log.append(ByteBuffer.allocate(1)));
+    }
+
+    private CompletableFuture<WriteAheadLog> open() {
+        return WriteAheadLog.builder(tmpDir, executor)
+                .segmentSize(SEGMENT_SIZE)
+                .batchSize(4096)
+                .recoveryParallelism(2)
+                .open();
+    }
+
+    private Map<Long, Integer> replay() throws Exception {
+        Map<Long, Integer> replayed = new LinkedHashMap<>();
+        WriteAheadLog log = WriteAheadLog.builder(tmpDir, executor)
+                .segmentSize(SEGMENT_SIZE)
+                .recoveryParallelism(2)
+                .open((lsn, record) -> {
+                    int id = record.getInt(0);
+                    for (int i = 4; i < record.remaining(); i++) {
+                        assertEquals((byte) (id + i), record.get(i));
+                    }
+                    replayed.put(lsn, id);
+                })
+                .get(1000, TimeUnit.MILLISECONDS);
+        log.close().get(1000, TimeUnit.MILLISECONDS);
+        return replayed;
+    }
+
+    private long segments() throws Exception {
+        try (Stream<Path> files = Files.list(tmpDir)) {
+            return files.filter(file -> Segment.indexOf(file.getFileName().toString()) >= 0).count();
+        }
+    }
+
+    private boolean segmentHasData(long index) throws Exception {
+        byte[] bytes = Files.readAllBytes(tmpDir.resolve(Segment.fileName(index)));
+        for (byte b : bytes) {
+            if (b != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer record(int id, int size) {
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.putInt(0, id);
+        for (int i = 4; i < size; i++) {
+            record.put(i, (byte) (id + i));
+        }
+        return record;
+    }
+}